@@ -0,0 +1,107 @@
+package com.restaurantsystem.reservation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Generated reservations.db files for the benchmarks. Each size is built once
+ * under target/bench-db and copied for every trial, so benchmarks that write
+ * never see each other's rows.
+ */
+public final class BenchmarkDatabase {
+    public static final int PER_DATE = 30;
+    public static final int WAITLIST = 1_000;
+    // Far enough ahead that every generated date can still be booked
+    public static final LocalDate FIRST_DATE = LocalDate.of(2100, 1, 1);
+
+    private static final Path DIR = Paths.get("target", "bench-db");
+    private static final ServiceSchedule SCHEDULE = ServiceSchedule.defaultSchedule();
+
+    private BenchmarkDatabase() {
+    }
+
+    //A fresh working copy of the database with the given number of reservations
+    public static Path copy(int rows) throws IOException, SQLException {
+        Path template = DIR.resolve("reservations-" + rows + "-" + FIRST_DATE + ".db");
+        if (!Files.exists(template)) {
+            generate(rows, template);
+        }
+        Path work = Files.createTempFile(DIR, "work-" + rows + "-", ".db");
+        Files.copy(template, work, StandardCopyOption.REPLACE_EXISTING);
+        return work;
+    }
+
+    //First date after the generated bookings, free for benchmarks that insert
+    public static LocalDate firstFreeDate(int rows) {
+        return FIRST_DATE.plusDays(rows / PER_DATE + 1);
+    }
+
+    public static String name(int i) {
+        return "Guest" + i;
+    }
+
+    public static String phone(int i) {
+        return String.format("%03d-%03d-%04d", 200 + i / 10_000_000, i / 10_000 % 1_000, i % 10_000);
+    }
+
+    private static void generate(int rows, Path target) throws IOException, SQLException {
+        Files.createDirectories(DIR);
+        Path partial = DIR.resolve(target.getFileName() + ".partial");
+        Files.deleteIfExists(partial);
+        ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + partial, 1);
+        try {
+            new SchemaMigrator(pool).migrate();
+            try (PooledConnection conn = pool.acquire()) {
+                conn.begin();
+                // Every generated guest books once, so each row has its own customer
+                PreparedStatement customer = conn.prepare(ReservationSql.UPSERT_CUSTOMER);
+                PreparedStatement count = conn.prepare(ReservationSql.COUNT_BOOKING);
+                for (int i = 0; i < rows; i++) {
+                    customer.setLong(1, PhoneKey.of(phone(i)));
+                    customer.setString(2, name(i));
+                    customer.addBatch();
+                    count.setLong(1, PhoneKey.of(phone(i)));
+                    count.addBatch();
+                    if (i % 10_000 == 9_999) {
+                        customer.executeBatch();
+                        count.executeBatch();
+                    }
+                }
+                customer.executeBatch();
+                count.executeBatch();
+                PreparedStatement insert = conn.prepare(ReservationSql.INSERT_RESERVATION);
+                for (int i = 0; i < rows; i++) {
+                    insert.setString(1, name(i));
+                    insert.setLong(2, PhoneKey.of(phone(i)));
+                    insert.setString(3, FIRST_DATE.plusDays(i / PER_DATE).toString());
+                    insert.setString(4, SCHEDULE.label(i % SCHEDULE.count()));
+                    insert.setInt(5, 2 + i % 3);
+                    insert.setString(6, "");
+                    insert.addBatch();
+                    if (i % 10_000 == 9_999) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+                PreparedStatement join = conn.prepare(ReservationSql.JOIN_WAITLIST);
+                for (int i = 0; i < WAITLIST; i++) {
+                    join.setString(1, name(i));
+                    join.setLong(2, PhoneKey.of(phone(i)));
+                    join.setInt(3, 2);
+                    join.addBatch();
+                }
+                join.executeBatch();
+                conn.commit();
+            }
+        } finally {
+            pool.close();
+        }
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,163 @@
+package com.restaurantsystem.reservation;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of the booking hot paths against generated databases of 1k, 100k
+ * and 1M reservations. Run with {@code mvn -Pbenchmark verify}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BookingBenchmark {
+    private static final ServiceSchedule SCHEDULE = ServiceSchedule.defaultSchedule();
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private Path file;
+    private ReservationService service;
+    private ConnectionPool readers;
+    private AvailabilityIndex uncached;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private LocalDate freeDate;
+    private int inserted;
+    private int joined;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        file = BenchmarkDatabase.copy(rows);
+        service = new ReservationService("jdbc:sqlite:" + file, 4);
+        readers = new ConnectionPool("jdbc:sqlite:" + file, 1);
+        // An index that keeps no dates, so every lookup reads the bookings again
+        uncached = new AvailabilityIndex(0, TableInventory.defaultLayout(), SCHEDULE.count(),
+                SCHEDULE.turnSlots(ReservationService.TURN_MINUTES), this::loadBookings, this::loadBookingRange);
+        freeDate = BenchmarkDatabase.firstFreeDate(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        service.close();
+        readers.close();
+        Files.deleteIfExists(file);
+    }
+
+    private LocalDate bookedDate() {
+        return BenchmarkDatabase.FIRST_DATE.plusDays(random.nextInt(rows / BenchmarkDatabase.PER_DATE));
+    }
+
+    @Benchmark
+    public int reserve() throws SQLException {
+        int n = inserted++;
+        // One party per slot per date stays within the tables, so every insert succeeds
+        return service.reserve("Bench", "555-000-0000", freeDate.plusDays(n / SCHEDULE.count()),
+                SCHEDULE.label(n % SCHEDULE.count()), 2, "");
+    }
+
+    @Benchmark
+    public long availabilityCached() throws SQLException {
+        return service.availability(BenchmarkDatabase.FIRST_DATE, 2);
+    }
+
+    @Benchmark
+    public long availabilityFromDatabase() throws SQLException {
+        return uncached.availability(bookedDate(), 2);
+    }
+
+    @Benchmark
+    public List<SlotSearch.Suggestion> suggestSlotsFromDatabase() throws SQLException {
+        // Four weeks read in one range query and ranked, with nothing cached
+        LocalDate first = bookedDate();
+        SlotSearch search = new SlotSearch(4, first, first.plusDays(27), SCHEDULE.minuteOfDay(0),
+                SCHEDULE.minuteOfDay(SCHEDULE.count() - 1), SCHEDULE.minuteOf("07:00 PM"), Set.of(), 5);
+        return search.rank(SCHEDULE, uncached.availability(search.first(), search.last(), search.guests()));
+    }
+
+    @Benchmark
+    public SearchResult searchReservation() throws SQLException {
+        int i = random.nextInt(rows);
+        return service.search(BenchmarkDatabase.name(i), BenchmarkDatabase.phone(i));
+    }
+
+    @Benchmark
+    public int waitlistJoinAndLeave() throws SQLException {
+        String phone = String.format("999-%03d-%04d", joined / 10_000 % 1_000, joined % 10_000);
+        joined++;
+        service.joinWaitlist("Bench", phone, 2);
+        return service.leaveWaitlist(phone);
+    }
+
+    @Benchmark
+    public int waitlistPosition() throws SQLException {
+        return service.waitlistPosition(1 + random.nextInt(BenchmarkDatabase.WAITLIST));
+    }
+
+    @Benchmark
+    public int listReservations() throws SQLException {
+        return service.listReservations().size();
+    }
+
+    @Benchmark
+    public int listWaitlist() throws SQLException {
+        return service.listWaitlist().size();
+    }
+
+    private Map<LocalDate, List<AvailabilityIndex.Booking>> loadBookingRange(LocalDate first, LocalDate last) throws SQLException {
+        Map<LocalDate, List<AvailabilityIndex.Booking>> bookings = new HashMap<>();
+        try (PooledConnection conn = readers.acquire()) {
+            PreparedStatement pstmt = conn.prepare(ReservationSql.BOOKINGS_BETWEEN);
+            pstmt.setString(1, first.toString());
+            pstmt.setString(2, last.toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    bookings.computeIfAbsent(LocalDate.parse(rs.getString(1)), date -> new ArrayList<>()).add(
+                            new AvailabilityIndex.Booking(rs.getInt(2), SCHEDULE.slotAtMinute(rs.getInt(3)), rs.getInt(4)));
+                }
+            }
+        }
+        return bookings;
+    }
+
+    private List<AvailabilityIndex.Booking> loadBookings(LocalDate date) throws SQLException {
+        List<AvailabilityIndex.Booking> bookings = new ArrayList<>();
+        try (PooledConnection conn = readers.acquire()) {
+            PreparedStatement pstmt = conn.prepare(ReservationSql.BOOKINGS_FOR_DATE);
+            pstmt.setString(1, date.toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    bookings.add(new AvailabilityIndex.Booking(rs.getInt(1), SCHEDULE.slotAtMinute(rs.getInt(2)), rs.getInt(3)));
+                }
+            }
+        }
+        return bookings;
+    }
+}
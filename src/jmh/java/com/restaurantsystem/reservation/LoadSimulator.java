@@ -0,0 +1,333 @@
+package com.restaurantsystem.reservation;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Capacity simulator: N concurrent clients replay a booking mix against the
+ * service layer on a throwaway database file and report throughput, latency
+ * percentiles, SQLITE_BUSY errors and double bookings.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.restaurantsystem.reservation.LoadSimulator \
+ *     -Dexec.args="--clients 200 --terminals 4 --seconds 30 --skew 0.7"
+ * </pre>
+ *
+ * Each terminal is a separate ReservationService with its own pool and caches
+ * on the same file, like separate processes would be.
+ */
+public class LoadSimulator {
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    private static final ServiceSchedule SCHEDULE = ServiceSchedule.defaultSchedule();
+    private static final int EVENING = SCHEDULE.indexOf("06:00 PM");
+
+    enum Operation { AVAILABILITY, RESERVE, UPDATE, CANCEL, WAITLIST }
+
+    private final int clients;
+    private final int terminals;
+    private final int seconds;
+    private final int days;
+    private final double skew;
+    // Cumulative weights of the operation mix: mostly reads
+    private final int[] mix = {70, 85, 90, 95, 100};
+
+    private final LongAdder busy = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder noTable = new LongAdder();
+
+    public LoadSimulator(int clients, int terminals, int seconds, int days, double skew) {
+        this.clients = clients;
+        this.terminals = terminals;
+        this.seconds = seconds;
+        this.days = days;
+        this.skew = skew;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = 64;
+        int terminals = 1;
+        int seconds = 20;
+        int days = 28;
+        double skew = 0.7;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--clients" -> clients = Integer.parseInt(args[i + 1]);
+                case "--terminals" -> terminals = Integer.parseInt(args[i + 1]);
+                case "--seconds" -> seconds = Integer.parseInt(args[i + 1]);
+                case "--days" -> days = Integer.parseInt(args[i + 1]);
+                case "--skew" -> skew = Double.parseDouble(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        new LoadSimulator(clients, terminals, seconds, days, skew).run();
+    }
+
+    public void run() throws Exception {
+        Path file = Files.createTempFile("reservations-load-", ".db");
+        String url = "jdbc:sqlite:" + file;
+        List<ReservationService> services = new ArrayList<>();
+        try {
+            for (int t = 0; t < terminals; t++) {
+                ReservationService service = new ReservationService(url, 4);
+                service.migrate();
+                services.add(service);
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            ExecutorService executor = BookingHttpServer.requestExecutor();
+            List<Future<Client>> running = new ArrayList<>();
+            long started = System.nanoTime();
+            for (int c = 0; c < clients; c++) {
+                Client client = new Client(c, services.get(c % terminals));
+                running.add(executor.submit(() -> client.run(deadline)));
+            }
+            Map<Operation, Samples> samples = new EnumMap<>(Operation.class);
+            for (Operation op : Operation.values()) {
+                samples.put(op, new Samples());
+            }
+            for (Future<Client> future : running) {
+                Client client = future.get();
+                for (Operation op : Operation.values()) {
+                    samples.get(op).addAll(client.samples.get(op));
+                }
+            }
+            double elapsed = (System.nanoTime() - started) / 1e9;
+            executor.shutdown();
+
+            report(samples, elapsed, countViolations(url, services.get(0).inventory()));
+        } finally {
+            for (ReservationService service : services) {
+                service.close();
+            }
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(Path.of(file + "-wal"));
+            Files.deleteIfExists(Path.of(file + "-shm"));
+        }
+    }
+
+    private void report(Map<Operation, Samples> samples, double elapsed, int violations) {
+        long total = 0;
+        System.out.printf("%d clients on %d terminal(s) for %.1f s, skew %.2f%n", clients, terminals, elapsed, skew);
+        System.out.printf("%-13s %10s %10s %10s %10s%n", "operation", "count", "p50 ms", "p99 ms", "p999 ms");
+        for (Operation op : Operation.values()) {
+            Samples s = samples.get(op);
+            s.sort();
+            total += s.size;
+            System.out.printf("%-13s %10d %10.3f %10.3f %10.3f%n", op.name().toLowerCase(), s.size,
+                    s.percentile(0.50) / 1e6, s.percentile(0.99) / 1e6, s.percentile(0.999) / 1e6);
+        }
+        System.out.printf("throughput      %.0f ops/s%n", total / elapsed);
+        System.out.printf("no table        %d%n", noTable.sum());
+        System.out.printf("SQLITE_BUSY     %d%n", busy.sum());
+        System.out.printf("other errors    %d%n", errors.sum());
+        System.out.printf("double bookings %d%n", violations);
+    }
+
+    //Slots where the parties sitting at once need more tables or seats than the room has
+    private int countViolations(String url, TableInventory inventory) throws SQLException {
+        int turn = SCHEDULE.turnSlots(ReservationService.TURN_MINUTES);
+        int violations = 0;
+        ConnectionPool pool = new ConnectionPool(url, 1);
+        try (PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(ReservationSql.BOOKINGS_FOR_DATE);
+            LocalDate today = LocalDate.now();
+            for (int d = 0; d <= days; d++) {
+                int[] parties = new int[SCHEDULE.count()];
+                int[] guests = new int[SCHEDULE.count()];
+                pstmt.setString(1, today.plusDays(d).toString());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int start = SCHEDULE.slotAtMinute(rs.getInt(2));
+                        for (int slot = start; slot < Math.min(start + turn, SCHEDULE.count()); slot++) {
+                            parties[slot]++;
+                            guests[slot] += rs.getInt(3);
+                        }
+                    }
+                }
+                for (int slot = 0; slot < SCHEDULE.count(); slot++) {
+                    if (parties[slot] > inventory.tableCount() || guests[slot] > inventory.totalSeats()) {
+                        violations++;
+                    }
+                }
+            }
+        } finally {
+            pool.close();
+        }
+        return violations;
+    }
+
+    /**
+     * One simulated terminal user with its own bookings and latency samples.
+     */
+    private final class Client {
+        private final int id;
+        private final ReservationService service;
+        private final Map<Operation, Samples> samples = new EnumMap<>(Operation.class);
+        private final List<int[]> bookings = new ArrayList<>();
+        private final List<String> waiting = new ArrayList<>();
+        private int counter;
+
+        Client(int id, ReservationService service) {
+            this.id = id;
+            this.service = service;
+            for (Operation op : Operation.values()) {
+                samples.put(op, new Samples());
+            }
+        }
+
+        Client run(long deadline) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < deadline) {
+                Operation op = pick(random.nextInt(100));
+                long start = System.nanoTime();
+                try {
+                    execute(op, random);
+                } catch (SQLException e) {
+                    int code = e.getErrorCode() & 0xff;
+                    if (code == SQLITE_BUSY || code == SQLITE_LOCKED) {
+                        busy.increment();
+                    } else {
+                        errors.increment();
+                    }
+                }
+                samples.get(op).add(System.nanoTime() - start);
+            }
+            return this;
+        }
+
+        private Operation pick(int roll) {
+            Operation[] ops = Operation.values();
+            for (int i = 0; i < ops.length; i++) {
+                if (roll < mix[i]) {
+                    return ops[i];
+                }
+            }
+            return Operation.AVAILABILITY;
+        }
+
+        private void execute(Operation op, ThreadLocalRandom random) throws SQLException {
+            LocalDate date = pickDate(random);
+            int slot = pickSlot(random);
+            int guests = 2 + random.nextInt(5);
+            switch (op) {
+                case AVAILABILITY -> service.availability(date, guests);
+                case RESERVE -> {
+                    String phone = phone();
+                    int reservation = service.reserve("Load" + id, phone, date, SCHEDULE.label(slot), guests, "");
+                    if (reservation == ReservationService.NO_TABLE) {
+                        noTable.increment();
+                    } else {
+                        bookings.add(new int[] {reservation, counter - 1});
+                    }
+                }
+                case UPDATE -> {
+                    if (bookings.isEmpty()) {
+                        service.availability(date, guests);
+                        return;
+                    }
+                    int[] booking = bookings.get(random.nextInt(bookings.size()));
+                    if (service.update(booking[0], "Load" + id, phone(booking[1]), date, SCHEDULE.label(slot), guests, "")
+                            == ReservationService.NO_TABLE) {
+                        noTable.increment();
+                    }
+                }
+                case CANCEL -> {
+                    if (bookings.isEmpty()) {
+                        service.availability(date, guests);
+                        return;
+                    }
+                    int[] booking = bookings.remove(random.nextInt(bookings.size()));
+                    service.cancelByPhone(phone(booking[1]));
+                }
+                case WAITLIST -> {
+                    if (!waiting.isEmpty() && random.nextBoolean()) {
+                        service.leaveWaitlist(waiting.remove(waiting.size() - 1));
+                    } else {
+                        String phone = phone();
+                        service.joinWaitlist("Load" + id, phone, guests);
+                        waiting.add(phone);
+                    }
+                }
+            }
+        }
+
+        private String phone() {
+            return phone(counter++);
+        }
+
+        private String phone(int n) {
+            return String.format("%03d-%03d-%04d", id % 1_000, n / 10_000 % 1_000, n % 10_000);
+        }
+
+        //Friday and Saturday with probability skew, otherwise any day in range
+        private LocalDate pickDate(ThreadLocalRandom random) {
+            LocalDate date = LocalDate.now().plusDays(1 + random.nextInt(days));
+            if (random.nextDouble() < skew) {
+                while (date.getDayOfWeek() != DayOfWeek.FRIDAY && date.getDayOfWeek() != DayOfWeek.SATURDAY) {
+                    date = date.plusDays(1);
+                }
+                if (date.isAfter(LocalDate.now().plusDays(days))) {
+                    date = date.minusWeeks(1);
+                }
+            }
+            return date;
+        }
+
+        private int pickSlot(ThreadLocalRandom random) {
+            if (random.nextDouble() < skew) {
+                return EVENING + random.nextInt(SCHEDULE.count() - EVENING);
+            }
+            return random.nextInt(SCHEDULE.count());
+        }
+    }
+
+    /**
+     * Growable array of latencies in nanoseconds.
+     */
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        void sort() {
+            Arrays.sort(values, 0, size);
+        }
+
+        long percentile(double q) {
+            if (size == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(q * size) - 1;
+            return values[Math.max(0, Math.min(size - 1, index))];
+        }
+    }
+}
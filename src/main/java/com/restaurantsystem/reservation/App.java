@@ -1,10 +1,57 @@
 package com.restaurantsystem.reservation;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.SwingUtilities;
+
 /**
- * Hello world!
+ * Starts the booking HTTP API. Pass a port to listen on (default 8080, or the
+ * booking.port system property) and --with-gui to also open the Swing window
+ * on the same service. Opening hours come from the properties file named by
+ * booking.schedule, if set. booking.locations lists the restaurants served,
+ * each with its own database; the window opens on booking.location, or the
+ * first one.
  */
 public class App {
-    public static void main(String[] args) {
-        System.out.println("Hello World!");
+    private static final Logger LOG = LoggerFactory.getLogger(App.class);
+    private static final String DB_URL = "jdbc:sqlite:reservations.db";
+    private static final int POOL_SIZE = 8;
+
+    public static void main(String[] args) throws Exception {
+        int port = Integer.getInteger("booking.port", 8080);
+        boolean withGui = false;
+        for (String arg : args) {
+            if (arg.equals("--with-gui")) {
+                withGui = true;
+            } else {
+                port = Integer.parseInt(arg);
+            }
+        }
+
+        LocationRouter router = LocationRouter.configured(DB_URL, POOL_SIZE, ServiceSchedule.configured());
+        router.migrate();
+        for (String location : router.locations()) {
+            ReservationService service = router.service(location);
+            // Each shard's figures carry its location, so several open at once can be told apart
+            String scope = location.equals(LocationRouter.DEFAULT_LOCATION) ? "http" : "http-" + location;
+            service.metrics().registerMBeans(scope);
+            service.metrics().startLogging(scope, Long.getLong("metrics.period", 60));
+        }
+        BookingHttpServer server = new BookingHttpServer(router, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            for (String location : router.locations()) {
+                LOG.info("{}: {}", location, router.service(location).poolStats());
+            }
+            router.close();
+        }));
+        server.start();
+        LOG.info("Booking API for {} listening on port {}", router.locations(), server.port());
+
+        if (withGui) {
+            ReservationService service = router.service(LocationRouter.configuredLocation());
+            SwingUtilities.invokeLater(() -> new RestaurantReservationSystem(service));
+        }
     }
 }
@@ -0,0 +1,288 @@
+package com.restaurantsystem.reservation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory {@link SeatingPlan} per date. Dates are loaded lazily, kept in an
+ * LRU cache and updated in place as bookings are made, moved or cancelled, so
+ * answering "does a party of N fit at this slot" usually needs no database trip.
+ * A range of dates is loaded with one read for all the dates it is missing.
+ */
+public class AvailabilityIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(AvailabilityIndex.class);
+
+    private final int maxDates;
+    private final TableInventory inventory;
+    private final int slotCount;
+    private final int turnSlots;
+    private final Loader loader;
+    private final RangeLoader rangeLoader;
+    private final LinkedHashMap<LocalDate, SeatingPlan> days;
+    // Dates being loaded, with the writes made to them meanwhile; a load that raced with a write to its date is not cached
+    private final Map<LocalDate, Pending> pending = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public AvailabilityIndex(int maxDates, TableInventory inventory, int slotCount, int turnSlots, Loader loader) {
+        this(maxDates, inventory, slotCount, turnSlots, loader, (first, last) -> {
+            Map<LocalDate, List<Booking>> bookings = new HashMap<>();
+            for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+                bookings.put(date, loader.load(date));
+            }
+            return bookings;
+        });
+    }
+
+    public AvailabilityIndex(int maxDates, TableInventory inventory, int slotCount, int turnSlots, Loader loader,
+                             RangeLoader rangeLoader) {
+        this.maxDates = maxDates;
+        this.inventory = inventory;
+        this.slotCount = slotCount;
+        this.turnSlots = turnSlots;
+        this.loader = loader;
+        this.rangeLoader = rangeLoader;
+        this.days = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LocalDate, SeatingPlan> eldest) {
+                return size() > AvailabilityIndex.this.maxDates;
+            }
+        };
+    }
+
+    public TableInventory inventory() {
+        return inventory;
+    }
+
+    //Returns the slots a party fits in for a cached date, or null if the date is not loaded
+    public synchronized Long cachedAvailability(LocalDate date, int guests) {
+        SeatingPlan plan = days.get(date);
+        if (plan == null) {
+            return null;
+        }
+        hits.increment();
+        return plan.availableSlots(guests);
+    }
+
+    //Bitmask of the slots where a party of the given size can be seated
+    public long availability(LocalDate date, int guests) throws SQLException {
+        SeatingPlan plan = plan(date);
+        synchronized (this) {
+            return plan.availableSlots(guests);
+        }
+    }
+
+    //Availability bitmasks of every date from first to last, in order; the dates not cached are read together
+    public long[] availability(LocalDate first, LocalDate last, int guests) throws SQLException {
+        int count = (int) ChronoUnit.DAYS.between(first, last) + 1;
+        SeatingPlan[] plans = new SeatingPlan[count];
+        long[] epochs = new long[count];
+        int firstMissing = -1;
+        int lastMissing = -1;
+        synchronized (this) {
+            for (int day = 0; day < count; day++) {
+                plans[day] = days.get(first.plusDays(day));
+                if (plans[day] != null) {
+                    hits.increment();
+                } else {
+                    misses.increment();
+                    epochs[day] = startLoad(first.plusDays(day));
+                    firstMissing = firstMissing < 0 ? day : firstMissing;
+                    lastMissing = day;
+                }
+            }
+        }
+        if (firstMissing >= 0) {
+            Map<LocalDate, List<Booking>> loaded;
+            try {
+                loaded = rangeLoader.load(first.plusDays(firstMissing), first.plusDays(lastMissing));
+            } catch (SQLException | RuntimeException e) {
+                synchronized (this) {
+                    for (int day = firstMissing; day <= lastMissing; day++) {
+                        if (plans[day] == null) {
+                            finishLoad(first.plusDays(day), epochs[day]);
+                        }
+                    }
+                }
+                throw e;
+            }
+            synchronized (this) {
+                for (int day = firstMissing; day <= lastMissing; day++) {
+                    if (plans[day] != null) {
+                        continue;
+                    }
+                    LocalDate date = first.plusDays(day);
+                    boolean unchanged = finishLoad(date, epochs[day]);
+                    SeatingPlan existing = days.get(date);
+                    if (existing != null) {
+                        plans[day] = existing;
+                        continue;
+                    }
+                    plans[day] = newPlan(date, loaded.getOrDefault(date, List.of()));
+                    if (unchanged) {
+                        days.put(date, plans[day]);
+                    }
+                }
+            }
+        }
+        long[] available = new long[count];
+        synchronized (this) {
+            for (int day = 0; day < count; day++) {
+                available[day] = plans[day].availableSlots(guests);
+            }
+        }
+        return available;
+    }
+
+    public boolean fits(LocalDate date, int slot, int guests) throws SQLException {
+        SeatingPlan plan = plan(date);
+        synchronized (this) {
+            return plan.fits(slot, guests);
+        }
+    }
+
+    //Like fits(), but ignores the tables the reservation itself currently holds
+    public boolean fitsReplacing(LocalDate date, int reservationId, int slot, int guests) throws SQLException {
+        SeatingPlan plan = plan(date);
+        synchronized (this) {
+            return plan.fitsWithout(reservationId, slot, guests);
+        }
+    }
+
+    private SeatingPlan plan(LocalDate date) throws SQLException {
+        long epoch;
+        synchronized (this) {
+            SeatingPlan plan = days.get(date);
+            if (plan != null) {
+                hits.increment();
+                return plan;
+            }
+            misses.increment();
+            epoch = startLoad(date);
+        }
+        SeatingPlan loaded;
+        try {
+            loaded = newPlan(date, loader.load(date));
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                finishLoad(date, epoch);
+            }
+            throw e;
+        }
+        synchronized (this) {
+            boolean unchanged = finishLoad(date, epoch);
+            SeatingPlan existing = days.get(date);
+            if (existing != null) {
+                return existing;
+            }
+            if (unchanged) {
+                days.put(date, loaded);
+            }
+            return loaded;
+        }
+    }
+
+    //Registers a load of the date and returns the writes it has seen so far; callers hold the lock
+    private long startLoad(LocalDate date) {
+        Pending load = pending.computeIfAbsent(date, key -> new Pending());
+        load.loads++;
+        return load.writes;
+    }
+
+    //Ends a load of the date; true if nothing wrote to the date while it ran. Callers hold the lock
+    private boolean finishLoad(LocalDate date, long epoch) {
+        Pending load = pending.get(date);
+        boolean unchanged = load.writes == epoch;
+        if (--load.loads == 0) {
+            pending.remove(date);
+        }
+        return unchanged;
+    }
+
+    //Marks a write to the date, so loads of it already running are not cached; callers hold the lock
+    private void written(LocalDate date) {
+        Pending load = pending.get(date);
+        if (load != null) {
+            load.writes++;
+        }
+    }
+
+    private SeatingPlan newPlan(LocalDate date, List<Booking> bookings) {
+        SeatingPlan plan = new SeatingPlan(inventory, slotCount, turnSlots);
+        plan.seatAll(bookings);
+        if (plan.overflow() > 0) {
+            LOG.warn("{} bookings on {} do not fit the tables; the slots of their turns are treated as full",
+                    plan.overflow(), date);
+        }
+        return plan;
+    }
+
+    public synchronized void recordBooking(LocalDate date, int reservationId, int slot, int guests) {
+        written(date);
+        SeatingPlan plan = days.get(date);
+        if (plan != null) {
+            plan.seat(reservationId, slot, guests);
+        }
+    }
+
+    public synchronized void recordCancellation(LocalDate date, int reservationId) {
+        written(date);
+        SeatingPlan plan = days.get(date);
+        if (plan != null) {
+            plan.release(reservationId);
+        }
+    }
+
+    public synchronized void invalidate(LocalDate date) {
+        written(date);
+        days.remove(date);
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Loads of one date in flight and the writes made to it since the first began.
+     */
+    private static final class Pending {
+        int loads;
+        long writes;
+    }
+
+    /**
+     * One existing reservation as seen by the seating plan.
+     */
+    public record Booking(int reservationId, int slot, int guests) {
+    }
+
+    /**
+     * Reads the bookings of one date from the backing store, oldest first.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        List<Booking> load(LocalDate date) throws SQLException;
+    }
+
+    /**
+     * Reads the bookings of every date in an inclusive range at once, each
+     * date's oldest first. Dates without bookings may be left out.
+     */
+    @FunctionalInterface
+    public interface RangeLoader {
+        Map<LocalDate, List<Booking>> load(LocalDate first, LocalDate last) throws SQLException;
+    }
+}
@@ -0,0 +1,92 @@
+package com.restaurantsystem.reservation;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs database work away from the Swing event dispatch thread. Results come
+ * back as {@link CompletableFuture}s; chain UI updates with {@link #EDT} so they
+ * run through {@code SwingUtilities.invokeLater}.
+ */
+public class BackgroundExecutor implements AutoCloseable {
+    public static final Executor EDT = SwingUtilities::invokeLater;
+
+    private final ExecutorService executor;
+
+    public BackgroundExecutor(String name, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.executor = Executors.newFixedThreadPool(threads, factory);
+    }
+
+    //Queues a task; cancelling the returned future before it starts skips it entirely
+    public <T> CompletableFuture<T> submit(DbTask<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /*
+     * Queues a task to run once another future has completed normally, e.g.
+     * the database being migrated. Cancelling the returned future before the
+     * task starts skips it, even while it is still waiting; if the other
+     * future fails, so does the returned one and the task never runs.
+     */
+    public <T> CompletableFuture<T> submitAfter(CompletableFuture<?> first, DbTask<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        first.whenCompleteAsync((ignored, error) -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            try {
+                result.complete(task.call());
+            } catch (SQLException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }, executor);
+        return result;
+    }
+
+    public Executor executor() {
+        return executor;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A unit of database work that may throw {@link SQLException}.
+     */
+    @FunctionalInterface
+    public interface DbTask<T> {
+        T call() throws SQLException;
+    }
+}
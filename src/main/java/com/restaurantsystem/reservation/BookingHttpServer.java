@@ -0,0 +1,505 @@
+package com.restaurantsystem.reservation;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JSON-over-HTTP front end for {@link ReservationService}, served by the JDK's
+ * built-in HttpServer. Every response carries a Content-Length so clients can
+ * keep their connections alive between requests. A location query parameter
+ * picks the restaurant a call is for; without it calls go to the default one.
+ */
+public class BookingHttpServer implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(BookingHttpServer.class);
+    private static final int FALLBACK_THREADS = 64;
+
+    private final LocationRouter router;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public BookingHttpServer(ReservationService service, int port) throws IOException {
+        this(LocationRouter.single(service), port);
+    }
+
+    public BookingHttpServer(LocationRouter router, int port) throws IOException {
+        this.router = router;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = requestExecutor();
+        server.setExecutor(executor);
+
+        server.createContext("/availability", this::availability);
+        server.createContext("/availability/search", this::slotSearch);
+        server.createContext("/reservations", this::reservations);
+        server.createContext("/waitlist", this::waitlist);
+        HttpContext manager = server.createContext("/manager", this::manager);
+        manager.setAuthenticator(new ManagerAuthenticator(router));
+    }
+
+    //One virtual thread per request when the JDK has them, otherwise a fixed pool of daemon threads
+    static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(FALLBACK_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "http-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    //GET /availability?date=yyyy-MM-dd&guests=n
+    private void availability(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            requireMethod(exchange, "GET");
+            ReservationService service = service(exchange);
+            Map<String, String> query = query(exchange);
+            LocalDate date = parseDate(required(query, "date"));
+            int guests = parseInt(query.getOrDefault("guests", "2"), "guests");
+            long available = service.availability(date, guests);
+            List<String> times = new ArrayList<>();
+            ServiceSchedule schedule = service.schedule();
+            for (int slot = 0; slot < schedule.count(); slot++) {
+                if ((available & (1L << slot)) != 0) {
+                    times.add(schedule.label(slot));
+                }
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("date", date.toString());
+            body.put("guests", guests);
+            body.put("available", times);
+            return new Response(200, body);
+        });
+    }
+
+    //GET /availability/search?from=&to=&guests=&earliest=&latest=&time=&days=FRIDAY,SATURDAY&limit=
+    private void slotSearch(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            requireMethod(exchange, "GET");
+            ReservationService service = service(exchange);
+            ServiceSchedule schedule = service.schedule();
+            Map<String, String> query = query(exchange);
+            LocalDate from = query.containsKey("from") ? parseDate(query.get("from")) : LocalDate.now();
+            LocalDate to = query.containsKey("to") ? parseDate(query.get("to")) : from.plusDays(13);
+            int earliest = minute(schedule, query.getOrDefault("earliest", schedule.label(0)));
+            int latest = minute(schedule, query.getOrDefault("latest", schedule.label(schedule.count() - 1)));
+            int wanted = query.containsKey("time") ? minute(schedule, query.get("time")) : earliest;
+            Set<DayOfWeek> weekdays = EnumSet.noneOf(DayOfWeek.class);
+            for (String day : query.getOrDefault("days", "").split(",")) {
+                if (!day.isBlank()) {
+                    weekdays.add(DayOfWeek.valueOf(day.trim().toUpperCase(Locale.ROOT)));
+                }
+            }
+            SlotSearch search = new SlotSearch(parseInt(query.getOrDefault("guests", "2"), "guests"), from, to,
+                    earliest, latest, wanted, weekdays, parseInt(query.getOrDefault("limit", "5"), "limit"));
+            List<Map<String, Object>> slots = new ArrayList<>();
+            for (SlotSearch.Suggestion suggestion : service.suggestSlots(search)) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("date", suggestion.date().toString());
+                item.put("time", suggestion.time());
+                slots.add(item);
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("guests", search.guests());
+            body.put("from", from.toString());
+            body.put("to", to.toString());
+            body.put("slots", slots);
+            return new Response(200, body);
+        });
+    }
+
+    //Minute of day of a time on the schedule's grid
+    private static int minute(ServiceSchedule schedule, String time) {
+        int slot = schedule.indexOf(time);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Unknown reservation time: " + time);
+        }
+        return schedule.minuteOfDay(slot);
+    }
+
+    //POST /reservations, GET and DELETE /reservations?name=&phone=, PUT /reservations/{id}?name=&phone= with the current ones
+    private void reservations(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            String method = exchange.getRequestMethod();
+            ReservationService service = service(exchange);
+            Integer id = pathId(exchange, "/reservations");
+            if (id != null) {
+                requireMethod(exchange, "PUT");
+                Map<String, String> query = query(exchange);
+                // Ids are sequential, so only whoever the booking is under may change it
+                if (!service.holdsReservation(required(query, "name"), required(query, "phone"), id)) {
+                    return error(404, "No reservation " + id + " under that name and phone number");
+                }
+                Map<String, Object> body = Json.parseObject(readBody(exchange));
+                int rows = service.update(id, text(body, "name"), phone(body), parseDate(text(body, "date")),
+                        text(body, "time"), number(body, "guests"), optionalText(body, "specialRequests"));
+                if (rows == ReservationService.NO_TABLE) {
+                    return error(409, "No table is free for that party at that time");
+                }
+                if (rows == 0) {
+                    return error(404, "No reservation " + id);
+                }
+                return new Response(200, Map.of("id", id));
+            }
+            switch (method) {
+                case "POST": {
+                    Map<String, Object> body = Json.parseObject(readBody(exchange));
+                    int newId = service.reserve(text(body, "name"), phone(body), parseDate(text(body, "date")),
+                            text(body, "time"), number(body, "guests"), optionalText(body, "specialRequests"));
+                    if (newId == ReservationService.NO_TABLE) {
+                        return error(409, "No table is free for that party at that time");
+                    }
+                    return new Response(201, Map.of("id", newId));
+                }
+                case "GET": {
+                    Map<String, String> query = query(exchange);
+                    SearchResult result = service.search(required(query, "name"), required(query, "phone"));
+                    if (result.reservation() != null) {
+                        return new Response(200, reservationJson(result.reservation()));
+                    }
+                    if (result.waitlistPosition() != null) {
+                        return new Response(200, Map.of("waitlistPosition", result.waitlistPosition()));
+                    }
+                    return error(404, "No Reservation Found");
+                }
+                case "DELETE": {
+                    Map<String, String> query = query(exchange);
+                    int rows = service.cancel(required(query, "name"), required(query, "phone"));
+                    return new Response(200, Map.of("cancelled", rows));
+                }
+                default:
+                    throw new HttpError(405, "Method not allowed");
+            }
+        });
+    }
+
+    //POST /waitlist, GET /waitlist?id=n, DELETE /waitlist?phone=
+    private void waitlist(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            ReservationService service = service(exchange);
+            switch (exchange.getRequestMethod()) {
+                case "POST": {
+                    Map<String, Object> body = Json.parseObject(readBody(exchange));
+                    int id = service.joinWaitlist(text(body, "name"), phone(body), number(body, "guests"));
+                    Map<String, Object> result = new LinkedHashMap<>();
+                    result.put("id", id);
+                    result.put("position", service.waitlistPosition(id));
+                    return new Response(201, result);
+                }
+                case "GET": {
+                    int id = parseInt(required(query(exchange), "id"), "id");
+                    int position = service.waitlistPosition(id);
+                    if (position < 0) {
+                        return error(404, "Not on the waitlist");
+                    }
+                    return new Response(200, Map.of("id", id, "position", position));
+                }
+                case "DELETE": {
+                    int rows = service.leaveWaitlist(required(query(exchange), "phone"));
+                    return new Response(200, Map.of("removed", rows));
+                }
+                default:
+                    throw new HttpError(405, "Method not allowed");
+            }
+        });
+    }
+
+    //GET /manager/reservations and /manager/waitlist, behind basic authentication, for one location or all of them
+    private void manager(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            requireMethod(exchange, "GET");
+            String path = exchange.getRequestURI().getPath();
+            String location = query(exchange).get("location");
+            List<Object> items = new ArrayList<>();
+            if (path.equals("/manager/reservations")) {
+                List<LocationRouter.Located<Reservation>> rows = location == null ? router.listReservations()
+                        : located(location, router.service(location).listReservations());
+                for (LocationRouter.Located<Reservation> row : rows) {
+                    Map<String, Object> item = reservationJson(row.item());
+                    item.put("location", row.location());
+                    items.add(item);
+                }
+            } else if (path.equals("/manager/waitlist")) {
+                List<LocationRouter.Located<WaitlistEntry>> rows = location == null ? router.listWaitlist()
+                        : located(location, router.service(location).listWaitlist());
+                for (LocationRouter.Located<WaitlistEntry> row : rows) {
+                    WaitlistEntry entry = row.item();
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("id", entry.id());
+                    item.put("name", entry.name());
+                    item.put("phone", entry.phone());
+                    item.put("guests", entry.guests());
+                    item.put("position", entry.position());
+                    item.put("location", row.location());
+                    items.add(item);
+                }
+            } else {
+                throw new HttpError(404, "Not found");
+            }
+            return new Response(200, items);
+        });
+    }
+
+    /**
+     * Basic authentication for the manager listings, checked against the
+     * location the request names: a manager of one location cannot read
+     * another's, and listings across all of them need a login every location
+     * accepts.
+     */
+    private static final class ManagerAuthenticator extends Authenticator {
+        private static final String REALM = "manager";
+
+        private final LocationRouter router;
+
+        ManagerAuthenticator(LocationRouter router) {
+            this.router = router;
+        }
+
+        @Override
+        public Result authenticate(HttpExchange exchange) {
+            String header = exchange.getRequestHeaders().getFirst("Authorization");
+            if (header == null || !header.regionMatches(true, 0, "Basic ", 0, 6)) {
+                return challenge(exchange);
+            }
+            String credentials;
+            try {
+                credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                return challenge(exchange);
+            }
+            int colon = credentials.indexOf(':');
+            if (colon < 0) {
+                return challenge(exchange);
+            }
+            String username = credentials.substring(0, colon);
+            try {
+                if (router.authenticateManager(query(exchange).get("location"), username, credentials.substring(colon + 1))) {
+                    return new Success(new HttpPrincipal(username, REALM));
+                }
+            } catch (IllegalArgumentException e) {
+                return new Failure(400);
+            } catch (SQLException e) {
+                LOG.warn("Manager authentication failed", e);
+            }
+            return challenge(exchange);
+        }
+
+        private static Result challenge(HttpExchange exchange) {
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"" + REALM + "\"");
+            return new Retry(401);
+        }
+    }
+
+    private static <T> List<LocationRouter.Located<T>> located(String location, List<T> rows) {
+        List<LocationRouter.Located<T>> tagged = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            tagged.add(new LocationRouter.Located<>(location, row));
+        }
+        return tagged;
+    }
+
+    //The shard named by the location query parameter
+    private ReservationService service(HttpExchange exchange) {
+        return router.service(query(exchange).get("location"));
+    }
+
+    private static Map<String, Object> reservationJson(Reservation reservation) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("id", reservation.id());
+        item.put("name", reservation.name());
+        item.put("phone", reservation.phone());
+        item.put("date", reservation.date());
+        item.put("time", reservation.time());
+        item.put("guests", reservation.guests());
+        item.put("specialRequests", reservation.specialRequests());
+        return item;
+    }
+
+    private record Response(int status, Object body) {
+    }
+
+    //An error that maps straight onto an HTTP status
+    private static class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Response handle() throws IOException, SQLException;
+    }
+
+    //Runs a handler and writes its result, turning failures into JSON error responses
+    private static void handle(HttpExchange exchange, Handler handler) throws IOException {
+        Response response;
+        try {
+            response = handler.handle();
+        } catch (HttpError e) {
+            response = error(e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            response = error(400, e.getMessage());
+        } catch (SQLTransientException e) {
+            // The write queue is full; the client should back off and retry
+            LOG.warn("{} {} rejected: {}", exchange.getRequestMethod(), exchange.getRequestURI().getPath(), e.getMessage());
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            response = error(503, e.getMessage());
+        } catch (SQLException e) {
+            LOG.error("{} {} failed", exchange.getRequestMethod(), exchange.getRequestURI().getPath(), e);
+            response = error(500, "Database error");
+        } catch (RuntimeException e) {
+            // Still answer, or the client waits for a response that never comes
+            LOG.error("{} {} failed", exchange.getRequestMethod(), exchange.getRequestURI().getPath(), e);
+            response = error(500, "Internal error");
+        }
+        byte[] bytes = Json.write(response.body()).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status(), bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, Map.of("error", message));
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new HttpError(405, "Method not allowed");
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    //Numeric id after a context path, e.g. /reservations/42, or null for the bare path
+    private static Integer pathId(HttpExchange exchange, String context) {
+        String path = exchange.getRequestURI().getPath();
+        if (path.length() <= context.length() + 1) {
+            return null;
+        }
+        return parseInt(path.substring(context.length() + 1), "id");
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static String text(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (!(value instanceof String s) || s.isEmpty()) {
+            throw new IllegalArgumentException("Missing field: " + field);
+        }
+        return s;
+    }
+
+    private static String optionalText(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        return value == null ? "" : value.toString();
+    }
+
+    private static String phone(Map<String, Object> body) {
+        String phone = text(body, "phone");
+        if (!ReservationService.isValidPhoneNumber(phone)) {
+            throw new IllegalArgumentException("Please enter a valid phone number (e.g., 123-456-7890).");
+        }
+        return phone;
+    }
+
+    private static int number(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (value instanceof Long l && l > 0 && l <= Integer.MAX_VALUE) {
+            return l.intValue();
+        }
+        throw new IllegalArgumentException("Field must be a positive whole number: " + field);
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + name);
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Dates must be yyyy-MM-dd");
+        }
+    }
+}
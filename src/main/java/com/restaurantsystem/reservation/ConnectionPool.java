@@ -0,0 +1,172 @@
+package com.restaurantsystem.reservation;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of long-lived SQLite connections. Connections are opened lazily,
+ * tuned once (WAL, synchronous=NORMAL, mmap, busy_timeout) and then handed out
+ * again and again, each one keeping its own cache of compiled statements.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final long ACQUIRE_TIMEOUT_MS = 10_000;
+
+    private final String url;
+    private final int maxSize;
+    private final int statementCacheSize;
+    private final BlockingQueue<PooledConnection> idle;
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+    private final LongAdder acquires = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LatencyHistogram acquireLatency = new LatencyHistogram();
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, int maxSize) {
+        this(url, maxSize, 32);
+    }
+
+    public ConnectionPool(String url, int maxSize, int statementCacheSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.url = url;
+        this.maxSize = maxSize;
+        this.statementCacheSize = statementCacheSize;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    //Borrows a connection, opening a new one while the pool is below its limit
+    public PooledConnection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        acquires.increment();
+        long start = System.nanoTime();
+        PooledConnection conn = idle.poll();
+        if (conn == null) {
+            conn = openIfBelowLimit();
+        }
+        if (conn == null) {
+            waits.increment();
+            try {
+                conn = idle.poll(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            if (conn == null) {
+                throw new SQLException("Timed out waiting for a database connection");
+            }
+        }
+        int busy = inUse.incrementAndGet();
+        peakInUse.accumulateAndGet(busy, Math::max);
+        acquireLatency.record(System.nanoTime() - start);
+        return conn;
+    }
+
+    //Time callers spent in acquire(), including opening new connections and waiting
+    public LatencyHistogram acquireLatency() {
+        return acquireLatency;
+    }
+
+    private PooledConnection openIfBelowLimit() throws SQLException {
+        while (true) {
+            int current = created.get();
+            if (current >= maxSize) {
+                return null;
+            }
+            if (created.compareAndSet(current, current + 1)) {
+                try {
+                    return new PooledConnection(this, open(), statementCacheSize);
+                } catch (SQLException e) {
+                    created.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    //Opens and tunes a physical connection
+    private Connection open() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA journal_mode=WAL");
+            stmt.execute("PRAGMA synchronous=NORMAL");
+            stmt.execute("PRAGMA busy_timeout=5000");
+            stmt.execute("PRAGMA foreign_keys=ON");
+            stmt.execute("PRAGMA mmap_size=268435456");
+            stmt.execute("PRAGMA temp_store=MEMORY");
+            stmt.execute("PRAGMA cache_size=-8000");
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    //Called by PooledConnection.close()
+    void release(PooledConnection conn, boolean broken) {
+        inUse.decrementAndGet();
+        if (broken || closed || !idle.offer(conn)) {
+            created.decrementAndGet();
+            conn.closePhysical();
+        }
+    }
+
+    void recordStatementHit() {
+        statementHits.increment();
+    }
+
+    void recordStatementMiss() {
+        statementMisses.increment();
+    }
+
+    public PoolStats stats() {
+        return new PoolStats(maxSize, created.get(), inUse.get(), peakInUse.get(),
+                acquires.sum(), waits.sum(), statementHits.sum(), statementMisses.sum());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection conn;
+        while ((conn = idle.poll()) != null) {
+            created.decrementAndGet();
+            conn.closePhysical();
+        }
+    }
+
+    /**
+     * Point-in-time snapshot of pool usage and statement cache effectiveness.
+     */
+    public record PoolStats(int maxSize, int open, int inUse, int peakInUse,
+                            long acquires, long waits, long statementHits, long statementMisses) {
+
+        public double statementHitRate() {
+            long total = statementHits + statementMisses;
+            return total == 0 ? 0.0 : (double) statementHits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("pool open=%d/%d inUse=%d peak=%d acquires=%d waits=%d stmtHits=%d stmtMisses=%d hitRate=%.1f%%",
+                    open, maxSize, inUse, peakInUse, acquires, waits, statementHits, statementMisses,
+                    statementHitRate() * 100);
+        }
+    }
+}
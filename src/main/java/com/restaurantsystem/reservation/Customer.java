@@ -0,0 +1,11 @@
+package com.restaurantsystem.reservation;
+
+/**
+ * A guest's profile, keyed by their phone number; bookings counts every
+ * reservation they have made, so a repeat guest is known from one key lookup.
+ */
+public record Customer(long id, String name, int bookings) {
+    public String phone() {
+        return PhoneKey.format(id);
+    }
+}
@@ -0,0 +1,201 @@
+package com.restaurantsystem.reservation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects stalls of the Swing event dispatch thread. A daemon thread posts a
+ * heartbeat onto the event queue every quarter of the threshold; when one has
+ * waited longer than the threshold the EDT's stack is captured, and once the
+ * heartbeat finally runs the stall is kept in a ring buffer with how long the
+ * EDT was blocked. The cost while nothing stalls is one queued no-op per tick.
+ */
+public class EdtWatchdog implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(EdtWatchdog.class);
+    private static final String APP_PACKAGE = EdtWatchdog.class.getPackageName() + ".";
+
+    private final long thresholdNanos;
+    private final Stall[] ring;
+    private final Runnable beat = this::beat;
+    private ScheduledExecutorService ticker;
+    private int next;
+    private int size;
+
+    private volatile Thread edt;
+    private volatile boolean pending;
+    private volatile long postedAt;
+    private Stall open;
+
+    public EdtWatchdog(long thresholdMillis, int capacity) {
+        if (thresholdMillis <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Threshold and capacity must be positive");
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.ring = new Stall[capacity];
+    }
+
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "edt-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, thresholdNanos / 4);
+        ticker.scheduleAtFixedRate(this::tick, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    //Posts a heartbeat, or captures the EDT if the last one has been waiting too long
+    private void tick() {
+        if (!pending) {
+            postedAt = System.nanoTime();
+            pending = true;
+            SwingUtilities.invokeLater(beat);
+            return;
+        }
+        long posted = postedAt;
+        long blocked = System.nanoTime() - posted;
+        if (blocked >= thresholdNanos) {
+            capture(posted, blocked);
+        }
+    }
+
+    private void beat() {
+        edt = Thread.currentThread();
+        long blocked = System.nanoTime() - postedAt;
+        pending = false;
+        finish(blocked);
+    }
+
+    private synchronized void capture(long posted, long blockedNanos) {
+        if (open != null || !pending || postedAt != posted) {
+            return;
+        }
+        Thread thread = edt;
+        StackTraceElement[] stack = thread == null ? new StackTraceElement[0] : thread.getStackTrace();
+        long blockedMillis = TimeUnit.NANOSECONDS.toMillis(blockedNanos);
+        open = new Stall(Instant.now().minusMillis(blockedMillis), blockedMillis, true,
+                listener(stack), blockedIn(stack), thread == null ? null : thread.getState(), List.of(stack));
+        add(open);
+        LOG.warn("Event dispatch thread blocked for {} ms in {}", blockedMillis, open.blockedIn());
+    }
+
+    private synchronized void finish(long blockedNanos) {
+        if (open == null) {
+            return;
+        }
+        long blockedMillis = TimeUnit.NANOSECONDS.toMillis(blockedNanos);
+        Stall done = new Stall(open.startedAt(), blockedMillis, false,
+                open.listener(), open.blockedIn(), open.state(), open.stack());
+        for (int i = 0; i < ring.length; i++) {
+            if (ring[i] == open) {
+                ring[i] = done;
+            }
+        }
+        open = null;
+        LOG.warn("Event dispatch thread stall ended after {} ms, started by {}", blockedMillis, done.listener());
+    }
+
+    private void add(Stall stall) {
+        ring[next] = stall;
+        next = (next + 1) % ring.length;
+        size = Math.min(size + 1, ring.length);
+    }
+
+    //Recent stalls, oldest first; one still in progress is marked ongoing
+    public synchronized List<Stall> stalls() {
+        List<Stall> stalls = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            stalls.add(ring[(next - size + i + ring.length) % ring.length]);
+        }
+        return stalls;
+    }
+
+    //Writes every recorded stall with its stack, e.g. for attaching to a bug report
+    public void export(Path file) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (Stall stall : stalls()) {
+            text.append(stall.describe(true)).append(System.lineSeparator());
+        }
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    //The outermost application frame: the listener Swing called into
+    private static String listener(StackTraceElement[] stack) {
+        for (int i = stack.length - 1; i >= 0; i--) {
+            if (isApplication(stack[i])) {
+                return frame(stack[i]);
+            }
+        }
+        return stack.length == 0 ? "unknown" : frame(stack[stack.length - 1]);
+    }
+
+    //The innermost application frame: the method that was actually waiting
+    private static String blockedIn(StackTraceElement[] stack) {
+        for (StackTraceElement element : stack) {
+            if (isApplication(element)) {
+                return frame(element);
+            }
+        }
+        return stack.length == 0 ? "unknown" : frame(stack[0]);
+    }
+
+    private static boolean isApplication(StackTraceElement element) {
+        String className = element.getClassName();
+        return className.startsWith(APP_PACKAGE) && !className.contains("$$Lambda")
+                && !className.equals(EdtWatchdog.class.getName());
+    }
+
+    private static String frame(StackTraceElement element) {
+        String className = element.getClassName();
+        return className.substring(className.lastIndexOf('.') + 1) + "." + element.getMethodName()
+                + "(" + element.getFileName() + ":" + element.getLineNumber() + ")";
+    }
+
+    /**
+     * One stall of the event dispatch thread, with the stack captured when it
+     * crossed the threshold.
+     */
+    public record Stall(Instant startedAt, long blockedMillis, boolean ongoing, String listener,
+                        String blockedIn, Thread.State state, List<StackTraceElement> stack) {
+
+        public String describe(boolean withStack) {
+            StringBuilder text = new StringBuilder();
+            text.append(startedAt).append("  blocked ").append(blockedMillis).append(" ms")
+                    .append(ongoing ? " so far" : "")
+                    .append(" in ").append(blockedIn)
+                    .append(" from ").append(listener);
+            if (state != null) {
+                text.append(" [").append(state).append(']');
+            }
+            if (withStack) {
+                for (StackTraceElement element : stack) {
+                    text.append(System.lineSeparator()).append("    at ").append(element);
+                }
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.restaurantsystem.reservation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, checksummed log of {@link ReservationEvent}s in memory-mapped
+ * segment files. Each record is
+ * <pre>
+ *   int length | int crc32 | long seq | byte type | payload
+ * </pre>
+ * where the checksum covers seq, type and payload. Segments are preallocated,
+ * so the first zero length marks the end; a record that fails its checksum at
+ * the tail is a torn write and is cut off on recovery. Appends only copy into
+ * the mapping; {@link #sync} forces it to disk, and callers that sync at the
+ * same time share one force. Only one process may have a log open.
+ */
+public class EventLog implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(EventLog.class);
+    private static final int HEADER = 4 + 4 + 8 + 1;
+    private static final String PREFIX = "events-";
+    private static final String SUFFIX = ".log";
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long lastSeq;
+    private volatile long durableSeq;
+
+    public EventLog(Path dir, int segmentBytes) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.segmentBytes = segmentBytes;
+        this.lockChannel = FileChannel.open(dir.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock held;
+        try {
+            held = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Already open in this process
+            held = null;
+        }
+        this.lock = held;
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Event log " + dir + " is in use by another process");
+        }
+    }
+
+    /**
+     * Reads every event after the given sequence number, in order, and leaves
+     * the log positioned to append after the last valid one. Must be called
+     * once before the first append.
+     */
+    public synchronized void recover(long afterSeq, Replay replay) throws IOException {
+        List<Long> starts = segmentStarts();
+        lastSeq = afterSeq;
+        if (starts.isEmpty()) {
+            openSegment(afterSeq + 1);
+            durableSeq = lastSeq;
+            return;
+        }
+        // Segments wholly before the snapshot do not need reading
+        int first = 0;
+        for (int i = 0; i < starts.size(); i++) {
+            if (starts.get(i) <= afterSeq + 1) {
+                first = i;
+            }
+        }
+        lastSeq = starts.get(first) - 1;
+        for (int i = first; i < starts.size(); i++) {
+            boolean tail = i == starts.size() - 1;
+            try (FileChannel file = FileChannel.open(segmentPath(starts.get(i)), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(file.size(), segmentBytes));
+                int end = scan(buffer, afterSeq, replay, tail);
+                if (tail) {
+                    channel = FileChannel.open(segmentPath(starts.get(i)), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    segment = buffer;
+                    segment.position(end);
+                }
+            }
+        }
+        if (lastSeq < afterSeq) {
+            // The snapshot is newer than anything left in the log
+            channel.close();
+            lastSeq = afterSeq;
+            openSegment(afterSeq + 1);
+        }
+        durableSeq = lastSeq;
+    }
+
+    //Replays the valid records of one segment and returns where the next record goes
+    private int scan(MappedByteBuffer buffer, long afterSeq, Replay replay, boolean tail) throws IOException {
+        int position = 0;
+        CRC32 crc = new CRC32();
+        while (position + HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            boolean fits = length > 0 && position + HEADER + length <= buffer.capacity();
+            long seq = fits ? buffer.getLong(position + 8) : -1;
+            if (fits) {
+                crc.reset();
+                crc.update(buffer.slice(position + 8, 9 + length));
+            }
+            if (!fits || (int) crc.getValue() != buffer.getInt(position + 4) || seq != lastSeq + 1) {
+                if (!tail) {
+                    throw new IOException("Event log is damaged before its last segment, at seq " + (lastSeq + 1));
+                }
+                LOG.warn("Discarding a torn write at the end of the event log after seq {}", lastSeq);
+                for (int i = position; i < buffer.capacity(); i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                buffer.force();
+                break;
+            }
+            if (seq > afterSeq) {
+                byte[] payload = new byte[length];
+                buffer.get(position + HEADER, payload);
+                replay.apply(seq, ReservationEvent.read(buffer.get(position + 16), new DataInputStream(new ByteArrayInputStream(payload))));
+            }
+            lastSeq = seq;
+            position += HEADER + length;
+        }
+        return position;
+    }
+
+    //Writes an event into the mapping and returns its sequence number; it is durable after sync()
+    public synchronized long append(ReservationEvent event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        event.write(new DataOutputStream(bytes));
+        byte[] payload = bytes.toByteArray();
+        if (HEADER + payload.length > segmentBytes) {
+            throw new IOException("Event of " + payload.length + " bytes does not fit in a log segment");
+        }
+        if (segment.remaining() < HEADER + payload.length) {
+            roll();
+        }
+        long seq = lastSeq + 1;
+        ByteBuffer body = ByteBuffer.allocate(9 + payload.length).putLong(seq).put(event.type()).put(payload).flip();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        // Write the length last so a reader never sees a complete header over a partial body
+        int start = segment.position();
+        segment.position(start + 4);
+        segment.putInt((int) crc.getValue());
+        segment.put(body);
+        segment.putInt(start, payload.length);
+        lastSeq = seq;
+        return seq;
+    }
+
+    //Forces everything appended up to seq to disk; concurrent callers share one force
+    public void sync(long seq) throws IOException {
+        if (durableSeq >= seq) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durableSeq >= seq) {
+                return;
+            }
+            MappedByteBuffer current;
+            long target;
+            synchronized (this) {
+                current = segment;
+                target = lastSeq;
+            }
+            current.force();
+            durableSeq = target;
+        }
+    }
+
+    //Starts a new segment at the next sequence number, e.g. right after a snapshot
+    public synchronized void roll() throws IOException {
+        segment.force();
+        durableSeq = lastSeq;
+        channel.close();
+        openSegment(lastSeq + 1);
+    }
+
+    //Deletes segments holding nothing after the given sequence number
+    public synchronized void deleteThrough(long seq) throws IOException {
+        List<Long> starts = segmentStarts();
+        for (int i = 0; i + 1 < starts.size(); i++) {
+            if (starts.get(i + 1) <= seq + 1) {
+                Files.deleteIfExists(segmentPath(starts.get(i)));
+            }
+        }
+    }
+
+    //Sequence number of the oldest event still on disk
+    public synchronized long firstSeq() throws IOException {
+        List<Long> starts = segmentStarts();
+        return starts.isEmpty() ? lastSeq + 1 : starts.get(0);
+    }
+
+    public synchronized long lastSeq() {
+        return lastSeq;
+    }
+
+    //Replays retained events after a sequence number without touching the append position
+    public void read(long afterSeq, Replay replay) throws IOException {
+        List<Long> starts;
+        long last;
+        synchronized (this) {
+            starts = segmentStarts();
+            last = lastSeq;
+        }
+        for (int i = 0; i < starts.size(); i++) {
+            if (i + 1 < starts.size() && starts.get(i + 1) <= afterSeq + 1) {
+                continue;
+            }
+            try (FileChannel file = FileChannel.open(segmentPath(starts.get(i)), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+                int position = 0;
+                while (position + HEADER <= buffer.capacity()) {
+                    int length = buffer.getInt(position);
+                    long seq = length == 0 ? 0 : buffer.getLong(position + 8);
+                    if (length == 0 || seq > last) {
+                        break;
+                    }
+                    if (seq > afterSeq) {
+                        byte[] payload = new byte[length];
+                        buffer.get(position + HEADER, payload);
+                        replay.apply(seq, ReservationEvent.read(buffer.get(position + 16), new DataInputStream(new ByteArrayInputStream(payload))));
+                    }
+                    position += HEADER + length;
+                }
+            }
+        }
+    }
+
+    private void openSegment(long firstSeq) throws IOException {
+        channel = FileChannel.open(segmentPath(firstSeq), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+    }
+
+    private Path segmentPath(long firstSeq) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, firstSeq, SUFFIX));
+    }
+
+    private List<Long> segmentStarts() throws IOException {
+        List<Long> starts = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> starts.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()))));
+        }
+        starts.sort(null);
+        return starts;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (segment != null) {
+                segment.force();
+                channel.close();
+            }
+        } finally {
+            lock.release();
+            lockChannel.close();
+        }
+    }
+
+    /**
+     * Receives events during recovery and reads.
+     */
+    @FunctionalInterface
+    public interface Replay {
+        void apply(long seq, ReservationEvent event) throws IOException;
+    }
+}
@@ -0,0 +1,419 @@
+package com.restaurantsystem.reservation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import com.restaurantsystem.reservation.ReservationEvent.Booking;
+import com.restaurantsystem.reservation.ReservationEvent.WaitlistJoined;
+
+/**
+ * Bookings kept in memory and made durable by an {@link EventLog} instead of
+ * SQL writes. Every change is appended to the log and forced to disk, then
+ * applied to the in-memory state (an {@link InMemoryRepository}, which readers
+ * query without the store's lock) and handed to a subscriber such as the
+ * {@link SqlProjector}, so nothing reads a change before it is durable. Every
+ * {@code snapshotEvery} events the whole state is written to a checksummed
+ * snapshot and the log moves to a new segment, so startup reads one snapshot
+ * and replays at most that many events.
+ * A new store starts from a seed, normally what the SQLite tables hold.
+ */
+public class EventStore implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(EventStore.class);
+    // Version 1 snapshots have no customers
+    private static final int SNAPSHOT_V1 = 0x52455631;
+    private static final int SNAPSHOT_MAGIC = 0x52455632;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+
+    private final Path dir;
+    private final EventLog log;
+    private final int snapshotEvery;
+    private final InMemoryRepository view;
+    private int nextReservationId = 1;
+    private int nextWaitlistId = 1;
+    private long appliedSeq;
+    private long snapshotSeq;
+    private int sinceSnapshot;
+    // Log segments are kept until the subscriber has seen them too
+    private volatile long projectedSeq = Long.MAX_VALUE;
+    private EventLog.Replay subscriber;
+    // The write that stopped the store, if one failed
+    private Exception failure;
+
+    private EventStore(Path dir, EventLog log, int snapshotEvery, ServiceSchedule schedule) {
+        this.dir = dir;
+        this.log = log;
+        this.snapshotEvery = snapshotEvery;
+        this.view = new InMemoryRepository(schedule);
+    }
+
+    //Recovers the store in a directory from its latest snapshot and the log after it, seeding a new one
+    public static EventStore open(Path dir, int segmentBytes, int snapshotEvery, ServiceSchedule schedule, Seed seed)
+            throws IOException, SQLException {
+        EventLog log = new EventLog(dir, segmentBytes);
+        try {
+            EventStore store = new EventStore(dir, log, snapshotEvery, schedule);
+            long start = System.nanoTime();
+            if (!store.readLatestSnapshot() && store.isEmptyDirectory()) {
+                store.load(seed.load());
+                store.writeSnapshot();
+            }
+            int[] replayed = new int[1];
+            log.recover(store.snapshotSeq, (seq, event) -> {
+                store.apply(seq, event);
+                replayed[0]++;
+            });
+            store.sinceSnapshot = replayed[0];
+            LOG.info("Recovered {} reservations and {} waitlist entries from snapshot {} and {} logged events in {} ms",
+                    store.view.reservations().size(), store.view.waitlist().size(), store.snapshotSeq, replayed[0],
+                    (System.nanoTime() - start) / 1_000_000);
+            return store;
+        } catch (IOException | SQLException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    //Receives every event once it is durable and applied, in order, while the store is locked
+    public synchronized void subscribe(EventLog.Replay subscriber) {
+        this.subscriber = subscriber;
+    }
+
+    public synchronized int reserve(String name, long customer, LocalDate date, String time, int guests, String specialRequests)
+            throws IOException {
+        int id = nextReservationId;
+        commit(List.of(new ReservationEvent.Reserved(new Booking(id, name, customer, date, time, guests, specialRequests))));
+        return id;
+    }
+
+    //Replaces a reservation and returns it as it was, or null if there is no such reservation
+    public synchronized Booking update(int id, String name, long customer, LocalDate date, String time, int guests,
+                                       String specialRequests) throws IOException {
+        Booking previous = view.booking(id);
+        if (previous == null) {
+            return null;
+        }
+        commit(List.of(new ReservationEvent.Updated(new Booking(id, name, customer, date, time, guests, specialRequests))));
+        return previous;
+    }
+
+    //Cancels a customer's reservations, only those under one name unless it is null, and returns them
+    public synchronized List<Booking> cancel(long customer, String name) throws IOException {
+        List<Booking> cancelled = new ArrayList<>();
+        List<ReservationEvent> events = new ArrayList<>();
+        for (Booking booking : view.reservationsOf(customer)) {
+            if (name == null || booking.name().equals(name)) {
+                events.add(new ReservationEvent.Cancelled(booking.id()));
+                cancelled.add(booking);
+            }
+        }
+        commit(events);
+        return cancelled;
+    }
+
+    public synchronized int joinWaitlist(String name, long customer, int guests) throws IOException {
+        int id = nextWaitlistId;
+        commit(List.of(new WaitlistJoined(id, name, customer, guests)));
+        return id;
+    }
+
+    //Removes a customer from the waitlist and returns the entries removed
+    public synchronized List<Integer> leaveWaitlist(long customer) throws IOException {
+        List<Integer> removed = new ArrayList<>();
+        List<ReservationEvent> events = new ArrayList<>();
+        for (WaitlistJoined entry : view.waitlistOf(customer)) {
+            events.add(new ReservationEvent.WaitlistLeft(entry.id()));
+            removed.add(entry.id());
+        }
+        commit(events);
+        return removed;
+    }
+
+    //The current state for reading; it is never changed except through this store
+    public InMemoryRepository view() {
+        return view;
+    }
+
+    //A copy of everything, for rebuilding a projection from scratch
+    public synchronized State state() {
+        return new State(appliedSeq, nextReservationId, nextWaitlistId, new ArrayList<>(view.reservations()),
+                new ArrayList<>(view.waitlist()), new ArrayList<>(view.customers()));
+    }
+
+    public synchronized long lastSeq() {
+        return appliedSeq;
+    }
+
+    //Oldest event still in the log; a projection behind it has to be rebuilt from state()
+    public long firstLoggedSeq() throws IOException {
+        return log.firstSeq();
+    }
+
+    public void readLog(long afterSeq, EventLog.Replay replay) throws IOException {
+        log.read(afterSeq, replay);
+    }
+
+    //Called by the subscriber once it has stored everything up to seq
+    public void projected(long seq) {
+        projectedSeq = seq;
+    }
+
+    /*
+     * Appends the events and forces them to disk before anything sees them, so
+     * a reader never finds a change a crash could lose. If the log cannot take
+     * them, whether they reached the disk is unknown and memory can no longer
+     * be trusted to match the log, so the store refuses every later change; a
+     * reopen recovers whatever the log holds.
+     */
+    private void commit(List<ReservationEvent> events) throws IOException {
+        if (failure != null) {
+            throw new IOException("The event store stopped after a failed write", failure);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        long[] seqs = new long[events.size()];
+        try {
+            for (int i = 0; i < seqs.length; i++) {
+                seqs[i] = log.append(events.get(i));
+            }
+            log.sync(seqs[seqs.length - 1]);
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            LOG.error("Event log write failed; the store takes no more changes until it is reopened", e);
+            throw e;
+        }
+        for (int i = 0; i < seqs.length; i++) {
+            apply(seqs[i], events.get(i));
+            if (subscriber != null) {
+                subscriber.apply(seqs[i], events.get(i));
+            }
+        }
+        sinceSnapshot += seqs.length;
+        if (sinceSnapshot >= snapshotEvery) {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                // The events are already durable in the log; the next change tries again
+                LOG.warn("Snapshot at seq {} failed", appliedSeq, e);
+            }
+        }
+    }
+
+    private void apply(long seq, ReservationEvent event) {
+        if (event instanceof ReservationEvent.Reserved reserved) {
+            add(reserved.booking(), true);
+        } else if (event instanceof ReservationEvent.Updated updated) {
+            if (view.replace(updated.booking()) == null) {
+                add(updated.booking(), false);
+            }
+        } else if (event instanceof ReservationEvent.Cancelled cancelled) {
+            view.remove(cancelled.id());
+        } else if (event instanceof WaitlistJoined joined) {
+            view.putWaitlist(joined);
+            nextWaitlistId = Math.max(nextWaitlistId, joined.id() + 1);
+        } else if (event instanceof ReservationEvent.WaitlistLeft left) {
+            view.removeWaitlist(left.id());
+        }
+        appliedSeq = seq;
+    }
+
+    private void add(Booking booking, boolean countBooking) {
+        view.put(booking, countBooking);
+        nextReservationId = Math.max(nextReservationId, booking.id() + 1);
+    }
+
+    private void load(State state) {
+        // Without saved customers, count the bookings that are still there
+        boolean counted = state.customers() == null;
+        for (Booking booking : state.reservations()) {
+            add(booking, counted);
+        }
+        for (WaitlistJoined entry : state.waitlist()) {
+            view.putWaitlist(entry);
+            nextWaitlistId = Math.max(nextWaitlistId, entry.id() + 1);
+        }
+        if (!counted) {
+            for (Customer customer : state.customers()) {
+                view.putCustomer(customer);
+            }
+        }
+        // Ids are never reused, even those of rows that are gone
+        nextReservationId = Math.max(nextReservationId, state.nextReservationId());
+        nextWaitlistId = Math.max(nextWaitlistId, state.nextWaitlistId());
+        appliedSeq = state.seq();
+        snapshotSeq = state.seq();
+    }
+
+    //Writes a snapshot, then starts a new log segment and drops what the snapshot covers
+    private void snapshot() throws IOException {
+        long start = System.nanoTime();
+        writeSnapshot();
+        log.roll();
+        for (long older : snapshotSeqs()) {
+            if (older < snapshotSeq) {
+                Files.deleteIfExists(snapshotPath(older));
+            }
+        }
+        log.deleteThrough(Math.min(snapshotSeq, projectedSeq));
+        LOG.debug("Snapshot at seq {} written in {} ms", snapshotSeq, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    //Writes the whole state to a checksummed file, replacing it atomically
+    private void writeSnapshot() throws IOException {
+        Path target = snapshotPath(appliedSeq);
+        Path partial = dir.resolve(target.getFileName() + ".partial");
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            BufferedOutputStream file = new BufferedOutputStream(Channels.newOutputStream(channel));
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(file, crc));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(appliedSeq);
+            out.writeInt(nextReservationId);
+            out.writeInt(nextWaitlistId);
+            // Copied first: the count written must match the records that follow
+            List<Booking> bookings = new ArrayList<>(view.reservations());
+            out.writeInt(bookings.size());
+            for (Booking booking : bookings) {
+                booking.write(out);
+            }
+            List<WaitlistJoined> entries = new ArrayList<>(view.waitlist());
+            out.writeInt(entries.size());
+            for (WaitlistJoined entry : entries) {
+                entry.write(out);
+            }
+            List<Customer> customers = new ArrayList<>(view.customers());
+            out.writeInt(customers.size());
+            for (Customer customer : customers) {
+                out.writeLong(customer.id());
+                out.writeUTF(customer.name());
+                out.writeInt(customer.bookings());
+            }
+            out.flush();
+            // The checksum trailer goes straight to the file, outside what it covers
+            new DataOutputStream(file).writeLong(crc.getValue());
+            file.flush();
+            channel.force(true);
+        }
+        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        snapshotSeq = appliedSeq;
+        sinceSnapshot = 0;
+    }
+
+    //Loads the newest snapshot that passes its checksum; false if there is none
+    private boolean readLatestSnapshot() throws IOException {
+        List<Long> seqs = snapshotSeqs();
+        for (int i = seqs.size() - 1; i >= 0; i--) {
+            Path path = snapshotPath(seqs.get(i));
+            State state = readSnapshot(path);
+            if (state != null) {
+                load(state);
+                return true;
+            }
+            LOG.warn("Ignoring damaged snapshot {}", path);
+        }
+        return false;
+    }
+
+    private State readSnapshot(Path path) throws IOException {
+        long size = Files.size(path);
+        if (size < 8) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path)), crc))) {
+            int magic = in.readInt();
+            if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_V1) {
+                return null;
+            }
+            long seq = in.readLong();
+            int nextReservation = in.readInt();
+            int nextWaiting = in.readInt();
+            int count = in.readInt();
+            List<Booking> bookings = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                bookings.add(Booking.read(in));
+            }
+            int waiting = in.readInt();
+            List<WaitlistJoined> entries = new ArrayList<>(waiting);
+            for (int i = 0; i < waiting; i++) {
+                entries.add((WaitlistJoined) ReservationEvent.read(ReservationEvent.WAITLIST_JOINED, in));
+            }
+            List<Customer> customers = null;
+            if (magic == SNAPSHOT_MAGIC) {
+                int known = in.readInt();
+                customers = new ArrayList<>(known);
+                for (int i = 0; i < known; i++) {
+                    customers.add(new Customer(in.readLong(), in.readUTF(), in.readInt()));
+                }
+            }
+            long expected = crc.getValue();
+            return in.readLong() == expected
+                    ? new State(seq, nextReservation, nextWaiting, bookings, entries, customers) : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private boolean isEmptyDirectory() throws IOException {
+        return log.firstSeq() == 1 && log.lastSeq() == 0 && snapshotSeqs().isEmpty();
+    }
+
+    private Path snapshotPath(long seq) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, seq, SUFFIX));
+    }
+
+    private List<Long> snapshotSeqs() throws IOException {
+        List<Long> seqs = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> seqs.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()))));
+        }
+        seqs.sort(null);
+        return seqs;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * Everything the store holds as of one sequence number. Customers are null
+     * when read from a snapshot that predates them.
+     */
+    public record State(long seq, int nextReservationId, int nextWaitlistId,
+                        List<Booking> reservations, List<WaitlistJoined> waitlist, List<Customer> customers) {
+    }
+
+    /**
+     * Supplies the starting state of a store that has no snapshot or log yet.
+     */
+    @FunctionalInterface
+    public interface Seed {
+        State load() throws SQLException;
+    }
+}
@@ -0,0 +1,458 @@
+package com.restaurantsystem.reservation;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.restaurantsystem.reservation.ReservationEvent.Booking;
+import com.restaurantsystem.reservation.ReservationEvent.WaitlistJoined;
+
+/**
+ * Reservations held in concurrent maps and nothing else, for tests, benchmarks
+ * and as the queryable state of a {@link MappedRepository}. Ids come from
+ * atomic counters and every index is a concurrent map. A change to a
+ * reservation updates several indexes, so it holds the lock of each date it
+ * touches, and reading one date's bookings for the seating plan takes that
+ * date's lock too: the plan never sees a reservation half stored or half
+ * moved. Other reads take no lock and may see a change in progress. Capacity
+ * is left to the service's seating plan, so inserts never return NO_TABLE.
+ */
+public class InMemoryRepository implements ReservationRepository {
+    private static final int DATE_LOCKS = 64;
+
+    private final ServiceSchedule schedule;
+    private final OperationMetrics metrics = new OperationMetrics(new LatencyHistogram());
+    private final ConcurrentMap<Integer, Booking> reservations = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<ReservationPage.Key, Booking> byTime = new ConcurrentSkipListMap<>(ReservationPage.Key.ORDER);
+    private final ConcurrentMap<Long, Set<Integer>> byCustomer = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, WaitlistJoined> waitlist = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<Long, Set<Integer>> waitlistByCustomer = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Customer> customers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> managers = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<LocalDate, DailyActivity> activity = new ConcurrentSkipListMap<>();
+    private final AtomicInteger nextReservationId = new AtomicInteger(1);
+    private final AtomicInteger nextWaitlistId = new AtomicInteger(1);
+    private final ReentrantLock[] dateLocks = new ReentrantLock[DATE_LOCKS];
+
+    public InMemoryRepository(ServiceSchedule schedule) {
+        this.schedule = schedule;
+        for (int i = 0; i < DATE_LOCKS; i++) {
+            dateLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public int migrate() {
+        return 0;
+    }
+
+    @Override
+    public OperationMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public int insertReservation(String name, long customer, LocalDate date, int slot, int guests, String specialRequests) {
+        int id = nextReservationId.getAndIncrement();
+        put(new Booking(id, name, customer, date, schedule.label(slot), guests, specialRequests), true);
+        return id;
+    }
+
+    @Override
+    public Moved updateReservation(int id, String name, long customer, LocalDate date, int slot, int guests,
+                                   String specialRequests) {
+        Booking old = replace(new Booking(id, name, customer, date, schedule.label(slot), guests, specialRequests));
+        if (old == null) {
+            return null;
+        }
+        return new Moved(old.date(), old.time(), old.guests(), 1);
+    }
+
+    @Override
+    public List<Reservation> deleteReservations(long customer, String name) {
+        List<Reservation> deleted = new ArrayList<>();
+        for (Booking booking : reservationsOf(customer)) {
+            if ((name == null || booking.name().equals(name)) && remove(booking.id()) != null) {
+                deleted.add(new Reservation(booking.id(), null, null, booking.date().toString(), booking.time(),
+                        booking.guests(), null));
+                recordCancellations(booking.date(), 1);
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<AvailabilityIndex.Booking> bookingsOn(LocalDate date) {
+        String day = date.toString();
+        List<AvailabilityIndex.Booking> bookings = new ArrayList<>();
+        lockDates(date, date);
+        try {
+            for (var entry : byTime.subMap(new ReservationPage.Key(day, Integer.MIN_VALUE, Integer.MIN_VALUE), true,
+                    new ReservationPage.Key(day, Integer.MAX_VALUE, Integer.MAX_VALUE), true).entrySet()) {
+                Booking booking = entry.getValue();
+                bookings.add(new AvailabilityIndex.Booking(booking.id(), schedule.slotAtMinute(entry.getKey().minute()), booking.guests()));
+            }
+        } finally {
+            unlockDates(date, date);
+        }
+        bookings.sort(Comparator.comparingInt(AvailabilityIndex.Booking::reservationId));
+        return bookings;
+    }
+
+    //One date at a time, each under its lock like bookingsOn
+    @Override
+    public Map<LocalDate, List<AvailabilityIndex.Booking>> bookingsBetween(LocalDate first, LocalDate last) {
+        Map<LocalDate, List<AvailabilityIndex.Booking>> bookings = new TreeMap<>();
+        for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+            List<AvailabilityIndex.Booking> day = bookingsOn(date);
+            if (!day.isEmpty()) {
+                bookings.put(date, day);
+            }
+        }
+        return bookings;
+    }
+
+    @Override
+    public Reservation reservation(int id) {
+        Booking booking = reservations.get(id);
+        return booking == null ? null : reservation(booking);
+    }
+
+    @Override
+    public Reservation findReservation(long customer, String name, LocalDate today) {
+        Booking next = null;
+        Booking last = null;
+        for (Booking booking : reservationsOf(customer)) {
+            if (!booking.name().equals(name)) {
+                continue;
+            }
+            if (!booking.date().isBefore(today)) {
+                if (next == null || ReservationPage.Key.ORDER.compare(key(booking), key(next)) < 0) {
+                    next = booking;
+                }
+            } else if (last == null || ReservationPage.Key.ORDER.compare(key(booking), key(last)) > 0) {
+                last = booking;
+            }
+        }
+        Booking found = next != null ? next : last;
+        return found == null ? null : reservation(found);
+    }
+
+    @Override
+    public ReservationPage historyPage(long customer, String name, ReservationPage.Key before, int limit) {
+        List<ReservationPage.Key> keys = new ArrayList<>();
+        for (Booking booking : reservationsOf(customer)) {
+            ReservationPage.Key key = key(booking);
+            if (booking.name().equals(name) && ReservationPage.Key.ORDER.compare(key, before) < 0) {
+                keys.add(key);
+            }
+        }
+        keys.sort(ReservationPage.Key.ORDER.reversed());
+        List<Reservation> rows = new ArrayList<>(Math.min(limit, keys.size()));
+        ReservationPage.Key last = before;
+        for (ReservationPage.Key key : keys.subList(0, Math.min(limit, keys.size()))) {
+            Booking booking = reservations.get(key.id());
+            if (booking != null) {
+                rows.add(reservation(booking));
+                last = key;
+            }
+        }
+        return new ReservationPage(rows, last, keys.size() > limit);
+    }
+
+    @Override
+    public List<Reservation> listReservations() {
+        List<Reservation> rows = new ArrayList<>(byTime.size());
+        for (Booking booking : byTime.values()) {
+            rows.add(reservation(booking));
+        }
+        return rows;
+    }
+
+    @Override
+    public ReservationPage pageReservations(ReservationPage.Key after, String beforeDate, int limit) {
+        List<Reservation> rows = new ArrayList<>(limit);
+        ReservationPage.Key last = after;
+        for (var entry : byTime.tailMap(after, false).entrySet()) {
+            if (entry.getKey().date().compareTo(beforeDate) >= 0) {
+                break;
+            }
+            if (rows.size() == limit) {
+                return new ReservationPage(rows, last, true);
+            }
+            rows.add(reservation(entry.getValue()));
+            last = entry.getKey();
+        }
+        return new ReservationPage(rows, last, false);
+    }
+
+    @Override
+    public Customer customer(long customer) {
+        return customers.get(customer);
+    }
+
+    @Override
+    public int joinWaitlist(String name, long customer, int guests) {
+        int id = nextWaitlistId.getAndIncrement();
+        putWaitlist(new WaitlistJoined(id, name, customer, guests));
+        recordWaitlistLength(LocalDate.now(), waitlist.size());
+        return id;
+    }
+
+    @Override
+    public List<Integer> leaveWaitlist(long customer) {
+        List<Integer> removed = new ArrayList<>();
+        for (WaitlistJoined entry : waitlistOf(customer)) {
+            if (removeWaitlist(entry.id()) != null) {
+                removed.add(entry.id());
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public Integer findWaitlistEntry(long customer, String name) {
+        for (WaitlistJoined entry : waitlistOf(customer)) {
+            if (entry.name().equals(name)) {
+                return entry.id();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Integer> waitlistIds() {
+        return new ArrayList<>(waitlist.keySet());
+    }
+
+    @Override
+    public List<WaitlistEntry> listWaitlist() {
+        List<WaitlistEntry> entries = new ArrayList<>(waitlist.size());
+        for (WaitlistJoined entry : waitlist.values()) {
+            entries.add(new WaitlistEntry(entry.id(), entry.name(), PhoneKey.format(entry.customer()), entry.guests(),
+                    entries.size() + 1));
+        }
+        return entries;
+    }
+
+    @Override
+    public void addManager(String login, String password) throws SQLException {
+        if (managers.putIfAbsent(login, password) != null) {
+            throw new SQLException("Manager " + login + " already exists");
+        }
+    }
+
+    @Override
+    public boolean authenticateManager(String login, String password) {
+        return password != null && password.equals(managers.get(login));
+    }
+
+    @Override
+    public void forEachVisit(VisitSink sink) {
+        for (var entry : byTime.entrySet()) {
+            Booking booking = entry.getValue();
+            sink.accept(booking.date().toEpochDay(), entry.getKey().minute(), booking.guests());
+        }
+    }
+
+    //Adds cancellations to the tally of a visit date
+    void recordCancellations(LocalDate visitDate, int count) {
+        activity.merge(visitDate, new DailyActivity(visitDate, count, 0),
+                (old, added) -> new DailyActivity(visitDate, old.cancellations() + count, old.waitlistPeak()));
+    }
+
+    //Raises a day's waitlist peak
+    void recordWaitlistLength(LocalDate day, int length) {
+        activity.merge(day, new DailyActivity(day, 0, length),
+                (old, added) -> new DailyActivity(day, old.cancellations(), Math.max(old.waitlistPeak(), length)));
+    }
+
+    @Override
+    public List<DailyActivity> activity() {
+        return new ArrayList<>(activity.values());
+    }
+
+    //Stores a reservation under the id it already has, e.g. one replayed from the event log
+    void put(Booking booking, boolean countBooking) {
+        lockDates(booking.date(), booking.date());
+        try {
+            index(booking, countBooking);
+        } finally {
+            unlockDates(booking.date(), booking.date());
+        }
+    }
+
+    Booking remove(int id) {
+        while (true) {
+            Booking booking = reservations.get(id);
+            if (booking == null) {
+                return null;
+            }
+            lockDates(booking.date(), booking.date());
+            try {
+                // Moved to another date before the lock was ours; lock that one instead
+                if (reservations.get(id) == booking) {
+                    unindex(booking);
+                    return booking;
+                }
+            } finally {
+                unlockDates(booking.date(), booking.date());
+            }
+        }
+    }
+
+    //Replaces the stored reservation with the same id in one step and returns it as it was, or null if there is none
+    Booking replace(Booking booking) {
+        while (true) {
+            Booking old = reservations.get(booking.id());
+            if (old == null) {
+                return null;
+            }
+            lockDates(old.date(), booking.date());
+            try {
+                if (reservations.get(booking.id()) == old) {
+                    unindex(old);
+                    index(booking, false);
+                    return old;
+                }
+            } finally {
+                unlockDates(old.date(), booking.date());
+            }
+        }
+    }
+
+    private void index(Booking booking, boolean countBooking) {
+        saveCustomer(booking.customer(), booking.name(), countBooking);
+        reservations.put(booking.id(), booking);
+        byTime.put(key(booking), booking);
+        byCustomer.computeIfAbsent(booking.customer(), c -> ConcurrentHashMap.newKeySet()).add(booking.id());
+        nextReservationId.accumulateAndGet(booking.id() + 1, Math::max);
+    }
+
+    private void unindex(Booking booking) {
+        reservations.remove(booking.id());
+        byTime.remove(key(booking));
+        Set<Integer> ids = byCustomer.get(booking.customer());
+        if (ids != null) {
+            ids.remove(booking.id());
+        }
+    }
+
+    //Locks the stripes of two dates, lowest first so two changes cannot deadlock
+    private void lockDates(LocalDate a, LocalDate b) {
+        int first = Math.floorMod(a.hashCode(), DATE_LOCKS);
+        int second = Math.floorMod(b.hashCode(), DATE_LOCKS);
+        dateLocks[Math.min(first, second)].lock();
+        if (first != second) {
+            dateLocks[Math.max(first, second)].lock();
+        }
+    }
+
+    private void unlockDates(LocalDate a, LocalDate b) {
+        int first = Math.floorMod(a.hashCode(), DATE_LOCKS);
+        int second = Math.floorMod(b.hashCode(), DATE_LOCKS);
+        if (first != second) {
+            dateLocks[Math.max(first, second)].unlock();
+        }
+        dateLocks[Math.min(first, second)].unlock();
+    }
+
+    void putWaitlist(WaitlistJoined entry) {
+        saveCustomer(entry.customer(), entry.name(), false);
+        waitlist.put(entry.id(), entry);
+        waitlistByCustomer.computeIfAbsent(entry.customer(), c -> ConcurrentHashMap.newKeySet()).add(entry.id());
+        nextWaitlistId.accumulateAndGet(entry.id() + 1, Math::max);
+    }
+
+    WaitlistJoined removeWaitlist(int id) {
+        WaitlistJoined entry = waitlist.remove(id);
+        if (entry != null) {
+            Set<Integer> ids = waitlistByCustomer.get(entry.customer());
+            if (ids != null) {
+                ids.remove(id);
+            }
+        }
+        return entry;
+    }
+
+    void putCustomer(Customer customer) {
+        customers.put(customer.id(), customer);
+    }
+
+    Booking booking(int id) {
+        return reservations.get(id);
+    }
+
+    //A customer's reservations in id order
+    List<Booking> reservationsOf(long customer) {
+        List<Booking> bookings = new ArrayList<>();
+        for (int id : byCustomer.getOrDefault(customer, Set.of())) {
+            Booking booking = reservations.get(id);
+            if (booking != null) {
+                bookings.add(booking);
+            }
+        }
+        bookings.sort(Comparator.comparingInt(Booking::id));
+        return bookings;
+    }
+
+    //A customer's waitlist entries in the order they joined
+    List<WaitlistJoined> waitlistOf(long customer) {
+        List<WaitlistJoined> entries = new ArrayList<>();
+        for (int id : waitlistByCustomer.getOrDefault(customer, Set.of())) {
+            WaitlistJoined entry = waitlist.get(id);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Comparator.comparingInt(WaitlistJoined::id));
+        return entries;
+    }
+
+    Collection<Booking> reservations() {
+        return reservations.values();
+    }
+
+    Collection<WaitlistJoined> waitlist() {
+        return waitlist.values();
+    }
+
+    Collection<Customer> customers() {
+        return customers.values();
+    }
+
+    //Creates the customer on their first booking; later ones refresh the name they go by
+    private void saveCustomer(long customer, String name, boolean countBooking) {
+        if (customer == PhoneKey.NONE) {
+            return;
+        }
+        int bookings = countBooking ? 1 : 0;
+        customers.merge(customer, new Customer(customer, name, bookings),
+                (old, update) -> new Customer(customer, name, old.bookings() + bookings));
+    }
+
+    private ReservationPage.Key key(Booking booking) {
+        return new ReservationPage.Key(booking.date().toString(), schedule.minuteOf(booking.time()), booking.id());
+    }
+
+    private static Reservation reservation(Booking booking) {
+        return new Reservation(booking.id(), booking.name(), PhoneKey.format(booking.customer()),
+                booking.date().toString(), booking.time(), booking.guests(), booking.specialRequests());
+    }
+
+    @Override
+    public void close() {
+        metrics.close();
+    }
+}
@@ -0,0 +1,214 @@
+package com.restaurantsystem.reservation;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
+
+/**
+ * Sends each call to the shard of the restaurant location it concerns. Every
+ * location has its own {@link ReservationService} over its own database, so
+ * sites never share a write lock, a seating plan or a waitlist. Listings that
+ * span locations ask every shard at once and merge what comes back. The map of
+ * locations is replaced rather than changed, so a lookup never waits and adding
+ * a location leaves the existing ones untouched.
+ */
+public class LocationRouter implements AutoCloseable {
+    public static final String DEFAULT_LOCATION = "main";
+    private static final Pattern NAME = Pattern.compile("[a-z0-9][a-z0-9-]{0,31}");
+    private static final int FAN_OUT_THREADS = 8;
+
+    private final BackgroundExecutor executor = new BackgroundExecutor("location", FAN_OUT_THREADS);
+    private volatile Map<String, ReservationService> shards = Map.of();
+
+    //A router over a single location, for one restaurant
+    public static LocationRouter single(ReservationService service) {
+        LocationRouter router = new LocationRouter();
+        router.add(DEFAULT_LOCATION, service);
+        return router;
+    }
+
+    /*
+     * One shard per name in the comma-separated booking.locations system
+     * property, each over the configured storage with the location in its file
+     * names (see ReservationRepository.configured). Without the property there
+     * is one location over the unsharded database.
+     */
+    public static LocationRouter configured(String defaultUrl, int poolSize, ServiceSchedule schedule) {
+        List<String> names = configuredLocations();
+        if (names.isEmpty()) {
+            return single(ReservationService.configured(defaultUrl, poolSize, schedule));
+        }
+        LocationRouter router = new LocationRouter();
+        for (String location : names) {
+            router.add(location, ReservationService.configured(defaultUrl, poolSize, schedule, location));
+        }
+        return router;
+    }
+
+    /*
+     * The location a client that serves one restaurant, such as the window,
+     * works on: the booking.location system property, which must be one of
+     * booking.locations when those are set, otherwise the first of
+     * booking.locations. Null means the unsharded database.
+     */
+    public static String configuredLocation() {
+        List<String> names = configuredLocations();
+        String location = System.getProperty("booking.location");
+        if (location == null || location.isBlank()) {
+            return names.isEmpty() ? null : names.get(0);
+        }
+        location = location.trim();
+        requireName(location);
+        if (!names.isEmpty() && !names.contains(location)) {
+            throw new IllegalArgumentException("booking.location " + location + " is not one of booking.locations " + names);
+        }
+        return location;
+    }
+
+    //The names in the booking.locations system property, checked, or none when it is not set
+    private static List<String> configuredLocations() {
+        String names = System.getProperty("booking.locations");
+        if (names == null || names.isBlank()) {
+            return List.of();
+        }
+        List<String> locations = new ArrayList<>();
+        for (String name : names.split(",")) {
+            String location = name.trim();
+            requireName(location);
+            locations.add(location);
+        }
+        return locations;
+    }
+
+    //Makes a location available; migrate its service first if the router is already serving
+    public synchronized void add(String location, ReservationService service) {
+        requireName(location);
+        if (shards.containsKey(location)) {
+            throw new IllegalArgumentException("Location already added: " + location);
+        }
+        Map<String, ReservationService> next = new LinkedHashMap<>(shards);
+        next.put(location, service);
+        shards = Collections.unmodifiableMap(next);
+    }
+
+    private static void requireName(String location) {
+        if (location == null || !NAME.matcher(location).matches()) {
+            throw new IllegalArgumentException("Location names are lower-case letters, digits and dashes: " + location);
+        }
+    }
+
+    //Location names in the order they were added; the first is the default
+    public List<String> locations() {
+        return List.copyOf(shards.keySet());
+    }
+
+    //The shard of a location, or of the default location for null
+    public ReservationService service(String location) {
+        Map<String, ReservationService> current = shards;
+        if (location == null || location.isEmpty()) {
+            return current.values().iterator().next();
+        }
+        ReservationService service = current.get(location);
+        if (service == null) {
+            throw new IllegalArgumentException("Unknown location: " + location);
+        }
+        return service;
+    }
+
+    //Creates or upgrades every shard's storage, all at once
+    public void migrate() throws SQLException {
+        fanOut(ReservationService::migrate);
+    }
+
+    //Every location's reservations ordered by date and time, ties in location order
+    public List<Located<Reservation>> listReservations() throws SQLException {
+        List<Located<Reservation>> merged = new ArrayList<>();
+        for (Map.Entry<String, List<Reservation>> shard : fanOut(ReservationService::listReservations).entrySet()) {
+            for (Reservation reservation : shard.getValue()) {
+                merged.add(new Located<>(shard.getKey(), reservation));
+            }
+        }
+        // Each shard's rows are already in order, and a stable sort of sorted runs merges them
+        merged.sort(Comparator.comparing((Located<Reservation> row) -> row.item().date())
+                .thenComparingInt(row -> service(row.location()).schedule().minuteOf(row.item().time())));
+        return merged;
+    }
+
+    //Every location's waitlist, one after another; positions count within each location
+    public List<Located<WaitlistEntry>> listWaitlist() throws SQLException {
+        List<Located<WaitlistEntry>> all = new ArrayList<>();
+        for (Map.Entry<String, List<WaitlistEntry>> shard : fanOut(ReservationService::listWaitlist).entrySet()) {
+            for (WaitlistEntry entry : shard.getValue()) {
+                all.add(new Located<>(shard.getKey(), entry));
+            }
+        }
+        return all;
+    }
+
+    /*
+     * Whether the login may read a location's listings: it must belong to a
+     * manager of that location. Listings across every location (a null
+     * location) need a login that every location accepts.
+     */
+    public boolean authenticateManager(String location, String username, String password) throws SQLException {
+        if (location != null) {
+            return service(location).authenticateManager(username, password);
+        }
+        return !fanOut(service -> service.authenticateManager(username, password)).containsValue(false);
+    }
+
+    //Runs a call on every shard in parallel and returns the answers in location order
+    private <T> Map<String, T> fanOut(ShardCall<T> call) throws SQLException {
+        Map<String, ReservationService> current = shards;
+        Map<String, T> results = new LinkedHashMap<>();
+        if (current.size() == 1) {
+            Map.Entry<String, ReservationService> only = current.entrySet().iterator().next();
+            results.put(only.getKey(), call.call(only.getValue()));
+            return results;
+        }
+        Map<String, CompletableFuture<T>> pending = new LinkedHashMap<>();
+        for (Map.Entry<String, ReservationService> shard : current.entrySet()) {
+            pending.put(shard.getKey(), executor.submit(() -> call.call(shard.getValue())));
+        }
+        for (Map.Entry<String, CompletableFuture<T>> answer : pending.entrySet()) {
+            try {
+                results.put(answer.getKey(), answer.getValue().join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof SQLException sql) {
+                    throw sql;
+                }
+                if (e.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+        for (ReservationService service : shards.values()) {
+            service.close();
+        }
+    }
+
+    /**
+     * A row from one location's shard.
+     */
+    public record Located<T>(String location, T item) {
+    }
+
+    @FunctionalInterface
+    private interface ShardCall<T> {
+        T call(ReservationService service) throws SQLException;
+    }
+}
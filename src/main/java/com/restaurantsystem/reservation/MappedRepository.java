@@ -0,0 +1,260 @@
+package com.restaurantsystem.reservation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.restaurantsystem.reservation.ReservationEvent.Booking;
+
+/**
+ * Reservations kept in memory and made durable by an {@link EventStore}, whose
+ * log and snapshots live in memory-mapped files in one directory. Changes
+ * return once their event is on disk; every read is answered from memory. Given
+ * a {@link SqliteRepository}, the store is seeded from its tables the first
+ * time and a {@link SqlProjector} keeps copying changes into them, so the
+ * database stays current for reports and for switching back; manager logins
+ * are then read from it too. Without one, managers last only as long as the
+ * process. A single process owns the directory.
+ */
+public class MappedRepository implements ReservationRepository {
+    private static final Logger LOG = LoggerFactory.getLogger(MappedRepository.class);
+    // Event log segment size and how many events go between snapshots
+    private static final int SEGMENT_BYTES = 64 << 20;
+    private static final int SNAPSHOT_EVERY = Integer.getInteger("booking.eventlog.snapshotEvery", 10_000);
+
+    private final Path dir;
+    private final ServiceSchedule schedule;
+    private final SqliteRepository mirror;
+    private final OperationMetrics metrics;
+    private volatile EventStore store;
+    private SqlProjector projector;
+
+    public MappedRepository(Path dir, ServiceSchedule schedule) {
+        this(dir, schedule, null);
+    }
+
+    public MappedRepository(Path dir, ServiceSchedule schedule, SqliteRepository mirror) {
+        this.dir = dir;
+        this.schedule = schedule;
+        this.mirror = mirror;
+        this.metrics = mirror != null ? mirror.metrics() : new OperationMetrics(new LatencyHistogram());
+    }
+
+    //Upgrades the database if there is one, then recovers the event log
+    @Override
+    public synchronized int migrate() throws SQLException {
+        int version = mirror != null ? mirror.migrate() : 0;
+        if (store != null) {
+            return version;
+        }
+        try {
+            EventStore.Seed seed = mirror != null ? mirror::readTables
+                    : () -> new EventStore.State(0, 1, 1, List.of(), List.of(), List.of());
+            EventStore opened = EventStore.open(dir, SEGMENT_BYTES, SNAPSHOT_EVERY, schedule, seed);
+            try {
+                if (mirror != null) {
+                    projector = new SqlProjector(opened, mirror.pool(), mirror.writer());
+                    projector.start();
+                }
+            } catch (IOException | SQLException | RuntimeException e) {
+                projector = null;
+                opened.close();
+                throw e;
+            }
+            store = opened;
+        } catch (IOException e) {
+            throw new SQLException("Could not open the event log in " + dir, e);
+        }
+        return version;
+    }
+
+    @Override
+    public OperationMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public ConnectionPool.PoolStats poolStats() {
+        return mirror != null ? mirror.poolStats() : null;
+    }
+
+    //Copies changes into the database, or null without one
+    public SqlProjector projector() {
+        return projector;
+    }
+
+    private EventStore store() {
+        EventStore open = store;
+        if (open == null) {
+            throw new IllegalStateException("The event log in " + dir + " is not open; call migrate() first");
+        }
+        return open;
+    }
+
+    @Override
+    public int insertReservation(String name, long customer, LocalDate date, int slot, int guests, String specialRequests)
+            throws SQLException {
+        return logged(() -> store().reserve(name, customer, date, schedule.label(slot), guests, specialRequests));
+    }
+
+    @Override
+    public Moved updateReservation(int id, String name, long customer, LocalDate date, int slot, int guests,
+                                   String specialRequests) throws SQLException {
+        Booking from = logged(() -> store().update(id, name, customer, date, schedule.label(slot), guests, specialRequests));
+        return from == null ? null : new Moved(from.date(), from.time(), from.guests(), 1);
+    }
+
+    @Override
+    public List<Reservation> deleteReservations(long customer, String name) throws SQLException {
+        List<Booking> cancelled = logged(() -> store().cancel(customer, name));
+        List<Reservation> rows = new ArrayList<>(cancelled.size());
+        for (Booking booking : cancelled) {
+            rows.add(new Reservation(booking.id(), null, null, booking.date().toString(), booking.time(), booking.guests(), null));
+            if (mirror != null) {
+                mirror.recordCancellations(booking.date(), 1);
+            } else {
+                store().view().recordCancellations(booking.date(), 1);
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public List<AvailabilityIndex.Booking> bookingsOn(LocalDate date) {
+        return store().view().bookingsOn(date);
+    }
+
+    @Override
+    public Map<LocalDate, List<AvailabilityIndex.Booking>> bookingsBetween(LocalDate first, LocalDate last) {
+        return store().view().bookingsBetween(first, last);
+    }
+
+    @Override
+    public Reservation reservation(int id) {
+        return store().view().reservation(id);
+    }
+
+    @Override
+    public Reservation findReservation(long customer, String name, LocalDate today) {
+        return store().view().findReservation(customer, name, today);
+    }
+
+    @Override
+    public ReservationPage historyPage(long customer, String name, ReservationPage.Key before, int limit) {
+        return store().view().historyPage(customer, name, before, limit);
+    }
+
+    @Override
+    public List<Reservation> listReservations() {
+        return store().view().listReservations();
+    }
+
+    @Override
+    public ReservationPage pageReservations(ReservationPage.Key after, String beforeDate, int limit) {
+        return store().view().pageReservations(after, beforeDate, limit);
+    }
+
+    @Override
+    public Customer customer(long customer) {
+        return store().view().customer(customer);
+    }
+
+    @Override
+    public int joinWaitlist(String name, long customer, int guests) throws SQLException {
+        int id = logged(() -> store().joinWaitlist(name, customer, guests));
+        int length = store().view().waitlist().size();
+        if (mirror != null) {
+            mirror.recordWaitlistLength(LocalDate.now(), length);
+        } else {
+            store().view().recordWaitlistLength(LocalDate.now(), length);
+        }
+        return id;
+    }
+
+    @Override
+    public List<Integer> leaveWaitlist(long customer) throws SQLException {
+        return logged(() -> store().leaveWaitlist(customer));
+    }
+
+    @Override
+    public Integer findWaitlistEntry(long customer, String name) {
+        return store().view().findWaitlistEntry(customer, name);
+    }
+
+    @Override
+    public List<Integer> waitlistIds() {
+        return store().view().waitlistIds();
+    }
+
+    @Override
+    public List<WaitlistEntry> listWaitlist() {
+        return store().view().listWaitlist();
+    }
+
+    @Override
+    public void addManager(String login, String password) throws SQLException {
+        if (mirror != null) {
+            mirror.addManager(login, password);
+        } else {
+            store().view().addManager(login, password);
+        }
+    }
+
+    @Override
+    public boolean authenticateManager(String login, String password) throws SQLException {
+        return mirror != null ? mirror.authenticateManager(login, password) : store().view().authenticateManager(login, password);
+    }
+
+    //Visits come from memory, which holds every reservation the log has kept
+    @Override
+    public void forEachVisit(VisitSink sink) {
+        store().view().forEachVisit(sink);
+    }
+
+    //Tallies are kept in the database when there is one, so they survive a restart
+    @Override
+    public List<DailyActivity> activity() throws SQLException {
+        return mirror != null ? mirror.activity() : store().view().activity();
+    }
+
+    //Runs an event store change, reporting a failed append like any other storage error
+    private static <T> T logged(LogWrite<T> write) throws SQLException {
+        try {
+            return write.call();
+        } catch (IOException e) {
+            throw new SQLException("Could not append to the event log", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface LogWrite<T> {
+        T call() throws IOException;
+    }
+
+    //Lets the projector finish copying, then closes the log and the database
+    @Override
+    public synchronized void close() {
+        if (projector != null) {
+            projector.close();
+        }
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                LOG.warn("Could not close the event log", e);
+            }
+        }
+        if (mirror != null) {
+            mirror.close();
+        } else {
+            metrics.close();
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.restaurantsystem.reservation;
+
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Occupancy figures kept current as bookings change, so reports never read
+ * reservation rows: covers and bookings per month, weekday and slot,
+ * cancellations per month and the waitlist's peak per day. Every cell is an
+ * atomic counter, so the service records a change without taking a lock, and
+ * a twelve-month report adds up a few thousand cells. {@link #rebuild} counts
+ * everything again from the stored visits, splitting the rows over the
+ * fork/join pool. A change made while a rebuild is reading may be counted
+ * twice or not at all; the next rebuild puts it right.
+ */
+public class OccupancyRollups {
+    private static final int WEEKDAYS = 7;
+    // Rows one fork/join task counts by itself before splitting
+    private static final int LEAF_ROWS = 1 << 14;
+
+    private final ServiceSchedule schedule;
+    // One column per slot of the schedule and a last one for times off the grid
+    private final int columns;
+    private volatile Tally tally;
+
+    public OccupancyRollups(ServiceSchedule schedule) {
+        this.schedule = schedule;
+        this.columns = schedule.count() + 1;
+        this.tally = new Tally();
+    }
+
+    public void recordBooking(LocalDate date, String time, int guests) {
+        tally.month(date).add(cell(date, schedule.indexOf(time)), guests, 1);
+    }
+
+    public void recordCancellation(LocalDate date, String time, int guests) {
+        Month month = tally.month(date);
+        month.add(cell(date, schedule.indexOf(time)), -guests, -1);
+        month.cancellations.incrementAndGet();
+    }
+
+    public void recordMove(LocalDate fromDate, String fromTime, int fromGuests, LocalDate date, String time, int guests) {
+        Tally current = tally;
+        current.month(fromDate).add(cell(fromDate, schedule.indexOf(fromTime)), -fromGuests, -1);
+        current.month(date).add(cell(date, schedule.indexOf(time)), guests, 1);
+    }
+
+    public void recordWaitlistLength(LocalDate day, int length) {
+        tally.waitlistPeaks.merge(day, length, Math::max);
+    }
+
+    private int cell(LocalDate date, int slot) {
+        return date.getDayOfWeek().ordinal() * columns + (slot < 0 ? columns - 1 : slot);
+    }
+
+    //Counts every stored visit and tally again and replaces what was counted before
+    public void rebuild(ReservationRepository repository) throws SQLException {
+        Visits visits = new Visits();
+        repository.forEachVisit(visits::add);
+        Map<Integer, long[]> counted = ForkJoinPool.commonPool().invoke(new CountTask(visits, 0, visits.size));
+        Tally rebuilt = new Tally();
+        for (Map.Entry<Integer, long[]> month : counted.entrySet()) {
+            long[] cells = month.getValue();
+            Month into = rebuilt.months.computeIfAbsent(YearMonth.of(month.getKey() / 12, month.getKey() % 12 + 1),
+                    key -> new Month(WEEKDAYS * columns));
+            for (int cell = 0; cell < WEEKDAYS * columns; cell++) {
+                into.add(cell, cells[2 * cell], cells[2 * cell + 1]);
+            }
+        }
+        for (ReservationRepository.DailyActivity day : repository.activity()) {
+            rebuilt.month(day.day()).cancellations.addAndGet(day.cancellations());
+            if (day.waitlistPeak() > 0) {
+                rebuilt.waitlistPeaks.put(day.day(), day.waitlistPeak());
+            }
+        }
+        tally = rebuilt;
+    }
+
+    /*
+     * Adds up the months from first to last, both included. Cost grows with the
+     * number of months and slots, never with the number of reservations.
+     */
+    public Report report(YearMonth first, YearMonth last) {
+        Tally current = tally;
+        int slots = schedule.count();
+        long[][] covers = new long[WEEKDAYS][slots];
+        long[] coversBySlot = new long[slots];
+        long[] coversByWeekday = new long[WEEKDAYS];
+        SortedMap<YearMonth, Long> coversByMonth = new TreeMap<>();
+        long bookings = 0;
+        long cancellations = 0;
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            Month counted = current.months.get(month);
+            long monthCovers = 0;
+            if (counted != null) {
+                for (int weekday = 0; weekday < WEEKDAYS; weekday++) {
+                    for (int column = 0; column < columns; column++) {
+                        int cell = weekday * columns + column;
+                        long guests = counted.covers.get(cell);
+                        monthCovers += guests;
+                        coversByWeekday[weekday] += guests;
+                        bookings += counted.bookings.get(cell);
+                        if (column < slots) {
+                            covers[weekday][column] += guests;
+                            coversBySlot[column] += guests;
+                        }
+                    }
+                }
+                cancellations += counted.cancellations.get();
+            }
+            coversByMonth.put(month, monthCovers);
+        }
+        NavigableMap<LocalDate, Integer> peaks = current.waitlistPeaks.subMap(first.atDay(1), true, last.atEndOfMonth(), true);
+        return new Report(first, last, covers, coversBySlot, coversByWeekday, coversByMonth, bookings, cancellations,
+                new TreeMap<>(peaks));
+    }
+
+    /**
+     * Occupancy over a range of months. The heatmap is covers by weekday
+     * (Monday first) and slot; times off the schedule's grid count only in the
+     * month and weekday totals.
+     */
+    public record Report(YearMonth first, YearMonth last, long[][] heatmap, long[] coversBySlot, long[] coversByWeekday,
+                         SortedMap<YearMonth, Long> coversByMonth, long bookings, long cancellations,
+                         SortedMap<LocalDate, Integer> waitlistPeaks) {
+
+        //Share of the bookings made for these months that were cancelled again
+        public double cancellationRate() {
+            long made = bookings + cancellations;
+            return made == 0 ? 0 : (double) cancellations / made;
+        }
+
+        public long covers() {
+            long total = 0;
+            for (long month : coversByMonth.values()) {
+                total += month;
+            }
+            return total;
+        }
+
+        public DayOfWeek busiestWeekday() {
+            int busiest = 0;
+            for (int weekday = 1; weekday < coversByWeekday.length; weekday++) {
+                if (coversByWeekday[weekday] > coversByWeekday[busiest]) {
+                    busiest = weekday;
+                }
+            }
+            return DayOfWeek.values()[busiest];
+        }
+    }
+
+    private final class Tally {
+        final ConcurrentMap<YearMonth, Month> months = new ConcurrentHashMap<>();
+        final ConcurrentSkipListMap<LocalDate, Integer> waitlistPeaks = new ConcurrentSkipListMap<>();
+
+        Month month(LocalDate date) {
+            return months.computeIfAbsent(YearMonth.from(date), key -> new Month(WEEKDAYS * columns));
+        }
+    }
+
+    /**
+     * One month's counters, indexed by weekday * columns + column.
+     */
+    private static final class Month {
+        final AtomicLongArray covers;
+        final AtomicLongArray bookings;
+        final AtomicLong cancellations = new AtomicLong();
+
+        Month(int cells) {
+            this.covers = new AtomicLongArray(cells);
+            this.bookings = new AtomicLongArray(cells);
+        }
+
+        void add(int cell, long guests, long count) {
+            covers.addAndGet(cell, guests);
+            bookings.addAndGet(cell, count);
+        }
+    }
+
+    /**
+     * Stored visits as parallel arrays, so millions of them cost three ints each.
+     */
+    private static final class Visits {
+        int[] days = new int[1024];
+        int[] minutes = new int[1024];
+        int[] guests = new int[1024];
+        int size;
+
+        void add(long epochDay, int minuteOfDay, int party) {
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                minutes = Arrays.copyOf(minutes, size * 2);
+                guests = Arrays.copyOf(guests, size * 2);
+            }
+            days[size] = (int) epochDay;
+            minutes[size] = minuteOfDay;
+            guests[size] = party;
+            size++;
+        }
+    }
+
+    /**
+     * Counts a range of visits into per-month arrays of (covers, bookings) pairs
+     * keyed by year * 12 + month - 1, halving the range until it is small.
+     */
+    private final class CountTask extends RecursiveTask<Map<Integer, long[]>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Visits visits;
+        private final int from;
+        private final int to;
+
+        CountTask(Visits visits, int from, int to) {
+            this.visits = visits;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Integer, long[]> compute() {
+            if (to - from <= LEAF_ROWS) {
+                return count();
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(visits, from, middle);
+            left.fork();
+            Map<Integer, long[]> right = new CountTask(visits, middle, to).compute();
+            Map<Integer, long[]> merged = left.join();
+            for (Map.Entry<Integer, long[]> month : right.entrySet()) {
+                long[] into = merged.putIfAbsent(month.getKey(), month.getValue());
+                if (into != null) {
+                    long[] add = month.getValue();
+                    for (int i = 0; i < into.length; i++) {
+                        into[i] += add[i];
+                    }
+                }
+            }
+            return merged;
+        }
+
+        private Map<Integer, long[]> count() {
+            Map<Integer, long[]> months = new HashMap<>();
+            for (int row = from; row < to; row++) {
+                LocalDate date = LocalDate.ofEpochDay(visits.days[row]);
+                int slot = schedule.slotAtMinute(visits.minutes[row]);
+                long[] cells = months.computeIfAbsent(date.getYear() * 12 + date.getMonthValue() - 1,
+                        key -> new long[2 * WEEKDAYS * columns]);
+                int cell = cell(date, slot);
+                cells[2 * cell] += visits.guests[row];
+                cells[2 * cell + 1]++;
+            }
+            return months;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.restaurantsystem.reservation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, error and row counts for every persistence operation of
+ * {@link ReservationService}. Callers time an operation with
+ * {@code long start = System.nanoTime()} and {@link #record}; nothing on that
+ * path allocates. The numbers are published as JMX MBeans and, optionally, as
+ * a periodic log line per active operation.
+ */
+public class OperationMetrics implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger("metrics");
+    private static final String DOMAIN = "com.restaurantsystem.reservation";
+
+    public enum Operation {
+        AVAILABILITY, SUGGEST_SLOTS, LOAD_BOOKINGS, RESERVE, UPDATE, SEARCH, HISTORY, CANCEL,
+        JOIN_WAITLIST, LEAVE_WAITLIST, WAITLIST_POSITION, LOAD_WAITLIST, AUTHENTICATE,
+        LIST_RESERVATIONS, PAGE_RESERVATIONS, LIST_WAITLIST, CONNECTION_ACQUIRE, COMMIT;
+
+        public String key() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final Stats[] stats = new Stats[Operation.values().length];
+    private final List<ObjectName> registered = new ArrayList<>();
+    private ScheduledExecutorService reporter;
+
+    //Connection acquire times come from the pool's own histogram
+    public OperationMetrics(LatencyHistogram acquireLatency) {
+        for (Operation op : Operation.values()) {
+            stats[op.ordinal()] = new Stats(op == Operation.CONNECTION_ACQUIRE ? acquireLatency : new LatencyHistogram());
+        }
+    }
+
+    public void record(Operation op, long startNanos) {
+        stats[op.ordinal()].latency.record(System.nanoTime() - startNanos);
+    }
+
+    public void recordError(Operation op) {
+        stats[op.ordinal()].errors.increment();
+    }
+
+    public void addRows(Operation op, long rows) {
+        stats[op.ordinal()].rows.add(rows);
+    }
+
+    public Stats stats(Operation op) {
+        return stats[op.ordinal()];
+    }
+
+    //Publishes one MBean per operation under the given scope, e.g. "gui" or "http"
+    public synchronized void registerMBeans(String scope) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Operation op : Operation.values()) {
+            ObjectName name = new ObjectName(DOMAIN + ":type=Operation,scope=" + ObjectName.quote(scope) + ",name=" + op.key());
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(stats[op.ordinal()], name);
+            registered.add(name);
+        }
+    }
+
+    //Logs a line for every operation that ran since the previous report, tagged with the scope the MBeans are under
+    public synchronized void startLogging(String scope, long periodSeconds) {
+        if (reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-" + scope);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long[] reported = new long[stats.length];
+        reporter.scheduleAtFixedRate(() -> {
+            for (Operation op : Operation.values()) {
+                Stats s = stats[op.ordinal()];
+                long count = s.getCount();
+                if (count != reported[op.ordinal()]) {
+                    reported[op.ordinal()] = count;
+                    LOG.info("scope={} op={} count={} errors={} rows={} mean_us={} p50_us={} p99_us={} p999_us={} max_us={}",
+                            scope, op.key(), count, s.getErrors(), s.getRows(), Math.round(s.getMeanMicros()),
+                            s.getP50Micros(), s.getP99Micros(), s.getP999Micros(), s.getMaxMicros());
+                }
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                LOG.debug("MBean {} already gone", name);
+            }
+        }
+        registered.clear();
+    }
+
+    /**
+     * Counters of one operation.
+     */
+    public static final class Stats implements OperationStatsMXBean {
+        private final LatencyHistogram latency;
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+
+        Stats(LatencyHistogram latency) {
+            this.latency = latency;
+        }
+
+        @Override
+        public long getCount() {
+            return latency.count();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Override
+        public double getErrorRate() {
+            long count = getCount();
+            return count == 0 ? 0 : (double) getErrors() / count;
+        }
+
+        @Override
+        public long getRows() {
+            return rows.sum();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return latency.meanNanos() / 1_000;
+        }
+
+        @Override
+        public long getP50Micros() {
+            return latency.percentileNanos(0.50) / 1_000;
+        }
+
+        @Override
+        public long getP99Micros() {
+            return latency.percentileNanos(0.99) / 1_000;
+        }
+
+        @Override
+        public long getP999Micros() {
+            return latency.percentileNanos(0.999) / 1_000;
+        }
+
+        @Override
+        public long getMaxMicros() {
+            return latency.maxNanos() / 1_000;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.restaurantsystem.reservation;
+
+/**
+ * JMX view of one persistence operation. Times are in microseconds.
+ */
+public interface OperationStatsMXBean {
+    long getCount();
+
+    long getErrors();
+
+    double getErrorRate();
+
+    long getRows();
+
+    double getMeanMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getP999Micros();
+
+    long getMaxMicros();
+}
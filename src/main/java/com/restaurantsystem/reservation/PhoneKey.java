@@ -0,0 +1,80 @@
+package com.restaurantsystem.reservation;
+
+/**
+ * Phone numbers as customer keys. A customer is stored once, in the customers
+ * table, under the digits of their phone number read as one 64-bit integer;
+ * reservations and waitlist entries refer to them by that key, so matching a
+ * customer is an integer comparison rather than a string one. Leading zeros
+ * are not kept: numbers of up to ten digits are formatted back to ten, and
+ * longer ones may not start with a zero, so "0044..." is never taken for the
+ * customer at "44...".
+ */
+public final class PhoneKey {
+    public static final long NONE = -1;
+    private static final int MAX_DIGITS = 18;
+    private static final int FORMATTED_DIGITS = 10;
+    private static final long TEN_DIGITS = 10_000_000_000L;
+
+    private PhoneKey() {
+    }
+
+    //Digits of a phone number as an integer, ignoring separators; NONE if it has no digits, too many, other characters
+    //or more than ten digits after a leading zero
+    public static long of(String phone) {
+        if (phone == null) {
+            return NONE;
+        }
+        long key = 0;
+        int digits = 0;
+        boolean leadingZero = false;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_DIGITS) {
+                    return NONE;
+                }
+                leadingZero |= digits == 1 && c == '0';
+                key = key * 10 + (c - '0');
+            } else if (c != '-' && c != ' ' && c != '.' && c != '(' && c != ')' && c != '+') {
+                return NONE;
+            }
+        }
+        return digits == 0 || leadingZero && digits > FORMATTED_DIGITS ? NONE : key;
+    }
+
+    //True for the 123-456-7890 form the booking forms ask for
+    public static boolean isValid(String phone) {
+        if (phone == null || phone.length() != 12) {
+            return false;
+        }
+        for (int i = 0; i < 12; i++) {
+            char c = phone.charAt(i);
+            boolean ok = i == 3 || i == 7 ? c == '-' : c >= '0' && c <= '9';
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //123-456-7890 for keys of up to ten digits, the bare digits for longer ones
+    public static String format(long key) {
+        if (key < 0) {
+            return "";
+        }
+        if (key >= TEN_DIGITS) {
+            return Long.toString(key);
+        }
+        char[] text = new char[12];
+        long rest = key;
+        for (int i = 11; i >= 0; i--) {
+            if (i == 3 || i == 7) {
+                text[i] = '-';
+            } else {
+                text[i] = (char) ('0' + rest % 10);
+                rest /= 10;
+            }
+        }
+        return new String(text);
+    }
+}
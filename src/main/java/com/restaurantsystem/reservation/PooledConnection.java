@@ -0,0 +1,115 @@
+package com.restaurantsystem.reservation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A connection borrowed from {@link ConnectionPool}. Closing it returns it to the
+ * pool. Statements obtained from {@link #prepare(String)} are owned by the
+ * connection and must not be closed by the caller; their result sets must be.
+ */
+public class PooledConnection implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(PooledConnection.class);
+
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+    private boolean broken;
+
+    PooledConnection(ConnectionPool pool, Connection connection, int cacheSize) {
+        this.pool = pool;
+        this.connection = connection;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > cacheSize) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Connection connection() {
+        return connection;
+    }
+
+    //Returns a cached compiled statement for the SQL, compiling it on first use
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement pstmt = statements.get(sql);
+        if (pstmt != null && !pstmt.isClosed()) {
+            pool.recordStatementHit();
+            pstmt.clearParameters();
+            return pstmt;
+        }
+        pool.recordStatementMiss();
+        try {
+            pstmt = connection.prepareStatement(sql);
+        } catch (SQLException e) {
+            markBrokenIfClosed();
+            throw e;
+        }
+        statements.put(sql, pstmt);
+        return pstmt;
+    }
+
+    //Starts a transaction; close() rolls back anything not committed
+    public void begin() throws SQLException {
+        connection.setAutoCommit(false);
+    }
+
+    public void commit() throws SQLException {
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    private void markBrokenIfClosed() {
+        try {
+            broken |= connection.isClosed();
+        } catch (SQLException e) {
+            broken = true;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            broken = true;
+        }
+        markBrokenIfClosed();
+        pool.release(this, broken);
+    }
+
+    //Closes the statements and the underlying connection
+    void closePhysical() {
+        for (PreparedStatement pstmt : statements.values()) {
+            closeQuietly(pstmt);
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOG.warn("Could not close connection", e);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement pstmt) {
+        try {
+            pstmt.close();
+        } catch (SQLException e) {
+            LOG.warn("Could not close statement", e);
+        }
+    }
+}
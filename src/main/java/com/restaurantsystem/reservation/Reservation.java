@@ -0,0 +1,8 @@
+package com.restaurantsystem.reservation;
+
+/**
+ * A row of the reservations table.
+ */
+public record Reservation(int id, String name, String phone, String date, String time,
+                          int guests, String specialRequests) {
+}
@@ -0,0 +1,83 @@
+package com.restaurantsystem.reservation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves finished visits out of the live reservations table into the archive
+ * tier once they are older than a horizon, so the table every hot lookup reads
+ * holds only upcoming and recent bookings however long the history grows. The
+ * archive is only ever appended to. Each batch is one job on the repository's
+ * writer, so bookings keep being committed between batches.
+ */
+public class ReservationArchiver implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(ReservationArchiver.class);
+    private static final int BATCH = 500;
+
+    private final SqliteRepository repository;
+    private final int horizonDays;
+    private ScheduledExecutorService timer;
+
+    public ReservationArchiver(SqliteRepository repository, int horizonDays) {
+        if (horizonDays <= 0) {
+            throw new IllegalArgumentException("The archive horizon must be at least one day");
+        }
+        this.repository = repository;
+        this.horizonDays = horizonDays;
+    }
+
+    //Archives on a daemon thread right away and then every period
+    public synchronized void start(long periodMinutes) {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(() -> {
+            try {
+                archive(LocalDate.now());
+            } catch (SQLException | RuntimeException e) {
+                LOG.warn("Archiving reservations of {} failed; will try again", repository.pool().getUrl(), e);
+            }
+        }, 0, periodMinutes, TimeUnit.MINUTES);
+    }
+
+    //Archives every reservation dated more than the horizon before today and returns how many moved
+    public int archive(LocalDate today) throws SQLException {
+        LocalDate cutoff = today.minusDays(horizonDays);
+        long start = System.nanoTime();
+        int total = 0;
+        int moved;
+        do {
+            moved = repository.archiveBefore(cutoff, BATCH);
+            total += moved;
+        } while (moved == BATCH);
+        if (total > 0) {
+            LOG.info("Archived {} reservations of {} dated before {} in {} ms", total, repository.pool().getUrl(), cutoff,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return total;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (timer != null) {
+            timer.shutdownNow();
+            try {
+                timer.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            timer = null;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.restaurantsystem.reservation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * One change to the bookings, as stored in the {@link EventLog}. Replaying the
+ * events in order rebuilds the reservations and the waitlist exactly; each
+ * carries the ids it was assigned, so replay never has to allocate any.
+ */
+public sealed interface ReservationEvent {
+    byte RESERVED = 1;
+    byte UPDATED = 2;
+    byte CANCELLED = 3;
+    byte WAITLIST_JOINED = 4;
+    byte WAITLIST_LEFT = 5;
+
+    byte type();
+
+    void write(DataOutput out) throws IOException;
+
+    static ReservationEvent read(byte type, DataInput in) throws IOException {
+        return switch (type) {
+            case RESERVED -> new Reserved(Booking.read(in));
+            case UPDATED -> new Updated(Booking.read(in));
+            case CANCELLED -> new Cancelled(in.readInt());
+            case WAITLIST_JOINED -> new WaitlistJoined(in.readInt(), in.readUTF(), in.readLong(), in.readInt());
+            case WAITLIST_LEFT -> new WaitlistLeft(in.readInt());
+            default -> throw new IOException("Unknown event type " + type);
+        };
+    }
+
+    /**
+     * A reservation as the event log knows it.
+     */
+    record Booking(int id, String name, long customer, LocalDate date, String time, int guests, String specialRequests) {
+        void write(DataOutput out) throws IOException {
+            out.writeInt(id);
+            out.writeUTF(name);
+            out.writeLong(customer);
+            out.writeLong(date.toEpochDay());
+            out.writeUTF(time);
+            out.writeInt(guests);
+            out.writeUTF(specialRequests == null ? "" : specialRequests);
+        }
+
+        static Booking read(DataInput in) throws IOException {
+            return new Booking(in.readInt(), in.readUTF(), in.readLong(), LocalDate.ofEpochDay(in.readLong()),
+                    in.readUTF(), in.readInt(), in.readUTF());
+        }
+    }
+
+    record Reserved(Booking booking) implements ReservationEvent {
+        public byte type() {
+            return RESERVED;
+        }
+
+        public void write(DataOutput out) throws IOException {
+            booking.write(out);
+        }
+    }
+
+    //Replaces every field of an existing reservation
+    record Updated(Booking booking) implements ReservationEvent {
+        public byte type() {
+            return UPDATED;
+        }
+
+        public void write(DataOutput out) throws IOException {
+            booking.write(out);
+        }
+    }
+
+    record Cancelled(int id) implements ReservationEvent {
+        public byte type() {
+            return CANCELLED;
+        }
+
+        public void write(DataOutput out) throws IOException {
+            out.writeInt(id);
+        }
+    }
+
+    record WaitlistJoined(int id, String name, long customer, int guests) implements ReservationEvent {
+        public byte type() {
+            return WAITLIST_JOINED;
+        }
+
+        public void write(DataOutput out) throws IOException {
+            out.writeInt(id);
+            out.writeUTF(name);
+            out.writeLong(customer);
+            out.writeInt(guests);
+        }
+    }
+
+    record WaitlistLeft(int id) implements ReservationEvent {
+        public byte type() {
+            return WAITLIST_LEFT;
+        }
+
+        public void write(DataOutput out) throws IOException {
+            out.writeInt(id);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.restaurantsystem.reservation;
+
+import java.time.LocalDate;
+
+/**
+ * Which reservations a manager listing shows: an optional date range, narrowed
+ * to upcoming or past dates. Turns into a half-open range on reservation_date
+ * so the query can seek straight to it.
+ */
+public record ReservationFilter(LocalDate from, LocalDate to, Scope scope) {
+    // Sorts after every yyyy-MM-dd date
+    private static final String OPEN_END = "9999-99-99";
+
+    public static final ReservationFilter ALL = new ReservationFilter(null, null, Scope.ALL);
+
+    public enum Scope { ALL, UPCOMING, PAST }
+
+    //Inclusive lower bound on reservation_date
+    public String lowerBound(LocalDate today) {
+        LocalDate lower = from;
+        if (scope == Scope.UPCOMING && (lower == null || lower.isBefore(today))) {
+            lower = today;
+        }
+        return lower == null ? "" : lower.toString();
+    }
+
+    //Exclusive upper bound on reservation_date
+    public String upperBound(LocalDate today) {
+        LocalDate upper = to == null ? null : to.plusDays(1);
+        if (scope == Scope.PAST && (upper == null || upper.isAfter(today))) {
+            upper = today;
+        }
+        return upper == null ? OPEN_END : upper.toString();
+    }
+}
@@ -0,0 +1,22 @@
+package com.restaurantsystem.reservation;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated reservation listing, with the key to pass
+ * back for the page that follows it.
+ */
+public record ReservationPage(List<Reservation> rows, Key last, boolean more) {
+
+    /**
+     * Position in (date, minute of day, id) order; pages start strictly after it.
+     */
+    public record Key(String date, int minute, int id) {
+        public static final Key START = new Key("", -1, -1);
+        // (date, minute of day, id), the order of the SQL listings and pages
+        public static final Comparator<Key> ORDER = Comparator.comparing(Key::date)
+                .thenComparingInt(Key::minute)
+                .thenComparingInt(Key::id);
+    }
+}
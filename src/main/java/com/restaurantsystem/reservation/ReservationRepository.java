@@ -0,0 +1,152 @@
+package com.restaurantsystem.reservation;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where reservations, the waitlist and manager logins are stored.
+ * {@link ReservationService} does the validation, seating and locking and
+ * hands each change here already resolved: customers are {@link PhoneKey}s and
+ * times are slots of the service schedule. Implementations must be thread-safe
+ * and behave alike; ReservationRepositoryTest holds them to one contract.
+ */
+public interface ReservationRepository extends AutoCloseable {
+
+    //Creates or upgrades the storage and recovers what it holds; returns the schema version, 0 if it has none
+    int migrate() throws SQLException;
+
+    //Timings of the service and of the storage underneath it
+    OperationMetrics metrics();
+
+    //Connection pool figures, or null for storage without a pool
+    default ConnectionPool.PoolStats poolStats() {
+        return null;
+    }
+
+    //Stores a booking the caller has checked fits; NO_TABLE if the storage's own check finds the turn full
+    int insertReservation(String name, long customer, LocalDate date, int slot, int guests, String specialRequests)
+            throws SQLException;
+
+    //Replaces a reservation; null if there is no such reservation, zero rows if the new turn is full
+    Moved updateReservation(int id, String name, long customer, LocalDate date, int slot, int guests, String specialRequests)
+            throws SQLException;
+
+    //Deletes a customer's reservations, only those under one name unless it is null, counting them as cancellations
+    //of their dates; returns their ids, dates, times and party sizes
+    List<Reservation> deleteReservations(long customer, String name) throws SQLException;
+
+    //Bookings of one date in id order, for the seating plan
+    List<AvailabilityIndex.Booking> bookingsOn(LocalDate date) throws SQLException;
+
+    //Bookings of every date from first to last in one read, each date's oldest first; dates without any are left out
+    Map<LocalDate, List<AvailabilityIndex.Booking>> bookingsBetween(LocalDate first, LocalDate last) throws SQLException;
+
+    //The reservation with this id, or null
+    Reservation reservation(int id) throws SQLException;
+
+    //The customer's first reservation under the name from today on, by date, time and then id; failing that their last one before today, or null
+    Reservation findReservation(long customer, String name, LocalDate today) throws SQLException;
+
+    //Up to limit of the customer's reservations strictly before the key, newest first
+    ReservationPage historyPage(long customer, String name, ReservationPage.Key before, int limit) throws SQLException;
+
+    //Every reservation ordered by date and time
+    List<Reservation> listReservations() throws SQLException;
+
+    //Up to limit reservations strictly after the key and dated before the given yyyy-MM-dd, in (date, time, id) order
+    ReservationPage pageReservations(ReservationPage.Key after, String beforeDate, int limit) throws SQLException;
+
+    //The customer behind a key, or null if they have never booked
+    Customer customer(long customer) throws SQLException;
+
+    //Adds a party to the waitlist, noting today's peak length, and returns its entry id
+    int joinWaitlist(String name, long customer, int guests) throws SQLException;
+
+    //Removes a customer from the waitlist and returns the ids of the entries removed
+    List<Integer> leaveWaitlist(long customer) throws SQLException;
+
+    //The customer's first waitlist entry under the name, or null
+    Integer findWaitlistEntry(long customer, String name) throws SQLException;
+
+    //Ids of everyone on the waitlist, in no particular order
+    List<Integer> waitlistIds() throws SQLException;
+
+    //Everyone on the waitlist in order, with their places in line
+    List<WaitlistEntry> listWaitlist() throws SQLException;
+
+    void addManager(String login, String password) throws SQLException;
+
+    boolean authenticateManager(String login, String password) throws SQLException;
+
+    //Every reservation kept, archived ones included, as (epoch day, minute of day, guests), for rebuilding rollups
+    void forEachVisit(VisitSink sink) throws SQLException;
+
+    //Cancellations and waitlist peaks by day, in day order: what the rows no longer tell
+    List<DailyActivity> activity() throws SQLException;
+
+    @Override
+    void close();
+
+    /**
+     * Where an updated reservation used to be and its party size then, and the
+     * rows the update changed.
+     */
+    record Moved(LocalDate from, String fromTime, int fromGuests, int rows) {
+    }
+
+    /**
+     * Cancellations of visits on a day, and the longest the waitlist got that day.
+     */
+    record DailyActivity(LocalDate day, int cancellations, int waitlistPeak) {
+    }
+
+    /**
+     * Receives one reservation at a time from {@link #forEachVisit}.
+     */
+    @FunctionalInterface
+    interface VisitSink {
+        void accept(long epochDay, int minuteOfDay, int guests);
+    }
+
+    /*
+     * The storage named by the booking.store system property:
+     *   sqlite  the database at booking.db, or defaultUrl (the default)
+     *   memory  nothing kept once the process exits
+     *   mapped  an event log in the booking.eventlog directory, copied into the database
+     * Setting booking.eventlog alone selects mapped.
+     */
+    static ReservationRepository configured(String defaultUrl, int poolSize, TableInventory inventory,
+                                            ServiceSchedule schedule) {
+        return configured(defaultUrl, poolSize, inventory, schedule, null);
+    }
+
+    //The same storage for one location's shard, whose database file and event log directory carry its name
+    static ReservationRepository configured(String defaultUrl, int poolSize, TableInventory inventory,
+                                            ServiceSchedule schedule, String location) {
+        String eventLog = System.getProperty("booking.eventlog");
+        String store = System.getProperty("booking.store", eventLog == null ? "sqlite" : "mapped");
+        String url = shardUrl(System.getProperty("booking.db", defaultUrl), location);
+        Path events = Path.of(eventLog == null ? "events" : eventLog);
+        return switch (store) {
+            case "sqlite" -> new SqliteRepository(new ConnectionPool(url, poolSize), inventory, schedule);
+            case "memory" -> new InMemoryRepository(schedule);
+            case "mapped" -> new MappedRepository(location == null ? events : events.resolve(location), schedule,
+                    new SqliteRepository(new ConnectionPool(url, poolSize), inventory, schedule));
+            default -> throw new IllegalArgumentException("Unknown booking.store: " + store);
+        };
+    }
+
+    //jdbc:sqlite:reservations.db becomes jdbc:sqlite:reservations-downtown.db for the downtown shard
+    static String shardUrl(String url, String location) {
+        if (location == null) {
+            return url;
+        }
+        int dot = url.lastIndexOf('.');
+        return dot > url.lastIndexOf('/') && dot > url.lastIndexOf(':')
+                ? url.substring(0, dot) + "-" + location + url.substring(dot)
+                : url + "-" + location;
+    }
+}
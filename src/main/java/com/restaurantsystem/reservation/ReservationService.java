@@ -0,0 +1,511 @@
+package com.restaurantsystem.reservation;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import com.restaurantsystem.reservation.OperationMetrics.Operation;
+
+/**
+ * The booking operations of the restaurant, independent of any user interface.
+ * The Swing front end and the HTTP API both call this class; it is thread-safe.
+ * It validates requests, keeps the seating plan and the waitlist order in
+ * memory and locks the slots a booking covers; what is stored, and where, is up
+ * to its {@link ReservationRepository}.
+ */
+public class ReservationService implements AutoCloseable {
+    public static final int NO_TABLE = -1;
+    public static final int TURN_MINUTES = 90;
+
+    private final ReservationRepository repository;
+    private final ServiceSchedule schedule;
+    private final int turnSlots;
+    private final AvailabilityIndex availability;
+    private final WaitlistEngine waitlist;
+    private final SlotLocks slotLocks = new SlotLocks(256);
+    private final OperationMetrics metrics;
+    private final OccupancyRollups rollups;
+
+    public ReservationService(String dbUrl, int poolSize) {
+        this(dbUrl, poolSize, ServiceSchedule.defaultSchedule());
+    }
+
+    public ReservationService(String dbUrl, int poolSize, ServiceSchedule schedule) {
+        this(new ConnectionPool(dbUrl, poolSize), TableInventory.defaultLayout(), schedule);
+    }
+
+    public ReservationService(ConnectionPool pool, TableInventory inventory) {
+        this(pool, inventory, ServiceSchedule.defaultSchedule());
+    }
+
+    public ReservationService(ConnectionPool pool, TableInventory inventory, ServiceSchedule schedule) {
+        this(new SqliteRepository(pool, inventory, schedule), inventory, schedule);
+    }
+
+    public ReservationService(ReservationRepository repository, TableInventory inventory, ServiceSchedule schedule) {
+        this.repository = repository;
+        this.schedule = schedule;
+        this.turnSlots = schedule.turnSlots(TURN_MINUTES);
+        this.metrics = repository.metrics();
+        this.availability = new AvailabilityIndex(60, inventory, schedule.count(), turnSlots,
+                this::loadBookings, this::loadBookingRange);
+        this.waitlist = new WaitlistEngine(this::loadWaitlistIds);
+        this.rollups = new OccupancyRollups(schedule);
+    }
+
+    //A service over the storage chosen by system properties, see ReservationRepository.configured
+    public static ReservationService configured(String defaultUrl, int poolSize, ServiceSchedule schedule) {
+        return configured(defaultUrl, poolSize, schedule, null);
+    }
+
+    //A service over one location's shard of the configured storage
+    public static ReservationService configured(String defaultUrl, int poolSize, ServiceSchedule schedule, String location) {
+        TableInventory inventory = TableInventory.defaultLayout();
+        return new ReservationService(ReservationRepository.configured(defaultUrl, poolSize, inventory, schedule, location),
+                inventory, schedule);
+    }
+
+    //Creates or upgrades the storage, recovers what it holds and counts the occupancy rollups from it
+    public int migrate() throws SQLException {
+        int version = repository.migrate();
+        rollups.rebuild(repository);
+        return version;
+    }
+
+    //Occupancy counted so far; kept current by every booking change
+    public OccupancyRollups rollups() {
+        return rollups;
+    }
+
+    //Counts the occupancy rollups again from the stored visits
+    public void rebuildRollups() throws SQLException {
+        rollups.rebuild(repository);
+    }
+
+    public ReservationRepository repository() {
+        return repository;
+    }
+
+    public static boolean isValidPhoneNumber(String phone) {
+        return PhoneKey.isValid(phone);
+    }
+
+    public OperationMetrics metrics() {
+        return metrics;
+    }
+
+    //Connection pool figures, or null when the storage has no pool
+    public ConnectionPool.PoolStats poolStats() {
+        return repository.poolStats();
+    }
+
+    public TableInventory inventory() {
+        return availability.inventory();
+    }
+
+    public ServiceSchedule schedule() {
+        return schedule;
+    }
+
+    //Slots a party could be seated in, or null if the date is not cached yet
+    public Long cachedAvailability(LocalDate date, int guests) {
+        Long available = availability.cachedAvailability(date, guests);
+        return available == null ? null : available & schedule.bookableSlots(date, LocalDateTime.now());
+    }
+
+    //Bitmask over the schedule's slots of the bookable slots where a party of the given size can be seated
+    public long availability(LocalDate date, int guests) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            long bookable = schedule.bookableSlots(date, LocalDateTime.now());
+            return bookable == 0 ? 0 : availability.availability(date, guests) & bookable;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.AVAILABILITY);
+            throw e;
+        } finally {
+            metrics.record(Operation.AVAILABILITY, start);
+        }
+    }
+
+    //The best open slots for a party over a range of dates, cheapest first; see SlotSearch for the ranking
+    public List<SlotSearch.Suggestion> suggestSlots(SlotSearch search) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            long[] open = availability.availability(search.first(), search.last(), search.guests());
+            LocalDateTime now = LocalDateTime.now();
+            for (int day = 0; day < open.length; day++) {
+                open[day] &= schedule.bookableSlots(search.first().plusDays(day), now);
+            }
+            List<SlotSearch.Suggestion> suggestions = search.rank(schedule, open);
+            metrics.addRows(Operation.SUGGEST_SLOTS, suggestions.size());
+            return suggestions;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.SUGGEST_SLOTS);
+            throw e;
+        } finally {
+            metrics.record(Operation.SUGGEST_SLOTS, start);
+        }
+    }
+
+    //Books a table and returns the new reservation id, or NO_TABLE if the party does not fit
+    @SuppressWarnings("try")
+    public int reserve(String name, String phone, LocalDate date, String time, int guests, String specialRequests) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            int slot = requireSlot(date, time, guests);
+            // Check and insert as one step for every slot the party's turn covers
+            try (SlotLocks.Held ignored = lockTurn(date, slot)) {
+                if (!availability.fits(date, slot, guests)) {
+                    return NO_TABLE;
+                }
+                long customer = requireCustomer(phone);
+                int id = repository.insertReservation(name, customer, date, slot, guests, specialRequests);
+                if (id == NO_TABLE) {
+                    // Another process filled the slot behind our back; reread the date next time
+                    availability.invalidate(date);
+                    return NO_TABLE;
+                }
+                availability.recordBooking(date, id, slot, guests);
+                rollups.recordBooking(date, time, guests);
+                return id;
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.RESERVE);
+            throw e;
+        } finally {
+            metrics.record(Operation.RESERVE, start);
+        }
+    }
+
+    //Changes an existing reservation; returns the rows updated, or NO_TABLE if the new time does not fit
+    @SuppressWarnings("try")
+    public int update(int id, String name, String phone, LocalDate date, String time, int guests, String specialRequests) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            int slot = requireSlot(date, time, guests);
+            long customer = requireCustomer(phone);
+            try (SlotLocks.Held ignored = lockTurn(date, slot)) {
+                if (!availability.fitsReplacing(date, id, slot, guests)) {
+                    return NO_TABLE;
+                }
+                ReservationRepository.Moved moved = repository.updateReservation(id, name, customer, date, slot, guests, specialRequests);
+                if (moved == null) {
+                    return 0;
+                }
+                if (moved.rows() == 0) {
+                    availability.invalidate(date);
+                    return NO_TABLE;
+                }
+                // Move the booking in the availability index
+                availability.recordCancellation(moved.from(), id);
+                availability.recordBooking(date, id, slot, guests);
+                rollups.recordMove(moved.from(), moved.fromTime(), moved.fromGuests(), date, time, guests);
+                return moved.rows();
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.UPDATE);
+            throw e;
+        } finally {
+            metrics.record(Operation.UPDATE, start);
+        }
+    }
+
+    private SlotLocks.Held lockTurn(LocalDate date, int slot) {
+        return slotLocks.lock(date, slot, Math.min(slot + turnSlots, schedule.count()) - 1);
+    }
+
+    //Resolves a time label to its slot once; everything after compares slot indices
+    private int requireSlot(LocalDate date, String time, int guests) {
+        int slot = schedule.indexOf(time);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Unknown reservation time: " + time);
+        }
+        if ((schedule.openSlots(date) & (1L << slot)) == 0) {
+            throw new IllegalArgumentException("The restaurant does not seat guests at " + time + " on " + date);
+        }
+        if (!schedule.isBookable(date, slot, LocalDateTime.now())) {
+            throw new IllegalArgumentException(time + " on " + date + " has passed or is too soon to book");
+        }
+        if (guests < 1) {
+            throw new IllegalArgumentException("Guest count must be positive");
+        }
+        return slot;
+    }
+
+    //The customer key of a phone number given for a booking
+    private static long requireCustomer(String phone) {
+        long customer = PhoneKey.of(phone);
+        if (customer == PhoneKey.NONE) {
+            throw new IllegalArgumentException("Not a phone number: " + phone);
+        }
+        return customer;
+    }
+
+    //The customer behind a phone number, or null if they have never booked
+    public Customer customer(String phone) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Customer customer = repository.customer(PhoneKey.of(phone));
+            if (customer != null) {
+                metrics.addRows(Operation.SEARCH, 1);
+            }
+            return customer;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.SEARCH);
+            throw e;
+        } finally {
+            metrics.record(Operation.SEARCH, start);
+        }
+    }
+
+    //Finds the customer's reservation, falling back to their place on the waitlist
+    public SearchResult search(String name, String phone) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            long customer = PhoneKey.of(phone);
+            Reservation reservation = repository.findReservation(customer, name, LocalDate.now());
+            if (reservation != null) {
+                metrics.addRows(Operation.SEARCH, 1);
+                return new SearchResult(reservation, null);
+            }
+            Integer entryId = repository.findWaitlistEntry(customer, name);
+            if (entryId == null) {
+                return new SearchResult(null, null);
+            }
+            // The live position is the entry's rank among everyone still waiting
+            int position = waitlist.position(entryId);
+            return new SearchResult(null, position > 0 ? position : null);
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.SEARCH);
+            throw e;
+        } finally {
+            metrics.record(Operation.SEARCH, start);
+        }
+    }
+
+    //True if the reservation exists and is booked under this name and phone number, matched as cancel matches them
+    public boolean holdsReservation(String name, String phone, int id) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Reservation reservation = repository.reservation(id);
+            return reservation != null && reservation.name().equals(name)
+                    && PhoneKey.of(reservation.phone()) == requireCustomer(phone);
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.SEARCH);
+            throw e;
+        } finally {
+            metrics.record(Operation.SEARCH, start);
+        }
+    }
+
+    //One page of a customer's past visits, newest first, before the given key (START for the first page)
+    public ReservationPage historyPage(String name, String phone, ReservationPage.Key before, int limit) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            // Everything before tomorrow counts as history, today's visits included
+            ReservationPage.Key from = before.equals(ReservationPage.Key.START)
+                    ? new ReservationPage.Key(LocalDate.now().plusDays(1).toString(), -1, -1) : before;
+            ReservationPage page = repository.historyPage(PhoneKey.of(phone), name, from, limit);
+            metrics.addRows(Operation.HISTORY, page.rows().size());
+            // An empty first page hands back the key it was given
+            return page.rows().isEmpty() ? new ReservationPage(page.rows(), before, false) : page;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.HISTORY);
+            throw e;
+        } finally {
+            metrics.record(Operation.HISTORY, start);
+        }
+    }
+
+    public int cancel(String name, String phone) throws SQLException {
+        return deleteReservations(PhoneKey.of(phone), name);
+    }
+
+    public int cancelByPhone(String phone) throws SQLException {
+        return deleteReservations(PhoneKey.of(phone), null);
+    }
+
+    //Deletes a customer's reservations, only those under one name unless it is null, and frees their tables
+    private int deleteReservations(long customer, String name) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            List<Reservation> cancelled = repository.deleteReservations(customer, name);
+            for (Reservation reservation : cancelled) {
+                LocalDate date = LocalDate.parse(reservation.date());
+                availability.recordCancellation(date, reservation.id());
+                rollups.recordCancellation(date, reservation.time(), reservation.guests());
+            }
+            metrics.addRows(Operation.CANCEL, cancelled.size());
+            return cancelled.size();
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.CANCEL);
+            throw e;
+        } finally {
+            metrics.record(Operation.CANCEL, start);
+        }
+    }
+
+    //Adds a party to the waitlist and returns its entry id
+    public int joinWaitlist(String name, String phone, int guests) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            long customer = requireCustomer(phone);
+            int id = repository.joinWaitlist(name, customer, guests);
+            waitlist.recordJoin(id);
+            rollups.recordWaitlistLength(LocalDate.now(), waitlist.size());
+            return id;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.JOIN_WAITLIST);
+            throw e;
+        } finally {
+            metrics.record(Operation.JOIN_WAITLIST, start);
+        }
+    }
+
+    //1-based place of a waitlist entry, or -1 if it is no longer waiting
+    public int waitlistPosition(int entryId) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return waitlist.position(entryId);
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.WAITLIST_POSITION);
+            throw e;
+        } finally {
+            metrics.record(Operation.WAITLIST_POSITION, start);
+        }
+    }
+
+    //Removes a phone number from the waitlist; everyone behind moves up automatically
+    public int leaveWaitlist(String phone) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            long customer = PhoneKey.of(phone);
+            List<Integer> ids = repository.leaveWaitlist(customer);
+            for (int id : ids) {
+                waitlist.recordRemoval(id);
+            }
+            metrics.addRows(Operation.LEAVE_WAITLIST, ids.size());
+            return ids.size();
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.LEAVE_WAITLIST);
+            throw e;
+        } finally {
+            metrics.record(Operation.LEAVE_WAITLIST, start);
+        }
+    }
+
+    public boolean authenticateManager(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return repository.authenticateManager(username, password);
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.AUTHENTICATE);
+            throw e;
+        } finally {
+            metrics.record(Operation.AUTHENTICATE, start);
+        }
+    }
+
+    //Every reservation ordered by date and time
+    public List<Reservation> listReservations() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            List<Reservation> reservations = repository.listReservations();
+            metrics.addRows(Operation.LIST_RESERVATIONS, reservations.size());
+            return reservations;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.LIST_RESERVATIONS);
+            throw e;
+        } finally {
+            metrics.record(Operation.LIST_RESERVATIONS, start);
+        }
+    }
+
+    //One page of reservations matching the filter, in (date, time, id) order after the given key
+    public ReservationPage pageReservations(ReservationFilter filter, ReservationPage.Key after, int limit) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            LocalDate today = LocalDate.now();
+            String lower = filter.lowerBound(today);
+            // Starting the key at the filter's first date lets one index seek serve both
+            ReservationPage.Key from = after.date().compareTo(lower) < 0 ? new ReservationPage.Key(lower, -1, -1) : after;
+            ReservationPage page = repository.pageReservations(from, filter.upperBound(today), limit);
+            metrics.addRows(Operation.PAGE_RESERVATIONS, page.rows().size());
+            return page.rows().isEmpty() ? new ReservationPage(page.rows(), after, false) : page;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.PAGE_RESERVATIONS);
+            throw e;
+        } finally {
+            metrics.record(Operation.PAGE_RESERVATIONS, start);
+        }
+    }
+
+    //Everyone on the waitlist in order, with their computed positions
+    public List<WaitlistEntry> listWaitlist() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            List<WaitlistEntry> entries = repository.listWaitlist();
+            metrics.addRows(Operation.LIST_WAITLIST, entries.size());
+            return entries;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.LIST_WAITLIST);
+            throw e;
+        } finally {
+            metrics.record(Operation.LIST_WAITLIST, start);
+        }
+    }
+
+    //Retrieves the bookings of every date from first to last for the seating plans, in one read
+    private Map<LocalDate, List<AvailabilityIndex.Booking>> loadBookingRange(LocalDate first, LocalDate last) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Map<LocalDate, List<AvailabilityIndex.Booking>> bookings = repository.bookingsBetween(first, last);
+            for (List<AvailabilityIndex.Booking> day : bookings.values()) {
+                metrics.addRows(Operation.LOAD_BOOKINGS, day.size());
+            }
+            return bookings;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.LOAD_BOOKINGS);
+            throw e;
+        } finally {
+            metrics.record(Operation.LOAD_BOOKINGS, start);
+        }
+    }
+
+    //Retrieves the bookings of a date for the seating plan
+    private List<AvailabilityIndex.Booking> loadBookings(LocalDate date) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            List<AvailabilityIndex.Booking> bookings = repository.bookingsOn(date);
+            metrics.addRows(Operation.LOAD_BOOKINGS, bookings.size());
+            return bookings;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.LOAD_BOOKINGS);
+            throw e;
+        } finally {
+            metrics.record(Operation.LOAD_BOOKINGS, start);
+        }
+    }
+
+    //Retrieves the ids of everyone on the waitlist
+    private List<Integer> loadWaitlistIds() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            List<Integer> ids = repository.waitlistIds();
+            metrics.addRows(Operation.LOAD_WAITLIST, ids.size());
+            return ids;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(Operation.LOAD_WAITLIST);
+            throw e;
+        } finally {
+            metrics.record(Operation.LOAD_WAITLIST, start);
+        }
+    }
+
+    @Override
+    public void close() {
+        repository.close();
+    }
+}
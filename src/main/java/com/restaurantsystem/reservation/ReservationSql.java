@@ -0,0 +1,170 @@
+package com.restaurantsystem.reservation;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SQL used against reservations.db, kept in one place so the schema tests can
+ * check every hot query against the indexes created by {@link SchemaMigrator}.
+ */
+public final class ReservationSql {
+    public static final String INSERT_RESERVATION =
+            "INSERT INTO reservations (name, customer_id, reservation_date, reservation_time, guests, specialRequests) VALUES (?, ?, ?, ?, ?, ?)";
+    //Creates the customer or refreshes the name they go by
+    public static final String UPSERT_CUSTOMER =
+            "INSERT INTO customers (id, name) VALUES (?, ?) ON CONFLICT (id) DO UPDATE SET name = excluded.name";
+    public static final String ADD_CUSTOMER =
+            "INSERT INTO customers (id, name) VALUES (?, ?) ON CONFLICT (id) DO NOTHING";
+    public static final String COUNT_BOOKING =
+            "UPDATE customers SET bookings = bookings + 1 WHERE id = ?";
+    public static final String FIND_CUSTOMER =
+            "SELECT id, name, bookings FROM customers WHERE id = ?";
+    public static final String LIST_CUSTOMERS =
+            "SELECT id, name, bookings FROM customers";
+    public static final String LAST_INSERT_ID = "SELECT last_insert_rowid()";
+    public static final String BOOKINGS_FOR_DATE =
+            "SELECT id, reservation_minute, guests FROM reservations WHERE reservation_date = ? ORDER BY id";
+    //Every booking of a date range in index order; the seating plans want each date's oldest first
+    public static final String BOOKINGS_BETWEEN =
+            "SELECT reservation_date, id, reservation_minute, guests FROM reservations " +
+            "WHERE reservation_date BETWEEN ? AND ? ORDER BY reservation_date, reservation_minute, id";
+    public static final String RESERVATION_BY_ID =
+            "SELECT * FROM reservations WHERE id = ?";
+    //The customer's first reservation under the name on or after a date
+    public static final String NEXT_RESERVATION =
+            "SELECT * FROM reservations WHERE customer_id = ? AND name = ? AND reservation_date >= ? " +
+            "ORDER BY reservation_date, reservation_minute, id LIMIT 1";
+    //The customer's last reservation under the name before a date
+    public static final String LAST_RESERVATION =
+            "SELECT * FROM reservations WHERE customer_id = ? AND name = ? AND reservation_date < ? " +
+            "ORDER BY reservation_date DESC, reservation_minute DESC, id DESC LIMIT 1";
+    //Keyset page of a customer's visits strictly before (date, minute, id), newest first
+    public static final String RESERVATION_HISTORY =
+            "SELECT id, name, customer_id, guests, reservation_date, reservation_time, specialRequests, reservation_minute " +
+            "FROM reservations WHERE customer_id = ? AND name = ? AND (reservation_date, reservation_minute, id) < (?, ?, ?) " +
+            "ORDER BY reservation_date DESC, reservation_minute DESC, id DESC LIMIT ?";
+    public static final String RESERVATION_DATE =
+            "SELECT reservation_date, reservation_time, guests FROM reservations WHERE id = ?";
+    public static final String UPDATE_RESERVATION =
+            "UPDATE reservations SET name = ?, customer_id = ?, reservation_date = ?, reservation_time = ?, guests = ?, specialRequests = ? WHERE id = ?";
+    //Capacity backstop: true while another party still fits among those seated during one slot
+    private static final String ROOM_AT_SLOT =
+            "(SELECT COUNT(*) < ? AND TOTAL(guests) + ? <= ? FROM reservations " +
+            "WHERE reservation_date = ? AND reservation_minute IN (%s)%s)";
+    public static final String RESERVATIONS_BY_NAME_PHONE =
+            "SELECT id, reservation_date, reservation_time, guests FROM reservations WHERE customer_id = ? AND name = ?";
+    public static final String DELETE_BY_NAME_PHONE =
+            "DELETE FROM reservations WHERE customer_id = ? AND name = ?";
+    public static final String RESERVATIONS_BY_PHONE =
+            "SELECT id, reservation_date, reservation_time, guests FROM reservations WHERE customer_id = ?";
+    public static final String DELETE_BY_PHONE =
+            "DELETE FROM reservations WHERE customer_id = ?";
+    public static final String LIST_RESERVATIONS =
+            "SELECT * FROM reservations ORDER BY reservation_date, reservation_minute, id";
+    //Keyset page: rows strictly after (date, minute, id) and before an end date, in that order
+    public static final String PAGE_RESERVATIONS =
+            "SELECT id, name, customer_id, reservation_date, reservation_time, guests, specialRequests, reservation_minute " +
+            "FROM reservations WHERE (reservation_date, reservation_minute, id) > (?, ?, ?) AND reservation_date < ? " +
+            "ORDER BY reservation_date, reservation_minute, id LIMIT ?";
+
+    public static final String WAITLIST_ENTRY =
+            "SELECT id FROM waitlist WHERE customer_id = ? AND name = ? ORDER BY id LIMIT 1";
+    public static final String JOIN_WAITLIST =
+            "INSERT INTO waitlist (name, customer_id, guests) VALUES (?, ?, ?)";
+    public static final String WAITLIST_IDS_BY_PHONE =
+            "SELECT id FROM waitlist WHERE customer_id = ?";
+    public static final String DELETE_FROM_WAITLIST =
+            "DELETE FROM waitlist WHERE customer_id = ?";
+    public static final String WAITLIST_IDS =
+            "SELECT id FROM waitlist";
+    public static final String LIST_WAITLIST =
+            "SELECT * FROM waitlist ORDER BY id";
+
+    //Event log projection: rows are copied with the ids the log assigned
+    public static final String INSERT_RESERVATION_WITH_ID =
+            "INSERT INTO reservations (id, name, customer_id, reservation_date, reservation_time, guests, specialRequests) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    public static final String DELETE_RESERVATION =
+            "DELETE FROM reservations WHERE id = ?";
+    public static final String INSERT_WAITLIST_WITH_ID =
+            "INSERT INTO waitlist (id, name, customer_id, guests) VALUES (?, ?, ?, ?)";
+    public static final String DELETE_WAITLIST_ENTRY =
+            "DELETE FROM waitlist WHERE id = ?";
+    public static final String PROJECTED_SEQ =
+            "SELECT seq FROM event_projection WHERE id = 1";
+    public static final String SAVE_PROJECTED_SEQ =
+            "INSERT INTO event_projection (id, seq) VALUES (1, ?) ON CONFLICT (id) DO UPDATE SET seq = excluded.seq";
+    //Next AUTOINCREMENT values, so ids handed out by the event log continue where the tables stopped
+    public static final String ID_SEQUENCES =
+            "SELECT name, seq FROM sqlite_sequence";
+
+    //Archive tier: the oldest live rows before a date move over in batches, in (date, minute, id) order
+    private static final String OLDEST_BEFORE =
+            "FROM reservations WHERE reservation_date < ? ORDER BY reservation_date, reservation_minute, id LIMIT ?";
+    public static final String ARCHIVE_OLDEST =
+            "INSERT INTO reservation_archive (customer_id, name, reservation_date, reservation_minute, id, guests, specialRequests) " +
+            "SELECT IFNULL(customer_id, -1), name, reservation_date, reservation_minute, id, guests, specialRequests " + OLDEST_BEFORE;
+    public static final String DELETE_OLDEST =
+            "DELETE FROM reservations WHERE id IN (SELECT id " + OLDEST_BEFORE + ")";
+    //Keyset page of a customer's archived visits, the same shape and order as RESERVATION_HISTORY
+    public static final String ARCHIVE_HISTORY =
+            "SELECT id, name, customer_id, guests, reservation_date, reservation_minute, specialRequests " +
+            "FROM reservation_archive WHERE customer_id = ? AND name = ? AND (reservation_date, reservation_minute, id) < (?, ?, ?) " +
+            "ORDER BY reservation_date DESC, reservation_minute DESC, id DESC LIMIT ?";
+
+    //Occupancy rollups: every visit in both tiers for a rebuild, and the tallies rows cannot tell afterwards
+    public static final String ALL_VISITS =
+            "SELECT CAST(julianday(reservation_date) - 2440587.5 AS INTEGER), reservation_minute, guests FROM reservations " +
+            "UNION ALL SELECT CAST(julianday(reservation_date) - 2440587.5 AS INTEGER), reservation_minute, guests FROM reservation_archive";
+    public static final String COUNT_CANCELLATIONS =
+            "INSERT INTO daily_activity (day, cancellations) VALUES (?, ?) " +
+            "ON CONFLICT (day) DO UPDATE SET cancellations = cancellations + excluded.cancellations";
+    public static final String RAISE_WAITLIST_PEAK =
+            "INSERT INTO daily_activity (day, waitlist_peak) VALUES (?, ?) " +
+            "ON CONFLICT (day) DO UPDATE SET waitlist_peak = MAX(waitlist_peak, excluded.waitlist_peak)";
+    public static final String WAITLIST_LENGTH =
+            "SELECT COUNT(*) FROM waitlist";
+    public static final String LIST_ACTIVITY =
+            "SELECT day, cancellations, waitlist_peak FROM daily_activity ORDER BY day";
+
+    public static final String AUTHENTICATE_MANAGER =
+            "SELECT * FROM managers WHERE login_id = ? AND password = ?";
+    public static final String ADD_MANAGER =
+            "INSERT INTO managers (login_id, password) VALUES (?, ?)";
+
+    //Inserts a reservation only if every slot of its turn still has room for it
+    public static String insertReservationIfRoom(int turnSlots) {
+        return "INSERT INTO reservations (name, customer_id, reservation_date, reservation_time, guests, specialRequests) " +
+                "SELECT ?, ?, ?, ?, ?, ? WHERE " + roomDuringTurn(turnSlots, "");
+    }
+
+    //Moves a reservation only if every slot of its new turn has room for it, not counting itself
+    public static String updateReservationIfRoom(int turnSlots) {
+        return UPDATE_RESERVATION + " AND " + roomDuringTurn(turnSlots, " AND id <> ?");
+    }
+
+    //One capacity check per slot of the turn, each over the parties whose own turn covers that slot
+    private static String roomDuringTurn(int turnSlots, String exclude) {
+        String check = String.format(ROOM_AT_SLOT, String.join(", ", Collections.nCopies(turnSlots, "?")), exclude);
+        return String.join(" AND ", Collections.nCopies(turnSlots, check));
+    }
+
+    private static final int DEFAULT_TURN_SLOTS = ServiceSchedule.defaultSchedule().turnSlots(ReservationService.TURN_MINUTES);
+
+    //Point lookups that must be answered from an index
+    public static final List<String> LOOKUP_QUERIES = List.of(
+            BOOKINGS_FOR_DATE, BOOKINGS_BETWEEN, RESERVATION_BY_ID, NEXT_RESERVATION, LAST_RESERVATION,
+            RESERVATION_HISTORY, RESERVATION_DATE, UPDATE_RESERVATION,
+            insertReservationIfRoom(DEFAULT_TURN_SLOTS), updateReservationIfRoom(DEFAULT_TURN_SLOTS),
+            RESERVATIONS_BY_NAME_PHONE, DELETE_BY_NAME_PHONE, RESERVATIONS_BY_PHONE, DELETE_BY_PHONE,
+            WAITLIST_ENTRY, WAITLIST_IDS_BY_PHONE, DELETE_FROM_WAITLIST, AUTHENTICATE_MANAGER,
+            UPSERT_CUSTOMER, ADD_CUSTOMER, COUNT_BOOKING, FIND_CUSTOMER, DELETE_RESERVATION, DELETE_WAITLIST_ENTRY, PROJECTED_SEQ,
+            SAVE_PROJECTED_SEQ, ARCHIVE_OLDEST, DELETE_OLDEST, ARCHIVE_HISTORY,
+            COUNT_CANCELLATIONS, RAISE_WAITLIST_PEAK);
+
+    //Full listings that read every row but must walk an index instead of sorting
+    public static final List<String> ORDERED_LISTINGS = List.of(LIST_RESERVATIONS, PAGE_RESERVATIONS, LIST_WAITLIST,
+            ARCHIVE_OLDEST, ARCHIVE_HISTORY, LIST_ACTIVITY, BOOKINGS_BETWEEN, NEXT_RESERVATION, LAST_RESERVATION);
+
+    private ReservationSql() {
+    }
+}
@@ -0,0 +1,223 @@
+package com.restaurantsystem.reservation;
+
+import javax.swing.table.AbstractTableModel;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Table model that pages reservations in from the database as the table
+ * scrolls. Only the first page is read when it opens; the next page is
+ * prefetched once the last loaded one is on screen (or on {@link #loadMore()}
+ * when prefetching is off), and pages far from the one being viewed are
+ * dropped and read again by their key if scrolled back to. Must only be used
+ * on the event dispatch thread.
+ */
+public class ReservationTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"ID", "Name", "Phone", "Date", "Time", "Guests"};
+    private static final String LOADING = "...";
+
+    private final BackgroundExecutor background;
+    private final int pageSize;
+    private final int maxLoadedPages;
+    private final boolean prefetch;
+    private final Consumer<Throwable> onError;
+    private final List<Page> pages = new ArrayList<>();
+    private PageSource source;
+    private int rowCount;
+    private boolean more;
+    private boolean appending;
+    // Bumped on every reset so pages still loading for an old filter are dropped
+    private int generation;
+
+    public ReservationTableModel(BackgroundExecutor background, int pageSize, int maxLoadedPages, boolean prefetch,
+                                 Consumer<Throwable> onError) {
+        this.background = background;
+        this.pageSize = pageSize;
+        this.maxLoadedPages = Math.max(2, maxLoadedPages);
+        this.prefetch = prefetch;
+        this.onError = onError;
+    }
+
+    //Starts over from the first page of a new source, e.g. after the filter changed
+    public void setSource(PageSource source) {
+        this.source = source;
+        refresh();
+    }
+
+    public void refresh() {
+        generation++;
+        pages.clear();
+        rowCount = 0;
+        more = false;
+        appending = false;
+        fireTableDataChanged();
+        if (source != null) {
+            appendPage(ReservationPage.Key.START);
+        }
+    }
+
+    public boolean hasMore() {
+        return more;
+    }
+
+    //Reads the page after the last one loaded, if there is one
+    public void loadMore() {
+        if (more && !pages.isEmpty()) {
+            appendPage(pages.get(pages.size() - 1).last);
+        }
+    }
+
+    //Number of pages currently held in memory
+    public int loadedPages() {
+        int loaded = 0;
+        for (Page page : pages) {
+            if (page.rows != null) {
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int index = row / pageSize;
+        Page page = pages.get(index);
+        if (prefetch && more && index == pages.size() - 1) {
+            appendPage(page.last);
+        }
+        if (page.rows == null) {
+            reloadPage(index);
+            return LOADING;
+        }
+        int offset = row % pageSize;
+        if (offset >= page.rows.size()) {
+            return "";
+        }
+        Reservation r = page.rows.get(offset);
+        switch (column) {
+            case 0: return r.id();
+            case 1: return r.name();
+            case 2: return r.phone();
+            case 3: return r.date();
+            case 4: return r.time();
+            default: return r.guests();
+        }
+    }
+
+    public Reservation reservationAt(int row) {
+        Page page = pages.get(row / pageSize);
+        int offset = row % pageSize;
+        return page.rows != null && offset < page.rows.size() ? page.rows.get(offset) : null;
+    }
+
+    private void appendPage(ReservationPage.Key after) {
+        if (appending) {
+            return;
+        }
+        appending = true;
+        int expected = generation;
+        PageSource current = source;
+        background.submit(() -> current.load(after, pageSize)).whenCompleteAsync((page, error) -> {
+            if (expected != generation) {
+                return;
+            }
+            appending = false;
+            if (error != null) {
+                onError.accept(unwrap(error));
+                return;
+            }
+            int first = rowCount;
+            Page added = new Page(after);
+            added.rows = page.rows();
+            added.last = page.last();
+            pages.add(added);
+            rowCount += page.rows().size();
+            more = page.more();
+            evictFarFrom(pages.size() - 1);
+            if (rowCount > first) {
+                fireTableRowsInserted(first, rowCount - 1);
+            }
+        }, BackgroundExecutor.EDT);
+    }
+
+    private void reloadPage(int index) {
+        Page page = pages.get(index);
+        if (page.loading) {
+            return;
+        }
+        page.loading = true;
+        int expected = generation;
+        PageSource current = source;
+        background.submit(() -> current.load(page.after, pageSize)).whenCompleteAsync((loaded, error) -> {
+            if (expected != generation) {
+                return;
+            }
+            page.loading = false;
+            if (error != null) {
+                onError.accept(unwrap(error));
+                return;
+            }
+            page.rows = loaded.rows();
+            evictFarFrom(index);
+            fireTableRowsUpdated(index * pageSize, Math.min(rowCount, (index + 1) * pageSize) - 1);
+        }, BackgroundExecutor.EDT);
+    }
+
+    //Drops the loaded pages farthest from the one in view until the budget is met
+    private void evictFarFrom(int index) {
+        while (loadedPages() > maxLoadedPages) {
+            int farthest = -1;
+            for (int i = 0; i < pages.size(); i++) {
+                if (pages.get(i).rows != null && (farthest < 0 || Math.abs(i - index) > Math.abs(farthest - index))) {
+                    farthest = i;
+                }
+            }
+            pages.get(farthest).rows = null;
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * A page of rows; keeps its keys after eviction so it can be read again.
+     */
+    private static final class Page {
+        final ReservationPage.Key after;
+        ReservationPage.Key last;
+        List<Reservation> rows;
+        boolean loading;
+
+        Page(ReservationPage.Key after) {
+            this.after = after;
+        }
+    }
+
+    /**
+     * Reads the page of rows that follows a key.
+     */
+    @FunctionalInterface
+    public interface PageSource {
+        ReservationPage load(ReservationPage.Key after, int limit) throws SQLException;
+    }
+}
@@ -1,20 +1,54 @@
 package com.restaurantsystem.reservation;
 
 import com.toedter.calendar.JDateChooser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.sql.*;
-import java.text.SimpleDateFormat;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Calendar;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.TextStyle;
 import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class RestaurantReservationSystem {
+    private static final Logger LOG = LoggerFactory.getLogger(RestaurantReservationSystem.class);
     private static final String DB_URL = "jdbc:sqlite:reservations.db";
+    private static final int POOL_SIZE = 4;
+    private static final int DEFAULT_PARTY_SIZE = 2;
+    private static final int MANAGER_PAGE_SIZE = 100;
+    private static final int HISTORY_PAGE_SIZE = 25;
+    private static final int STALL_HISTORY = 50;
+    private static final int OCCUPANCY_MONTHS = 12;
+    private static final int SUGGESTION_DAYS = 28;
+    private static final int SUGGESTION_COUNT = 8;
+
+    private final ReservationService service;
+    // Completes once the database is ready, or fails if it cannot be; database work from the window starts after it
+    private final CompletableFuture<Void> ready;
+    private final BackgroundExecutor background = new BackgroundExecutor("db", POOL_SIZE);
+    private final EdtWatchdog watchdog = new EdtWatchdog(Long.getLong("edt.stallMillis", 500), STALL_HISTORY);
 
     private JFrame frame;
     private JTextField customerNameField;
@@ -22,9 +56,10 @@ public class RestaurantReservationSystem {
     private JTextField guestCountField;
     private JDateChooser dateChooser;
     private JTextArea specialRequestsArea;
-    private JPanel timePickerPanel;
-    private JButton selectedButton;
+    private TimeGridPanel timeGrid;
     private JLabel selectedTimeLabel;
+    private DefaultListModel<SlotSearch.Suggestion> suggestions;
+    private JToggleButton[] weekdayToggles;
     
     private JButton searchButton;
     private JButton updateButton;
@@ -34,9 +69,33 @@ public class RestaurantReservationSystem {
     private JButton managerLoginButton;
     
     private int currentReservationId = -1;
+    private int selectedSlot = -1;
+    private CompletableFuture<Long> timeOptionsRequest;
+    private int timeOptionsGeneration;
 
     public RestaurantReservationSystem() {
-        createDatabase();
+        this(ReservationService.configured(DB_URL, POOL_SIZE, loadSchedule(), LocationRouter.configuredLocation()), true);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            LOG.info("{}", service.poolStats());
+            service.close();
+        }));
+    }
+
+    //Opens the window on a service that is already set up, e.g. one shared with the HTTP API
+    public RestaurantReservationSystem(ReservationService service) {
+        this(service, false);
+    }
+
+    /*
+     * With warmUp the database is migrated and the first day's availability
+     * loaded on a background thread while this one builds the window, so the
+     * SQLite driver and Swing load side by side and the frame does not wait
+     * for either.
+     */
+    private RestaurantReservationSystem(ReservationService service, boolean warmUp) {
+        this.service = service;
+        this.ready = warmUp ? background.submit(this::warmUp) : CompletableFuture.completedFuture(null);
+        watchdog.start();
 
         frame = new JFrame("ABC Restaurant Reservation");
         frame.setSize(1000, 600);
@@ -57,14 +116,20 @@ public class RestaurantReservationSystem {
         gbc.gridx = 0; gbc.gridy = 2;
         frame.add(new JLabel("Number of Guests:"), gbc);
         gbc.gridx = 1; frame.add(guestCountField = new JTextField(), gbc);
+        // Availability depends on party size, so refresh the grid as it changes
+        guestCountField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { populateTimeOptions(); }
+            public void removeUpdate(DocumentEvent e) { populateTimeOptions(); }
+            public void changedUpdate(DocumentEvent e) { populateTimeOptions(); }
+        });
 
         gbc.gridx = 0; gbc.gridy = 3;
         frame.add(new JLabel("Reservation Date:"), gbc);
         gbc.gridx = 1; frame.add(dateChooser = new JDateChooser(), gbc);
 
-        Calendar calendar = Calendar.getInstance();
-        dateChooser.setMinSelectableDate(calendar.getTime());
-        dateChooser.setDate(calendar.getTime());
+        Date today = new Date();
+        dateChooser.setMinSelectableDate(today);
+        dateChooser.setDate(today);
 
         dateChooser.addPropertyChangeListener("date", evt -> {
             populateTimeOptions();
@@ -76,9 +141,16 @@ public class RestaurantReservationSystem {
         gbc.gridx = 1; frame.add(selectedTimeLabel = new JLabel("None"), gbc);
 
         gbc.gridx = 0; gbc.gridy = 5; gbc.gridwidth = 2;
-        timePickerPanel = new JPanel();
-        timePickerPanel.setLayout(new GridLayout(3, 4, 10, 10));
-        frame.add(timePickerPanel, gbc);
+        timeGrid = new TimeGridPanel(service.schedule(), new TimeGridPanel.Listener() {
+            public void slotChosen(int slot) { selectSlot(slot); }
+            public void waitlistRequested(int slot) { offerWaitlist(slot); }
+        });
+        frame.add(timeGrid, gbc);
+
+        // Ranked open slots over the coming weeks, beside the grid
+        gbc.gridx = 2; gbc.gridy = 0; gbc.gridheight = 8; gbc.gridwidth = 1; gbc.fill = GridBagConstraints.BOTH;
+        frame.add(createSuggestionPanel(), gbc);
+        gbc.gridx = 0; gbc.gridy = 5; gbc.gridheight = 1; gbc.gridwidth = 2; gbc.fill = GridBagConstraints.HORIZONTAL;
 
         // Adding the Special Requests field
         gbc.gridx = 0; gbc.gridy = 6; gbc.gridwidth = 1;
@@ -100,11 +172,10 @@ public class RestaurantReservationSystem {
                 String phone = phoneField.getText();
                 String guests = guestCountField.getText();
                 Date date = dateChooser.getDate();
-                String timeString = selectedButton != null ? selectedButton.getText() : null;
                 String specialRequests = specialRequestsArea.getText();
 
-                if (validateInputs(name, phone, guests, date, timeString)) {
-                    saveReservation(name, phone, guests, date, timeString, specialRequests);
+                if (validateInputs(name, phone, guests, date, selectedSlot)) {
+                    saveReservation(name, phone, guests, date, service.schedule().label(selectedSlot), specialRequests);
                 }
             }
         });
@@ -167,46 +238,73 @@ public class RestaurantReservationSystem {
         populateTimeOptions();
         setDefaultTimeSlot();
         frame.setVisible(true);
+        reportFirstFrame();
+        reportWarmUpFailure();
     }
-    //Creates a Database
-    private void createDatabase() {
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             Statement stmt = conn.createStatement()) {
-        	// Assuming we are using SQLite
-        	String sql = "CREATE TABLE IF NOT EXISTS reservations (" +
-        	             "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-        	             "name TEXT, " +
-        	             "phoneNumber TEXT, " +
-        	             "partySize INTEGER, " +
-        	             "date TEXT, " +
-        	             "time TEXT, " +
-        	             "specialRequests TEXT)";
-        	stmt.execute(sql);
-        	stmt.executeUpdate(sql);
-
-            sql = "CREATE TABLE IF NOT EXISTS managers (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "login_id TEXT NOT NULL UNIQUE," +
-                    "password TEXT NOT NULL" +
-                    ")";
-            stmt.execute(sql);
-            sql= "CREATE TABLE IF NOT EXISTS waitlist ("+
-            	    "id INTEGER PRIMARY KEY AUTOINCREMENT,"+
-            	    "name TEXT NOT NULL,"+
-            	    "phone TEXT NOT NULL,"+
-            	    "guests INTEGER NOT NULL,"+
-            	    "position INTEGER NOT NULL,"+
-            	    "added_time DATETIME DEFAULT CURRENT_TIMESTAMP)";
-            	stmt.execute(sql);
-
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
+
+    //Creates or upgrades the database, loads today's availability and publishes the metrics
+    private Void warmUp() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            service.migrate();
+            service.availability(LocalDate.now(), DEFAULT_PARTY_SIZE);
+        } catch (SQLException | RuntimeException e) {
+            LOG.error("Database migration failed", e);
+            throw e;
+        }
+        try {
+            service.metrics().registerMBeans("gui");
+        } catch (JMException e) {
+            LOG.warn("Could not publish operation metrics over JMX", e);
         }
+        service.metrics().startLogging("gui", Long.getLong("metrics.period", 60));
+        LOG.info("Database warmed up in {} ms, {} ms after JVM start",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), millisSinceJvmStart());
+        return null;
     }
-    
+
+    /*
+     * Logs when the window became usable, counted from JVM start. With
+     * -Dstartup.exitAfterFirstFrame=true the app exits once the warm-up is
+     * done too, for timing scripts and the appcds profile's training run.
+     */
+    private void reportFirstFrame() {
+        // Queued behind the paint events setVisible posted
+        SwingUtilities.invokeLater(() -> {
+            LOG.info("First frame {} ms after JVM start", millisSinceJvmStart());
+            if (Boolean.getBoolean("startup.exitAfterFirstFrame")) {
+                ready.whenComplete((done, error) -> System.exit(error == null ? 0 : 1));
+            }
+        });
+    }
+
+    //Tells the user once if the database could not be opened; every later action reports it again
+    private void reportWarmUpFailure() {
+        ready.whenCompleteAsync((done, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                JOptionPane.showMessageDialog(frame, "The reservation database could not be opened: " + cause.getMessage(),
+                        "Database unavailable", JOptionPane.ERROR_MESSAGE);
+            }
+        }, BackgroundExecutor.EDT);
+    }
+
+    static long millisSinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+    //Opening hours from the configured schedule file, or the default hours if it cannot be read
+    private static ServiceSchedule loadSchedule() {
+        try {
+            return ServiceSchedule.configured();
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Could not read the service schedule, using the default hours", e);
+            return ServiceSchedule.defaultSchedule();
+        }
+    }
+
     //Checks if Phone Number is Correct
     private boolean isValidPhoneNumber(String phone) {
-        return phone.matches("\\d{3}-\\d{3}-\\d{4}");
+        return ReservationService.isValidPhoneNumber(phone);
     }
     
     //Checks if Guest Count is Valid
@@ -220,7 +318,7 @@ public class RestaurantReservationSystem {
     }
     
     //Validates the User Input
-    private boolean validateInputs(String name, String phone, String guests, Date date, String time) {
+    private boolean validateInputs(String name, String phone, String guests, Date date, int slot) {
         if (name.isEmpty()) {
             showMessage("Customer name cannot be empty.");
             return false;
@@ -241,12 +339,12 @@ public class RestaurantReservationSystem {
             return false;
         }
 
-        if (time == null) {
+        if (slot < 0) {
             showMessage("Please select a reservation time.");
             return false;
         }
 
-        if (!isFutureDateTime(date, time)) {
+        if (!service.schedule().isBookable(toLocalDate(date), slot, LocalDateTime.now())) {
             showMessage("Please select a future date and time.");
             return false;
         }
@@ -256,168 +354,176 @@ public class RestaurantReservationSystem {
     
     //Saves the reservation into Database
     private void saveReservation(String name, String phone, String guests, Date date, String time, String specialRequests) {
-    	String sql = "INSERT INTO reservations (name, phone, reservation_date, reservation_time, guests, specialRequests) VALUES (?, ?, ?, ?, ?, ?)";
-    	SimpleDateFormat sdfDate = new SimpleDateFormat("yyyy-MM-dd");
-        String formattedDate = sdfDate.format(date);
-
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, name);
-            pstmt.setString(2, phone);
-            pstmt.setString(3, formattedDate);
-            pstmt.setString(4, time);
-            pstmt.setInt(5, Integer.parseInt(guests));
-            pstmt.setString(6, specialRequests);
-            pstmt.executeUpdate();
-            JOptionPane.showMessageDialog(frame, "Reservation made successfully!");
-            clearForm();
+        int guestCount = Integer.parseInt(guests);
+
+        LocalDate reservationDate = toLocalDate(date);
+        // The seating allocator has the final say on whether the party fits
+        inBackground(() -> service.reserve(name, phone, reservationDate, time, guestCount, specialRequests) != ReservationService.NO_TABLE, saved -> {
+            if (saved) {
+                JOptionPane.showMessageDialog(frame, "Reservation made successfully!");
+                clearForm();
+            } else {
+                showMessage("Sorry, there is no table for " + guestCount + " guests at " + time + ". Please choose another time or join the waitlist.");
+            }
             populateTimeOptions(); // Refresh the available times
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
-            JOptionPane.showMessageDialog(frame, "Error saving reservation.");
-        }
+        }, "Error saving reservation.");
     }
-    
+
     //Shows Warning Dialogs
     private void showMessage(String message) {
         JOptionPane.showMessageDialog(frame, message);
     }
+
+    //Runs database work off the EDT and hands the result back to it
+    private <T> CompletableFuture<T> inBackground(BackgroundExecutor.DbTask<T> task, Consumer<T> onSuccess, String errorMessage) {
+        // Work waits for the warm-up rather than find the database unmigrated, and fails with it;
+        // a superseded request is skipped even if it is still waiting
+        CompletableFuture<T> future = background.submitAfter(ready, task);
+        future.whenCompleteAsync((result, error) -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                LOG.error(errorMessage, cause);
+                // A full write queue is worth retrying, so say so rather than report a failure
+                showMessage(cause instanceof SQLTransientException ? cause.getMessage() : errorMessage);
+            } else {
+                onSuccess.accept(result);
+            }
+        }, BackgroundExecutor.EDT);
+        return future;
+    }
     
     //Shows all the available time slots
     private void populateTimeOptions() {
-        timePickerPanel.removeAll();
+        LocalDate selectedDate = dateChooser.getDate() != null ? toLocalDate(dateChooser.getDate()) : LocalDate.now();
 
-        Calendar now = Calendar.getInstance();
-        now.set(Calendar.SECOND, 0);
-        now.set(Calendar.MILLISECOND, 0);
-
-        Calendar selectedDate = Calendar.getInstance();
-        if (dateChooser.getDate() != null) {
-            selectedDate.setTime(dateChooser.getDate());
+        // A newer date selection supersedes any lookup still in flight
+        if (timeOptionsRequest != null) {
+            timeOptionsRequest.cancel(false);
         }
-
-        boolean isToday = selectedDate.get(Calendar.YEAR) == now.get(Calendar.YEAR) &&
-                          selectedDate.get(Calendar.DAY_OF_YEAR) == now.get(Calendar.DAY_OF_YEAR);
-
-        Calendar slotTime = Calendar.getInstance();
-        slotTime.set(Calendar.HOUR_OF_DAY, 11);
-        slotTime.set(Calendar.MINUTE, 30);
-        slotTime.set(Calendar.SECOND, 0);
-        slotTime.set(Calendar.MILLISECOND, 0);
-
-        SimpleDateFormat timeFormat = new SimpleDateFormat("hh:mm a");
-
-        // Fetch booked slots
-        String bookedTimes = getBookedTimes(selectedDate);
-
-        while (slotTime.get(Calendar.HOUR_OF_DAY) < 20 || 
-               (slotTime.get(Calendar.HOUR_OF_DAY) == 20 && slotTime.get(Calendar.MINUTE) <= 30)) {
-
-            String timeString = timeFormat.format(slotTime.getTime());
-            JButton timeButton = new JButton(timeString);
-            timeButton.setPreferredSize(new Dimension(100, 30));
-
-            // Check if the time is booked
-            if (bookedTimes.contains(timeString)) {
-            	timeButton.setEnabled(true);
-            	timeButton.setText("Waitlist");
-            	timeButton.setBackground(Color.RED); // Highlight reserved slots in red
-            	
-            	timeButton.addActionListener(new ActionListener() {
-                    public void actionPerformed(ActionEvent e) {
-                        int response = JOptionPane.showConfirmDialog(frame, 
-                            "This time slot is fully booked. Would you like to join the waitlist?", 
-                            "Join Waitlist", JOptionPane.YES_NO_OPTION);
-
-                        if (response == JOptionPane.YES_OPTION) {
-                        	// Assuming a method to get the number of guests
-                            
-                            joinWaitlist();
-                            JOptionPane.showMessageDialog(frame, "You've been added to the waitlist for " + timeString);
-                        }
-                    }
-                });
-            	
-            } else if (isToday && slotTime.before(now)) {
-                // If it's today and the slot is in the past, disable and gray out the button
-                timeButton.setEnabled(false);
-                timeButton.setBackground(Color.GRAY); // Gray out past times
-            } else {
-                // Available time slots
-                timeButton.setEnabled(true);
-                timeButton.addActionListener(new ActionListener() {
-                    public void actionPerformed(ActionEvent e) {
-                        if (selectedButton != null) {
-                            selectedButton.setBackground(null);
-                        }
-                        timeButton.setBackground(Color.ORANGE);
-                        selectedButton = timeButton;
-                        selectedTimeLabel.setText(timeString);
-                    }
-                });
+        int generation = ++timeOptionsGeneration;
+        int partySize = partySize();
+
+        // Dates already in the availability index render without touching the database
+        Long cached = service.cachedAvailability(selectedDate, partySize);
+        if (cached != null) {
+            timeOptionsRequest = null;
+            renderTimeOptions(selectedDate, cached);
+            return;
+        }
+        timeOptionsRequest = inBackground(() -> service.availability(selectedDate, partySize), available -> {
+            if (generation == timeOptionsGeneration) {
+                renderTimeOptions(selectedDate, available);
             }
+        }, "Error loading available times.");
+    }
+
+    //Party size typed so far, or a default while the field is empty or invalid
+    private int partySize() {
+        String guests = guestCountField.getText().trim();
+        return isValidGuestCount(guests) ? Integer.parseInt(guests) : DEFAULT_PARTY_SIZE;
+    }
+
+    //Updates the time slot buttons for a date in place
+    private void renderTimeOptions(LocalDate selectedDate, long availableSlots) {
+        ServiceSchedule schedule = service.schedule();
+        timeGrid.show(selectedDate, schedule.openSlots(selectedDate),
+                schedule.bookableSlots(selectedDate, LocalDateTime.now()), availableSlots);
+    }
 
-            timePickerPanel.add(timeButton);
-            slotTime.add(Calendar.MINUTE, 30);
+    //The next available list: weekday preferences, a search button and the ranked slots
+    private JPanel createSuggestionPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createTitledBorder("Next Available"));
+
+        JPanel weekdayPanel = new JPanel(new GridLayout(1, 7));
+        weekdayToggles = new JToggleButton[DayOfWeek.values().length];
+        for (DayOfWeek day : DayOfWeek.values()) {
+            JToggleButton toggle = new JToggleButton(day.getDisplayName(TextStyle.NARROW, Locale.getDefault()));
+            toggle.setToolTipText("Prefer " + day.getDisplayName(TextStyle.FULL, Locale.getDefault()));
+            toggle.setMargin(new Insets(1, 1, 1, 1));
+            weekdayToggles[day.ordinal()] = toggle;
+            weekdayPanel.add(toggle);
         }
+        panel.add(weekdayPanel, BorderLayout.NORTH);
 
-        timePickerPanel.revalidate();
-        timePickerPanel.repaint();
+        suggestions = new DefaultListModel<>();
+        JList<SlotSearch.Suggestion> suggestionList = new JList<>(suggestions);
+        suggestionList.setVisibleRowCount(SUGGESTION_COUNT);
+        suggestionList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean selected, boolean focused) {
+                SlotSearch.Suggestion suggestion = (SlotSearch.Suggestion) value;
+                String text = suggestion.date().getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.getDefault())
+                        + " " + suggestion.date() + "  " + suggestion.time();
+                return super.getListCellRendererComponent(list, text, index, selected, focused);
+            }
+        });
+        // Picking a suggestion moves the form to its date and time
+        suggestionList.addListSelectionListener(e -> {
+            SlotSearch.Suggestion chosen = suggestionList.getSelectedValue();
+            if (!e.getValueIsAdjusting() && chosen != null) {
+                dateChooser.setDate(Date.from(chosen.date().atStartOfDay(ZoneId.systemDefault()).toInstant()));
+                selectSlot(service.schedule().indexOf(chosen.time()));
+            }
+        });
+        panel.add(new JScrollPane(suggestionList), BorderLayout.CENTER);
+
+        JButton findButton = new JButton("Find Next Available");
+        findButton.addActionListener(e -> findSuggestions(selectedSlot));
+        panel.add(findButton, BorderLayout.SOUTH);
+        return panel;
     }
-    
-    //Retrieves the booked time slots
-    private String getBookedTimes(Calendar date) {
-        StringBuilder bookedTimes = new StringBuilder();
-        SimpleDateFormat timeFormat = new SimpleDateFormat("hh:mm a");
-
-        String sql = "SELECT reservation_time FROM reservations WHERE reservation_date = ?";
-        SimpleDateFormat sdfDate = new SimpleDateFormat("yyyy-MM-dd");
-        String formattedDate = sdfDate.format(date.getTime());
-
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, formattedDate);
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                bookedTimes.append(rs.getString("reservation_time")).append(",");
+
+    //Fills the suggestion list with the best open slots from the selected date on, closest to a slot's time first
+    private void findSuggestions(int wantedSlot) {
+        ServiceSchedule schedule = service.schedule();
+        LocalDate first = dateChooser.getDate() != null ? toLocalDate(dateChooser.getDate()) : LocalDate.now();
+        Set<DayOfWeek> weekdays = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (weekdayToggles[day.ordinal()].isSelected()) {
+                weekdays.add(day);
             }
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
         }
-        return bookedTimes.toString();
+        SlotSearch search = new SlotSearch(partySize(), first, first.plusDays(SUGGESTION_DAYS - 1),
+                schedule.minuteOfDay(0), schedule.minuteOfDay(schedule.count() - 1),
+                schedule.minuteOfDay(Math.max(wantedSlot, 0)), weekdays, SUGGESTION_COUNT);
+        inBackground(() -> service.suggestSlots(search), found -> {
+            suggestions.clear();
+            suggestions.addAll(found);
+        }, "Error finding open times.");
     }
-    
-    // Checks if the selected time and date is future or not
-    private boolean isFutureDateTime(Date date, String time) {
-        Calendar now = Calendar.getInstance();
-        now.set(Calendar.SECOND, 0);
-        now.set(Calendar.MILLISECOND, 0);
-        
-        Calendar selectedDateTime = Calendar.getInstance();
-        selectedDateTime.setTime(date);
-        selectedDateTime.set(Calendar.HOUR_OF_DAY, Integer.parseInt(time.split(":")[0]));
-        selectedDateTime.set(Calendar.MINUTE, Integer.parseInt(time.split(":")[1].substring(0, 2)));
-        selectedDateTime.set(Calendar.SECOND, 0);
-        selectedDateTime.set(Calendar.MILLISECOND, 0);
-
-        // Check if the selected date is today
-        if (selectedDateTime.get(Calendar.YEAR) == now.get(Calendar.YEAR) &&
-            selectedDateTime.get(Calendar.DAY_OF_YEAR) == now.get(Calendar.DAY_OF_YEAR)) {
-            // If the date is today, check if the time is in the future
-            return selectedDateTime.after(now);
-        } else {
-            // If the date is in the future, return true
-            return selectedDateTime.after(now);
+
+    //Offers the waitlist for a slot where the party cannot be seated, listing the nearest open slots meanwhile
+    private void offerWaitlist(int slot) {
+        findSuggestions(slot);
+        int response = JOptionPane.showConfirmDialog(frame,
+            "This time slot is fully booked. Would you like to join the waitlist?",
+            "Join Waitlist", JOptionPane.YES_NO_OPTION);
+
+        if (response == JOptionPane.YES_OPTION) {
+            joinWaitlist(service.schedule().label(slot));
         }
     }
     
-    // Sets the default time slot to the next available slot
-    private void setDefaultTimeSlot() {
-        Calendar now = Calendar.getInstance();
-        SimpleDateFormat timeFormat = new SimpleDateFormat("hh:mm a");
+    private static LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+    
+    //Remembers the chosen slot and shows its time
+    private void selectSlot(int slot) {
+        selectedSlot = slot;
+        selectedTimeLabel.setText(slot < 0 ? "None" : service.schedule().label(slot));
+        timeGrid.select(slot);
+    }
 
-        String defaultTime = timeFormat.format(now.getTime());
-        selectedTimeLabel.setText(defaultTime);
+    // Sets the default time slot to the next bookable slot of the selected date
+    private void setDefaultTimeSlot() {
+        LocalDate selectedDate = dateChooser.getDate() != null ? toLocalDate(dateChooser.getDate()) : LocalDate.now();
+        long bookable = service.schedule().bookableSlots(selectedDate, LocalDateTime.now());
+        selectSlot(bookable == 0 ? -1 : Long.numberOfTrailingZeros(bookable));
     }
     
     
@@ -431,69 +537,39 @@ public class RestaurantReservationSystem {
             return;
         }
 
-        String sql = "SELECT * FROM reservations WHERE name = ? AND phone = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, name);
-            pstmt.setString(2, phone);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-            	    // Retrieve reservation details
-            	    currentReservationId = rs.getInt("id");
-            	    String reservationDate = rs.getString("reservation_date");
-            	    //String reservationTime = rs.getString("reservation_time");
-            	    //String specialRequests = rs.getString("specialRequests");
-
-            	    // Parse reservation date and time into a single DateTime object
-            	    LocalDate reservationDateTime = LocalDate.parse(reservationDate);
-
-            	    // Get the current date and time
-            	    LocalDate currentDateTime = LocalDate.now();
-
-            	    // Check if the reservation is in the past
-            	    if (reservationDateTime.isBefore(currentDateTime)) {
-            	        showMessage("No upcoming reservations found. You can check your reservation history.");
-            	        reservationHistoryButton.setEnabled(true);
-            	        rs.close();
-            	        return; // Exit the method since it's a past reservation
-            	    }
-                currentReservationId = rs.getInt("id");
-                guestCountField.setText(String.valueOf(rs.getInt("guests")));
-                dateChooser.setDate(new SimpleDateFormat("yyyy-MM-dd").parse(rs.getString("reservation_date")));
-                specialRequestsArea.setText(rs.getString("specialRequests"));
-                selectedTimeLabel.setText(rs.getString("reservation_time"));
-                // Enable the update button
-                updateButton.setEnabled(true);
-                cancelButton.setEnabled(true);
-                reservationHistoryButton.setEnabled(true);
-                removeWaitlistButton.setEnabled(false);
-                showMessage("Reservation found. You can now update the details.");
-                rs.close();
-            } else {
-            	//String phone = phoneField.getText();
-            	sql = "SELECT position FROM waitlist WHERE name = ? AND phone = ?";
-                try (PreparedStatement waitlistPstmt = conn.prepareStatement(sql)) {
-                    waitlistPstmt.setString(1, name);
-                    waitlistPstmt.setString(2, phone);
-                    ResultSet waitlistRs = waitlistPstmt.executeQuery();
-
-                    if (waitlistRs.next()) {
-                        int position = waitlistRs.getInt("position");
-                        JOptionPane.showMessageDialog(frame, "Your waitlist position is: " + position);
-                        removeWaitlistButton.setEnabled(true);
-                    } else {
-                        JOptionPane.showMessageDialog(frame, "No Reservation Found");
-                    }
+        inBackground(() -> service.search(name, phone), this::showSearchResult,
+                "Error retrieving reservation.");
+    }
 
-                    // Close the waitlist ResultSet
-                    waitlistRs.close();}
-                
-            	//showMessage("No reservation found with the provided name and phone number.");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            showMessage("Error retrieving reservation.");
+    //Fills the form from a search result
+    private void showSearchResult(SearchResult result) {
+        Reservation reservation = result.reservation();
+        if (reservation != null) {
+        	    // Retrieve reservation details
+        	    currentReservationId = reservation.id();
+        	    LocalDate reservationDate = LocalDate.parse(reservation.date());
+
+        	    // Check if the reservation is in the past
+        	    if (reservationDate.isBefore(LocalDate.now())) {
+        	        showMessage("No upcoming reservations found. You can check your reservation history.");
+        	        reservationHistoryButton.setEnabled(true);
+        	        return; // Exit the method since it's a past reservation
+        	    }
+            guestCountField.setText(String.valueOf(reservation.guests()));
+            dateChooser.setDate(Date.from(reservationDate.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+            specialRequestsArea.setText(reservation.specialRequests());
+            selectSlot(service.schedule().indexOf(reservation.time()));
+            // Enable the update button
+            updateButton.setEnabled(true);
+            cancelButton.setEnabled(true);
+            reservationHistoryButton.setEnabled(true);
+            removeWaitlistButton.setEnabled(false);
+            showMessage("Reservation found. You can now update the details.");
+        } else if (result.waitlistPosition() != null) {
+            JOptionPane.showMessageDialog(frame, "Your waitlist position is: " + result.waitlistPosition());
+            removeWaitlistButton.setEnabled(true);
+        } else {
+            JOptionPane.showMessageDialog(frame, "No Reservation Found");
         }
     }
     
@@ -501,44 +577,26 @@ public class RestaurantReservationSystem {
     private void viewReservationHistory() {
     	String name = customerNameField.getText();
         String phone = phoneField.getText();
-        String sql = "SELECT id, name, phone, guests, reservation_date, reservation_time " +
-                     "FROM reservations WHERE name = ? AND phone = ? AND datetime(reservation_date) < datetime('now')";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)){
-        		pstmt.setString(1, name); // Replace 'customerName' with the actual name variable
-        	    pstmt.setString(2, phone);
-             try(ResultSet rs = pstmt.executeQuery()) {
-
-            // Table column headers
-            String[] columnNames = {"ID", "Name", "Phone", "Guests", "Date", "Time"};
-            ArrayList<String[]> data = new ArrayList<>();
-            // Fetch data for past reservations only
-            while (rs.next()) {
-                String[] row = {
-                    String.valueOf(rs.getInt("id")),
-                    rs.getString("name"),
-                    rs.getString("phone"),
-                    String.valueOf(rs.getInt("guests")),
-                    rs.getString("reservation_date"),
-                    rs.getString("reservation_time")
-                };
-                data.add(row);
-            }
-
-            // Convert ArrayList to a 2D array for JTable
-            String[][] dataArr = data.toArray(new String[0][0]);
+        // Visits are read a page at a time, newest first, and only when asked for
+        ReservationTableModel model = new ReservationTableModel(background, HISTORY_PAGE_SIZE, 10, false, error -> {
+            LOG.error("Error retrieving reservation history", error);
+            showMessage("Error retrieving reservation history.");
+        });
+        JTable historyTable = new JTable(model);
+        JScrollPane scrollPane = new JScrollPane(historyTable);
 
-            // Display the data in a JTable within a JScrollPane
-            JTable historyTable = new JTable(dataArr, columnNames);
-            JScrollPane scrollPane = new JScrollPane(historyTable);
+        JButton loadMoreButton = new JButton("Load More");
+        loadMoreButton.setEnabled(false);
+        loadMoreButton.addActionListener(e -> model.loadMore());
+        model.addTableModelListener(e -> loadMoreButton.setEnabled(model.hasMore()));
+        model.setSource((before, limit) -> service.historyPage(name, phone, before, limit));
 
-            // Show the table in a dialog
-            JOptionPane.showMessageDialog(frame, scrollPane, "Reservation History", JOptionPane.INFORMATION_MESSAGE);
+        JPanel historyPanel = new JPanel(new BorderLayout());
+        historyPanel.add(scrollPane, BorderLayout.CENTER);
+        historyPanel.add(loadMoreButton, BorderLayout.SOUTH);
 
-        }} catch (SQLException e) {
-            System.out.println(e.getMessage());
-            JOptionPane.showMessageDialog(frame, "Error retrieving reservation history.");
-        }
+        // Show the table in a dialog
+        JOptionPane.showMessageDialog(frame, historyPanel, "Reservation History", JOptionPane.INFORMATION_MESSAGE);
     }
 
     
@@ -548,28 +606,22 @@ public class RestaurantReservationSystem {
         String phone = phoneField.getText();
         String guests = guestCountField.getText();
         Date date = dateChooser.getDate();
-        String timeString = selectedButton != null ? selectedButton.getText() : selectedTimeLabel.getText();
         String specialRequests = specialRequestsArea.getText();
 
-        if (validateInputs(name, phone, guests, date, timeString)) {
-            String sql = "UPDATE reservations SET name = ?, phone = ?, reservation_date = ?, reservation_time = ?, guests = ?, specialRequests = ? WHERE id = ?";
-            try (Connection conn = DriverManager.getConnection(DB_URL);
-                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, name);
-                pstmt.setString(2, phone);
-                pstmt.setString(3, new SimpleDateFormat("yyyy-MM-dd").format(date));
-                pstmt.setString(4, timeString);
-                pstmt.setInt(5, Integer.parseInt(guests));
-                pstmt.setString(6, specialRequests);
-                pstmt.setInt(7, currentReservationId);
-
-                pstmt.executeUpdate();
+        if (validateInputs(name, phone, guests, date, selectedSlot)) {
+            LocalDate reservationDate = toLocalDate(date);
+            String timeString = service.schedule().label(selectedSlot);
+            int guestCount = Integer.parseInt(guests);
+            int reservationId = currentReservationId;
+            inBackground(() -> service.update(reservationId, name, phone, reservationDate, timeString,
+                    guestCount, specialRequests), rows -> {
+                if (rows < 0) {
+                    showMessage("Sorry, there is no table for " + guestCount + " guests at " + timeString + ".");
+                    return;
+                }
                 showMessage("Reservation  successfully!");
                 clearForm();
-            } catch (SQLException e) {
-                e.printStackTrace();
-                showMessage("Error updating reservation.");
-            }
+            }, "Error updating reservation.");
         }
     }
     
@@ -578,10 +630,9 @@ public class RestaurantReservationSystem {
         customerNameField.setText("");
         phoneField.setText("");
         guestCountField.setText("");
-        dateChooser.setDate(Calendar.getInstance().getTime());
+        dateChooser.setDate(new Date());
         specialRequestsArea.setText("");
-        selectedButton = null;
-        selectedTimeLabel.setText("None");
+        selectSlot(-1);
         currentReservationId = -1;
         updateButton.setEnabled(false);
         cancelButton.setEnabled(false);
@@ -594,113 +645,64 @@ public class RestaurantReservationSystem {
     private void cancelReservation() {
     	String name = customerNameField.getText();
         String phone = phoneField.getText();
-    	String sql = "DELETE FROM reservations WHERE name = ? AND phone = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, name);
-            pstmt.setString(2, phone);
-            pstmt.executeUpdate();
+        inBackground(() -> service.cancel(name, phone), rows -> {
             JOptionPane.showMessageDialog(frame, "Cancellation successful!");
             clearForm();
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
-            JOptionPane.showMessageDialog(frame, "Error canceling reservation.");
-        }
+        }, "Error canceling reservation.");
     }
     
-    private void cancelReservation(String phoneNumber) {
-        String sql = "DELETE FROM reservations WHERE phone = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, phoneNumber);
-            int rowsAffected = pstmt.executeUpdate();
+    private void cancelReservation(String phoneNumber, Runnable onCancelled) {
+        inBackground(() -> service.cancelByPhone(phoneNumber), rowsAffected -> {
             if (rowsAffected > 0) {
                 JOptionPane.showMessageDialog(null, "Reservation cancelled successfully.");
+                onCancelled.run();
             } else {
                 JOptionPane.showMessageDialog(null, "No reservation found with that phone number.");
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(null, "Error canceling reservation.");
-        }
+        }, "Error canceling reservation.");
     }
-    
+
     //Join wait list Management
     
     
-    private void joinWaitlist() {
+    private void joinWaitlist(String timeString) {
     	String name = customerNameField.getText();
     	String phone = phoneField.getText();
     	String guests = guestCountField.getText();
-    	String sql = "INSERT INTO waitlist (name, phone, guests, position) VALUES (?, ?, ?, " +
-                     "(SELECT IFNULL(MAX(position), 0) + 1 FROM waitlist))";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, name);
-            pstmt.setString(2, phone);
-            pstmt.setInt(3, Integer.parseInt(guests));
-            pstmt.executeUpdate();
+        inBackground(() -> service.joinWaitlist(name, phone, Integer.parseInt(guests)), id -> {
             JOptionPane.showMessageDialog(frame, "Added to waitlist successfully!");
             //viewWaitlistButton.setEnabled(true);
             removeWaitlistButton.setEnabled(true);
             //resetWaitlistButton();
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
-            JOptionPane.showMessageDialog(frame, "Error adding to waitlist.");
-        }
+            JOptionPane.showMessageDialog(frame, "You've been added to the waitlist for " + timeString);
+        }, "Error adding to waitlist.");
     }
     
     //Remove Wait list
     
     private void removeFromWaitlist() {
     	String phone = phoneField.getText();
-        String sql = "DELETE FROM waitlist WHERE phone = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, phone);
-            int rowsAffected = pstmt.executeUpdate();
+        inBackground(() -> service.leaveWaitlist(phone), rowsAffected -> {
             if (rowsAffected > 0) {
                 JOptionPane.showMessageDialog(frame, "Removed from waitlist successfully!");
                 //viewWaitlistButton.setEnabled(false);
                 removeWaitlistButton.setEnabled(false);
-                updateWaitlistPositions(); // Adjust positions after removal
             } else {
                 JOptionPane.showMessageDialog(frame, "No entry found with that phone number.");
             }
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
-            JOptionPane.showMessageDialog(frame, "Error removing from waitlist.");
-        }
+        }, "Error removing from waitlist.");
     }
     
     private void removeFromWaitlist(String phoneNumber) {
-        String sql = "DELETE FROM waitlist WHERE phone = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, phoneNumber);
-            int rowsAffected = pstmt.executeUpdate();
+        inBackground(() -> service.leaveWaitlist(phoneNumber), rowsAffected -> {
             if (rowsAffected > 0) {
                 JOptionPane.showMessageDialog(null, "Removed from waitlist successfully.");
             } else {
                 JOptionPane.showMessageDialog(null, "No entry found with that phone number.");
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(null, "Error removing from waitlist.");
-        }
-    }
-    
-    //Update Wait list
-    private void updateWaitlistPositions() {
-        String sql = "UPDATE waitlist SET position = position - 1 WHERE position > ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             Statement stmt = conn.createStatement()) {
-            stmt.executeUpdate(sql);
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
-        }
+        }, "Error removing from waitlist.");
     }
-    
+
     //Manager Dialog
     private void openManagerLoginDialog() {
         JDialog loginDialog = new JDialog((Frame) null, "Manager Login", true);
@@ -740,12 +742,14 @@ public class RestaurantReservationSystem {
             public void actionPerformed(ActionEvent e) {
                 String username = userField.getText();
                 String password = passField.getText();
-                if (authenticateManager(username, password)) {
-                    loginDialog.dispose();
-                    openManagerDashboard();
-                } else {
-                    JOptionPane.showMessageDialog(loginDialog, "Invalid credentials", "Login Error", JOptionPane.ERROR_MESSAGE);
-                }
+                inBackground(() -> service.authenticateManager(username, password), authenticated -> {
+                    if (authenticated) {
+                        loginDialog.dispose();
+                        openManagerDashboard();
+                    } else {
+                        JOptionPane.showMessageDialog(loginDialog, "Invalid credentials", "Login Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }, "Error during authentication.");
             }
         });
 
@@ -753,30 +757,6 @@ public class RestaurantReservationSystem {
         loginDialog.setVisible(true);
     }
 
-    private boolean authenticateManager(String username, String password) {
-        String sql = "SELECT * FROM managers WHERE login_id = ? AND password = ?";
-        
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, username);
-            pstmt.setString(2, password);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                // If a match is found, return true for successful authentication
-                return true;
-            } else {
-                // No match found, return false for failed authentication
-                return false;
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(frame, "Error during authentication.");
-            return false;
-        }
-    }
-
-    
     private void openManagerDashboard() {
         JDialog managerDashboard = new JDialog((Frame) null, "Manager Dashboard", true);
         managerDashboard.setSize(300, 100);
@@ -806,9 +786,19 @@ public class RestaurantReservationSystem {
             }
         });
 
+        // Button for reviewing times the window froze
+        JButton uiStallsButton = new JButton("UI Stalls");
+        uiStallsButton.addActionListener(e -> openStallLog());
+
+        // Button for the occupancy heatmap and trends
+        JButton occupancyButton = new JButton("Occupancy");
+        occupancyButton.addActionListener(e -> openOccupancy());
+
         // Add buttons to panel
         buttonPanel.add(manageWaitlistButton);
         buttonPanel.add(manageReservationsButton);
+        buttonPanel.add(uiStallsButton);
+        buttonPanel.add(occupancyButton);
 
         managerDashboard.add(buttonPanel, BorderLayout.SOUTH);
 
@@ -816,31 +806,136 @@ public class RestaurantReservationSystem {
         managerDashboard.setVisible(true);
     }
 
-    
+    //Shows covers by weekday and slot over the last twelve months, read from the rollups rather than the reservations
+    private void openOccupancy() {
+        JDialog occupancyDialog = new JDialog((Frame) null, "Occupancy", true);
+        occupancyDialog.setSize(900, 400);
+        occupancyDialog.setLayout(new BorderLayout());
+
+        ServiceSchedule schedule = service.schedule();
+        String[] columns = new String[schedule.count() + 1];
+        columns[0] = "";
+        for (int slot = 0; slot < schedule.count(); slot++) {
+            columns[slot + 1] = schedule.label(slot);
+        }
+        Object[][] cells = new Object[DayOfWeek.values().length][columns.length];
+        JTable heatmap = new JTable(cells, columns);
+        heatmap.setEnabled(false);
+        heatmap.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        long[] busiest = {1};
+        heatmap.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean selected, boolean focused,
+                                                           int row, int column) {
+                super.getTableCellRendererComponent(table, value, selected, focused, row, column);
+                // Busier cells are a deeper red
+                int shade = value instanceof Long covers ? (int) (200 * covers / busiest[0]) : 0;
+                setBackground(column == 0 ? table.getBackground() : new Color(255, 255 - shade, 255 - shade));
+                return this;
+            }
+        });
+        JTextArea summaryArea = new JTextArea(3, 40);
+        summaryArea.setEditable(false);
+
+        Runnable render = () -> {
+            YearMonth last = YearMonth.now();
+            OccupancyRollups.Report report = service.rollups().report(last.minusMonths(OCCUPANCY_MONTHS - 1), last);
+            busiest[0] = 1;
+            for (int weekday = 0; weekday < cells.length; weekday++) {
+                cells[weekday][0] = DayOfWeek.values()[weekday].getDisplayName(TextStyle.SHORT, Locale.getDefault());
+                for (int slot = 0; slot < schedule.count(); slot++) {
+                    cells[weekday][slot + 1] = report.heatmap()[weekday][slot];
+                    busiest[0] = Math.max(busiest[0], report.heatmap()[weekday][slot]);
+                }
+            }
+            int peak = report.waitlistPeaks().values().stream().mapToInt(Integer::intValue).max().orElse(0);
+            summaryArea.setText(String.format("%s to %s: %d covers from %d bookings, busiest on %s%n"
+                            + "Cancellation rate: %.1f%%, longest waitlist: %d%nCovers by month: %s",
+                    report.first(), report.last(), report.covers(), report.bookings(),
+                    report.busiestWeekday().getDisplayName(TextStyle.FULL, Locale.getDefault()),
+                    100 * report.cancellationRate(), peak, report.coversByMonth()));
+            heatmap.repaint();
+        };
+        render.run();
+        occupancyDialog.add(new JScrollPane(heatmap), BorderLayout.CENTER);
+        occupancyDialog.add(summaryArea, BorderLayout.NORTH);
+
+        JButton rebuildButton = new JButton("Rebuild");
+        rebuildButton.addActionListener(e -> {
+            rebuildButton.setEnabled(false);
+            inBackground(() -> {
+                service.rebuildRollups();
+                return null;
+            }, done -> render.run(), "Error rebuilding occupancy.")
+                    .whenCompleteAsync((done, error) -> rebuildButton.setEnabled(true), BackgroundExecutor.EDT);
+        });
+        occupancyDialog.add(rebuildButton, BorderLayout.SOUTH);
+
+        occupancyDialog.setLocationRelativeTo(null);
+        occupancyDialog.setVisible(true);
+    }
+
+    //Lists recent event dispatch thread stalls with the stack captured for each
+    private void openStallLog() {
+        JDialog stallDialog = new JDialog((Frame) null, "UI Stalls", true);
+        stallDialog.setSize(700, 400);
+        stallDialog.setLayout(new BorderLayout());
+
+        List<EdtWatchdog.Stall> stalls = watchdog.stalls();
+        DefaultListModel<String> summaries = new DefaultListModel<>();
+        for (int i = stalls.size() - 1; i >= 0; i--) {
+            summaries.addElement(stalls.get(i).describe(false));
+        }
+        JList<String> stallList = new JList<>(summaries);
+        JTextArea stackArea = new JTextArea(stalls.isEmpty() ? "No stalls recorded." : "");
+        stackArea.setEditable(false);
+        stallList.addListSelectionListener(e -> {
+            int index = stallList.getSelectedIndex();
+            if (index >= 0) {
+                stackArea.setText(stalls.get(stalls.size() - 1 - index).describe(true));
+                stackArea.setCaretPosition(0);
+            }
+        });
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(stallList), new JScrollPane(stackArea));
+        split.setResizeWeight(0.4);
+        stallDialog.add(split, BorderLayout.CENTER);
+
+        JButton exportButton = new JButton("Export...");
+        exportButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new File("ui-stalls.txt"));
+            if (chooser.showSaveDialog(stallDialog) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    watchdog.export(chooser.getSelectedFile().toPath());
+                } catch (IOException ex) {
+                    LOG.error("Could not export UI stalls", ex);
+                    JOptionPane.showMessageDialog(stallDialog, "Could not export UI stalls.");
+                }
+            }
+        });
+        stallDialog.add(exportButton, BorderLayout.SOUTH);
+
+        stallDialog.setLocationRelativeTo(null);
+        stallDialog.setVisible(true);
+    }
+
     private void openWaitlistManagement() {
         JDialog waitlistDialog = new JDialog((Frame) null, "Manage Waitlist", true);
         waitlistDialog.setSize(400, 300);
         waitlistDialog.setLayout(new BorderLayout());
 
-        JTextArea waitlistInfoArea = new JTextArea();
+        JTextArea waitlistInfoArea = new JTextArea("Loading...");
         waitlistInfoArea.setEditable(false);
-        /*waitlistInfoArea.setText("Waitlist Information...\n");*/
 
         // Fetch and display wait list from the database
-        String sql = "SELECT * FROM waitlist ORDER BY position";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            while (rs.next()) {
-                String name = rs.getString("name");
-                String phone = rs.getString("phone");
-                int position = rs.getInt("position");
-                waitlistInfoArea.append("Position: " + position + ", Name: " + name + ", Phone: " + phone + "\n");
+        inBackground(() -> {
+            StringBuilder text = new StringBuilder();
+            for (WaitlistEntry entry : service.listWaitlist()) {
+                text.append("Position: ").append(entry.position()).append(", Name: ").append(entry.name())
+                    .append(", Phone: ").append(entry.phone()).append("\n");
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(waitlistDialog, "Error retrieving waitlist.");
-        }
+            return text.toString();
+        }, waitlistInfoArea::setText, "Error retrieving waitlist.");
         waitlistDialog.add(waitlistInfoArea, BorderLayout.CENTER);
 
         JPanel buttonPanel = new JPanel();
@@ -861,31 +956,43 @@ public class RestaurantReservationSystem {
 
     private void openReservationManagement() {
         JDialog reservationDialog = new JDialog((Frame) null, "Manage Reservations", true);
-        reservationDialog.setSize(400, 300);
+        reservationDialog.setSize(700, 400);
         reservationDialog.setLayout(new BorderLayout());
 
-        JTextArea reservationInfoArea = new JTextArea();
-        reservationInfoArea.setEditable(false);
-        /*reservationInfoArea.setText("Current Reservations...\n");*/
-
-        // Fetch and display reservations from the database
-        String sql = "SELECT * FROM reservations ORDER BY reservation_date, reservation_time";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            while (rs.next()) {
-                String name = rs.getString("name");
-                String phone = rs.getString("phone");
-                String date = rs.getString("reservation_date");
-                String time = rs.getString("reservation_time");
-                reservationInfoArea.append("Name: " + name + ", Phone: " + phone + ", Date: " + date + ", Time: " + time + "\n");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(reservationDialog, "Error retrieving reservations.");
-        }
-
-        reservationDialog.add(reservationInfoArea, BorderLayout.CENTER);
+        // Rows are paged in from the database as the table scrolls
+        ReservationTableModel model = new ReservationTableModel(background, MANAGER_PAGE_SIZE, 5, true, error -> {
+            LOG.error("Error retrieving reservations", error);
+            showMessage("Error retrieving reservations.");
+        });
+        JTable reservationTable = new JTable(model);
+        reservationDialog.add(new JScrollPane(reservationTable), BorderLayout.CENTER);
+
+        // Filters are applied in SQL, not in the table
+        JPanel filterPanel = new JPanel();
+        JComboBox<ReservationFilter.Scope> scopeBox = new JComboBox<>(ReservationFilter.Scope.values());
+        scopeBox.setSelectedItem(ReservationFilter.Scope.UPCOMING);
+        JDateChooser fromChooser = new JDateChooser();
+        JDateChooser toChooser = new JDateChooser();
+        fromChooser.setPreferredSize(new Dimension(120, 25));
+        toChooser.setPreferredSize(new Dimension(120, 25));
+        JButton applyButton = new JButton("Apply");
+        filterPanel.add(scopeBox);
+        filterPanel.add(new JLabel("From:"));
+        filterPanel.add(fromChooser);
+        filterPanel.add(new JLabel("To:"));
+        filterPanel.add(toChooser);
+        filterPanel.add(applyButton);
+        reservationDialog.add(filterPanel, BorderLayout.NORTH);
+
+        Runnable applyFilter = () -> {
+            ReservationFilter filter = new ReservationFilter(
+                    fromChooser.getDate() != null ? toLocalDate(fromChooser.getDate()) : null,
+                    toChooser.getDate() != null ? toLocalDate(toChooser.getDate()) : null,
+                    (ReservationFilter.Scope) scopeBox.getSelectedItem());
+            model.setSource((after, limit) -> service.pageReservations(filter, after, limit));
+        };
+        applyButton.addActionListener(e -> applyFilter.run());
+        applyFilter.run();
         
         JPanel buttonPanel = new JPanel();
         JButton cancelReservationButton = new JButton("Cancel Reservation");
@@ -893,7 +1000,7 @@ public class RestaurantReservationSystem {
             @Override
             public void actionPerformed(ActionEvent e) {
                 String phoneNumber = JOptionPane.showInputDialog(reservationDialog, "Enter phone number to cancel reservation:");
-                cancelReservation(phoneNumber);
+                cancelReservation(phoneNumber, model::refresh);
             }
         });
         buttonPanel.add(cancelReservationButton);
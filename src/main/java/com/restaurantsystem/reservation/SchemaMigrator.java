@@ -0,0 +1,234 @@
+package com.restaurantsystem.reservation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Moves a reservations database forward to the current schema. The applied
+ * version is kept in {@code PRAGMA user_version}; each migration runs in its
+ * own transaction together with the version bump.
+ */
+public class SchemaMigrator {
+    private final ConnectionPool pool;
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            SchemaMigrator::createBaseTables,
+            SchemaMigrator::createIndexes,
+            SchemaMigrator::dropWaitlistPositions,
+            SchemaMigrator::addReservationMinute,
+            SchemaMigrator::indexHistory,
+            SchemaMigrator::dropTimeTextIndex,
+            SchemaMigrator::addCustomers,
+            SchemaMigrator::addEventProjection,
+            SchemaMigrator::addArchive,
+            SchemaMigrator::addDailyActivity);
+
+    public SchemaMigrator(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public static int latestVersion() {
+        return MIGRATIONS.size();
+    }
+
+    //Applies every pending migration and returns the resulting version
+    public int migrate() throws SQLException {
+        try (PooledConnection pooled = pool.acquire()) {
+            Connection conn = pooled.connection();
+            int version = currentVersion(conn);
+            while (version < MIGRATIONS.size()) {
+                pooled.begin();
+                try (Statement stmt = conn.createStatement()) {
+                    MIGRATIONS.get(version).apply(stmt);
+                    version++;
+                    stmt.execute("PRAGMA user_version = " + version);
+                }
+                pooled.commit();
+            }
+            return version;
+        }
+    }
+
+    public static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    //Version 1: the tables the application queries, repairing files created with the old column names
+    private static void createBaseTables(Statement stmt) throws SQLException {
+        Set<String> columns = columns(stmt, "reservations");
+        if (columns.contains("phoneNumber")) {
+            stmt.execute("ALTER TABLE reservations RENAME TO reservations_legacy");
+        }
+        stmt.execute("CREATE TABLE IF NOT EXISTS reservations (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "name TEXT NOT NULL," +
+                "phone TEXT NOT NULL," +
+                "reservation_date TEXT NOT NULL," +
+                "reservation_time TEXT NOT NULL," +
+                "guests INTEGER NOT NULL, " +
+                "specialRequests TEXT)");
+        if (columns.contains("phoneNumber")) {
+            stmt.execute("INSERT INTO reservations (id, name, phone, reservation_date, reservation_time, guests, specialRequests) " +
+                    "SELECT id, IFNULL(name, ''), IFNULL(phoneNumber, ''), IFNULL(date, ''), IFNULL(time, ''), " +
+                    "IFNULL(partySize, 0), specialRequests FROM reservations_legacy");
+            stmt.execute("DROP TABLE reservations_legacy");
+        }
+        stmt.execute("CREATE TABLE IF NOT EXISTS managers (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "login_id TEXT NOT NULL UNIQUE," +
+                "password TEXT NOT NULL)");
+        stmt.execute("CREATE TABLE IF NOT EXISTS waitlist (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "name TEXT NOT NULL," +
+                "phone TEXT NOT NULL," +
+                "guests INTEGER NOT NULL," +
+                "position INTEGER NOT NULL," +
+                "added_time DATETIME DEFAULT CURRENT_TIMESTAMP)");
+    }
+
+    //Version 2: indexes behind every hot lookup
+    private static void createIndexes(Statement stmt) throws SQLException {
+        // Covers the seating plan load (date -> time, guests, rowid)
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_reservations_date_time " +
+                "ON reservations (reservation_date, reservation_time, guests)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_reservations_name_phone ON reservations (name, phone)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_reservations_phone ON reservations (phone)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_waitlist_phone ON waitlist (phone)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_waitlist_position ON waitlist (position)");
+    }
+
+    //Version 3: waitlist order comes from the immutable row id; positions are computed, not stored
+    private static void dropWaitlistPositions(Statement stmt) throws SQLException {
+        stmt.execute("DROP INDEX IF EXISTS idx_waitlist_position");
+        stmt.execute("ALTER TABLE waitlist DROP COLUMN position");
+    }
+
+    //Version 4: a sortable minute of day derived from the "hh:mm a" text, for keyset paging in time order
+    private static void addReservationMinute(Statement stmt) throws SQLException {
+        stmt.execute("ALTER TABLE reservations ADD COLUMN reservation_minute INTEGER GENERATED ALWAYS AS (" +
+                "(CAST(substr(reservation_time, 1, 2) AS INTEGER) % 12 + " +
+                "CASE WHEN substr(reservation_time, 7, 2) = 'PM' THEN 12 ELSE 0 END) * 60 + " +
+                "CAST(substr(reservation_time, 4, 2) AS INTEGER)) VIRTUAL");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_reservations_date_minute " +
+                "ON reservations (reservation_date, reservation_minute)");
+    }
+
+    //Version 5: name and phone lookups also walk a customer's visits in date order, for history paging
+    private static void indexHistory(Statement stmt) throws SQLException {
+        stmt.execute("DROP INDEX IF EXISTS idx_reservations_name_phone");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_reservations_name_phone_date " +
+                "ON reservations (name, phone, reservation_date, reservation_minute)");
+    }
+
+    //Version 6: slot lookups compare reservation_minute, so the index on the time text only costs writes
+    private static void dropTimeTextIndex(Statement stmt) throws SQLException {
+        stmt.execute("DROP INDEX IF EXISTS idx_reservations_date_time");
+    }
+
+    //Version 7: one customers row per phone number; reservations and the waitlist refer to it instead of repeating the phone
+    private static void addCustomers(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS customers (" +
+                "id INTEGER PRIMARY KEY," +
+                "name TEXT NOT NULL," +
+                "bookings INTEGER NOT NULL DEFAULT 0)");
+        stmt.execute("ALTER TABLE reservations ADD COLUMN customer_id INTEGER REFERENCES customers (id)");
+        stmt.execute("ALTER TABLE waitlist ADD COLUMN customer_id INTEGER REFERENCES customers (id)");
+        backfillCustomers(stmt.getConnection(), "waitlist", 0);
+        backfillCustomers(stmt.getConnection(), "reservations", 1);
+        stmt.execute("DROP INDEX IF EXISTS idx_reservations_phone");
+        stmt.execute("DROP INDEX IF EXISTS idx_reservations_name_phone_date");
+        stmt.execute("DROP INDEX IF EXISTS idx_waitlist_phone");
+        stmt.execute("ALTER TABLE reservations DROP COLUMN phone");
+        stmt.execute("ALTER TABLE waitlist DROP COLUMN phone");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_reservations_customer " +
+                "ON reservations (customer_id, name, reservation_date, reservation_minute)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_waitlist_customer ON waitlist (customer_id)");
+    }
+
+    //Creates a customer for every phone number in a table and links its rows; unreadable numbers stay unlinked
+    private static void backfillCustomers(Connection conn, String table, int bookingsPerRow) throws SQLException {
+        List<long[]> links = new ArrayList<>();
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery("SELECT id, name, phone FROM " + table + " ORDER BY id");
+             PreparedStatement customer = conn.prepareStatement("INSERT INTO customers (id, name, bookings) VALUES (?, ?, ?) " +
+                     "ON CONFLICT (id) DO UPDATE SET name = excluded.name, bookings = bookings + excluded.bookings")) {
+            while (rs.next()) {
+                long key = PhoneKey.of(rs.getString(3));
+                if (key == PhoneKey.NONE) {
+                    continue;
+                }
+                customer.setLong(1, key);
+                customer.setString(2, rs.getString(2));
+                customer.setInt(3, bookingsPerRow);
+                customer.executeUpdate();
+                links.add(new long[] {rs.getLong(1), key});
+            }
+        }
+        try (PreparedStatement link = conn.prepareStatement("UPDATE " + table + " SET customer_id = ? WHERE id = ?")) {
+            for (long[] row : links) {
+                link.setLong(1, row[1]);
+                link.setLong(2, row[0]);
+                link.addBatch();
+            }
+            link.executeBatch();
+        }
+    }
+
+    //Version 8: how far the tables have caught up with the event log, when bookings are stored in one
+    private static void addEventProjection(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS event_projection (" +
+                "id INTEGER PRIMARY KEY CHECK (id = 1)," +
+                "seq INTEGER NOT NULL)");
+    }
+
+    //Version 9: the archive tier for finished visits, clustered by customer so history reads are one seek
+    private static void addArchive(Statement stmt) throws SQLException {
+        // No rowid and no secondary index: each row is stored once, in the order history pages walk it.
+        // The time text is left out; it is rebuilt from reservation_minute.
+        stmt.execute("CREATE TABLE IF NOT EXISTS reservation_archive (" +
+                "customer_id INTEGER NOT NULL," +
+                "name TEXT NOT NULL," +
+                "reservation_date TEXT NOT NULL," +
+                "reservation_minute INTEGER NOT NULL," +
+                "id INTEGER NOT NULL," +
+                "guests INTEGER NOT NULL," +
+                "specialRequests TEXT," +
+                "PRIMARY KEY (customer_id, name, reservation_date, reservation_minute, id)) WITHOUT ROWID");
+    }
+
+    //Version 10: per-day tallies the reservation rows cannot tell afterwards, for the occupancy rollups
+    private static void addDailyActivity(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS daily_activity (" +
+                "day TEXT PRIMARY KEY," +
+                "cancellations INTEGER NOT NULL DEFAULT 0," +
+                "waitlist_peak INTEGER NOT NULL DEFAULT 0) WITHOUT ROWID");
+    }
+
+    private static Set<String> columns(Statement stmt, String table) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                columns.add(rs.getString("name"));
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * One schema step; runs inside the migration transaction.
+     */
+    @FunctionalInterface
+    interface Migration {
+        void apply(Statement stmt) throws SQLException;
+    }
+}
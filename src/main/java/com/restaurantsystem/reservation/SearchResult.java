@@ -0,0 +1,7 @@
+package com.restaurantsystem.reservation;
+
+/**
+ * Result of looking a customer up: a reservation, a waitlist position, or neither.
+ */
+public record SearchResult(Reservation reservation, Integer waitlistPosition) {
+}
@@ -0,0 +1,256 @@
+package com.restaurantsystem.reservation;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table occupancy for one day. Each table keeps a bitmask of the slots it is
+ * busy in; a party seated at a slot holds its tables for the turn time. A
+ * booking left without tables is overflow, and the slots of its turn count as
+ * full until it is released. Not thread-safe: {@link AvailabilityIndex} guards
+ * every plan with its own lock.
+ */
+public class SeatingPlan {
+    public static final int MAX_SLOTS = Long.SIZE;
+    // Search steps a replay may take looking for tables for every booking
+    private static final int REPLAY_STEPS = 20_000;
+
+    private final TableInventory inventory;
+    private final int slotCount;
+    private final int turnSlots;
+    private final long[] busy;
+    private final int[] bookings;
+    private final Map<Integer, Seating> seated = new HashMap<>();
+    private int overflow;
+    // Slots covered by the turns of overflow bookings
+    private long blocked;
+
+    public SeatingPlan(TableInventory inventory, int slotCount, int turnSlots) {
+        if (slotCount > MAX_SLOTS) {
+            throw new IllegalArgumentException("A day can have at most " + MAX_SLOTS + " slots");
+        }
+        this.inventory = inventory;
+        this.slotCount = slotCount;
+        this.turnSlots = turnSlots;
+        this.busy = new long[inventory.tableCount()];
+        this.bookings = new int[slotCount];
+    }
+
+    //Slots covered by a party seated at the given slot, clipped to the end of the day
+    private long turnMask(int slot) {
+        long mask = turnSlots >= Long.SIZE ? -1L : (1L << turnSlots) - 1;
+        mask <<= slot;
+        return slotCount == Long.SIZE ? mask : mask & ((1L << slotCount) - 1);
+    }
+
+    //Returns the smallest free seating option for the party, or -1 if none fits
+    public int findOption(int slot, int guests) {
+        if (slot < 0 || slot >= slotCount || guests < 1) {
+            return -1;
+        }
+        long mask = turnMask(slot);
+        if ((mask & blocked) != 0) {
+            return -1;
+        }
+        for (int option = inventory.firstOptionFor(guests); option < inventory.optionCount(); option++) {
+            if (isFree(option, mask)) {
+                return option;
+            }
+        }
+        return -1;
+    }
+
+    public boolean fits(int slot, int guests) {
+        return findOption(slot, guests) >= 0;
+    }
+
+    //Checks a fit as if the reservation's own tables were free, e.g. when moving it
+    public boolean fitsWithout(int reservationId, int slot, int guests) {
+        Seating seating = seated.get(reservationId);
+        if (seating == null) {
+            return fits(slot, guests);
+        }
+        if (seating.option < 0) {
+            seated.remove(reservationId);
+            blocked = overflowTurns();
+            boolean fits = fits(slot, guests);
+            seated.put(reservationId, seating);
+            blocked = overflowTurns();
+            return fits;
+        }
+        int[] tables = inventory.optionTables(seating.option);
+        for (int table : tables) {
+            busy[table] &= ~seating.mask;
+        }
+        boolean fits = fits(slot, guests);
+        for (int table : tables) {
+            busy[table] |= seating.mask;
+        }
+        return fits;
+    }
+
+    private boolean isFree(int option, long mask) {
+        for (int table : inventory.optionTables(option)) {
+            if ((busy[table] & mask) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Bitmask of every slot where the party can still be seated
+    public long availableSlots(int guests) {
+        long available = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (fits(slot, guests)) {
+                available |= 1L << slot;
+            }
+        }
+        return available;
+    }
+
+    //Seats a booking; bookings that no longer fit are tracked as overflow so they can still be released
+    public boolean seat(int reservationId, int slot, int guests) {
+        release(reservationId);
+        int option = findOption(slot, guests);
+        place(reservationId, slot, option);
+        return option >= 0;
+    }
+
+    /*
+     * Seats a day's stored bookings at once. Stored bookings name no tables, so
+     * they are found again: largest parties first, backtracking to seat as many
+     * as possible within a bounded number of steps. Seating them one by one in
+     * id order can strand a booking that fits once earlier ones are moved.
+     */
+    public void seatAll(List<AvailabilityIndex.Booking> stored) {
+        AvailabilityIndex.Booking[] order = stored.toArray(new AvailabilityIndex.Booking[0]);
+        Arrays.sort(order, Comparator.comparingInt(AvailabilityIndex.Booking::guests).reversed()
+                .thenComparingInt(AvailabilityIndex.Booking::slot)
+                .thenComparingInt(AvailabilityIndex.Booking::reservationId));
+        Replay replay = new Replay(order);
+        replay.search(0, 0);
+        for (int i = 0; i < order.length; i++) {
+            place(order[i].reservationId(), order[i].slot(), replay.best[i]);
+        }
+    }
+
+    private void place(int reservationId, int slot, int option) {
+        long mask = slot >= 0 && slot < slotCount ? turnMask(slot) : 0;
+        if (option >= 0) {
+            for (int table : inventory.optionTables(option)) {
+                busy[table] |= mask;
+            }
+        } else {
+            overflow++;
+            blocked |= mask;
+        }
+        if (slot >= 0 && slot < slotCount) {
+            bookings[slot]++;
+        }
+        seated.put(reservationId, new Seating(option, slot, mask));
+    }
+
+    public void release(int reservationId) {
+        Seating seating = seated.remove(reservationId);
+        if (seating == null) {
+            return;
+        }
+        if (seating.option >= 0) {
+            for (int table : inventory.optionTables(seating.option)) {
+                busy[table] &= ~seating.mask;
+            }
+        } else {
+            overflow--;
+            blocked = overflowTurns();
+        }
+        if (seating.slot >= 0 && seating.slot < slotCount) {
+            bookings[seating.slot]--;
+        }
+    }
+
+    public boolean contains(int reservationId) {
+        return seated.containsKey(reservationId);
+    }
+
+    public int bookingsAt(int slot) {
+        return bookings[slot];
+    }
+
+    public int overflow() {
+        return overflow;
+    }
+
+    private long overflowTurns() {
+        long turns = 0;
+        if (overflow > 0) {
+            for (Seating seating : seated.values()) {
+                if (seating.option < 0) {
+                    turns |= seating.mask;
+                }
+            }
+        }
+        return turns;
+    }
+
+    private record Seating(int option, int slot, long mask) {
+    }
+
+    /**
+     * Depth-first search for the table options of a replay, keeping the
+     * assignment that leaves the fewest bookings without tables. Leaving a
+     * booking out is tried last, so the first assignment found is the greedy
+     * one and the search only ever improves on it.
+     */
+    private final class Replay {
+        final AvailabilityIndex.Booking[] order;
+        final int[] chosen;
+        int[] best;
+        int bestSkipped = Integer.MAX_VALUE;
+        int steps;
+
+        Replay(AvailabilityIndex.Booking[] order) {
+            this.order = order;
+            this.chosen = new int[order.length];
+        }
+
+        void search(int i, int skipped) {
+            if (skipped >= bestSkipped || best != null && steps > REPLAY_STEPS) {
+                return;
+            }
+            steps++;
+            if (i == order.length) {
+                best = chosen.clone();
+                bestSkipped = skipped;
+                return;
+            }
+            int slot = order[i].slot();
+            int guests = order[i].guests();
+            if (slot >= 0 && slot < slotCount && guests >= 1) {
+                long mask = turnMask(slot);
+                for (int option = inventory.firstOptionFor(guests); option < inventory.optionCount(); option++) {
+                    if (!isFree(option, mask)) {
+                        continue;
+                    }
+                    int[] tables = inventory.optionTables(option);
+                    for (int table : tables) {
+                        busy[table] |= mask;
+                    }
+                    chosen[i] = option;
+                    search(i + 1, skipped);
+                    for (int table : tables) {
+                        busy[table] &= ~mask;
+                    }
+                    if (bestSkipped == 0) {
+                        return;
+                    }
+                }
+            }
+            chosen[i] = -1;
+            search(i + 1, skipped + 1);
+        }
+    }
+}
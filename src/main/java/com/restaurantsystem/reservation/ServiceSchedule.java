@@ -0,0 +1,291 @@
+package com.restaurantsystem.reservation;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * When the restaurant seats guests: opening hours per weekday, holiday
+ * closures, the slot length and how far ahead a booking must be made. Slots
+ * are indices into one grid shared by every day, so a day's open slots and a
+ * party's availability are both bitmasks over the same indices. Everything is
+ * computed once when the schedule is built; labels are only needed at the
+ * edges, where they match the "hh:mm a" text stored in reservation_time.
+ */
+public final class ServiceSchedule {
+    private static final DateTimeFormatter LABEL = DateTimeFormatter.ofPattern("hh:mm a", Locale.US);
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final ServiceSchedule DEFAULT = builder().build();
+
+    private final int slotMinutes;
+    private final long leadMinutes;
+    private final int firstMinute;
+    private final String[] labels;
+    private final Map<String, Integer> index;
+    private final long[] openByWeekday;
+    private final Set<LocalDate> holidays;
+
+    private ServiceSchedule(int slotMinutes, long leadMinutes, EnumMap<DayOfWeek, int[]> hours, Set<LocalDate> holidays) {
+        int first = MINUTES_PER_DAY;
+        int last = -1;
+        for (int[] range : hours.values()) {
+            first = Math.min(first, range[0]);
+            last = Math.max(last, range[1]);
+        }
+        if (last < 0) {
+            first = 0;
+        }
+        int count = last < 0 ? 0 : (last - first) / slotMinutes + 1;
+        if (count > SeatingPlan.MAX_SLOTS) {
+            throw new IllegalArgumentException("A schedule can have at most " + SeatingPlan.MAX_SLOTS + " slots a day, not " + count);
+        }
+        this.slotMinutes = slotMinutes;
+        this.leadMinutes = leadMinutes;
+        this.firstMinute = first;
+        this.labels = new String[count];
+        this.index = new HashMap<>();
+        for (int slot = 0; slot < count; slot++) {
+            int minute = first + slot * slotMinutes;
+            labels[slot] = LocalTime.of(minute / 60, minute % 60).format(LABEL).intern();
+            index.put(labels[slot], slot);
+        }
+        this.openByWeekday = new long[DayOfWeek.values().length];
+        for (Map.Entry<DayOfWeek, int[]> day : hours.entrySet()) {
+            int[] range = day.getValue();
+            if ((range[0] - first) % slotMinutes != 0 || (range[1] - first) % slotMinutes != 0) {
+                throw new IllegalArgumentException("Hours on " + day.getKey() + " are not on the " + slotMinutes + " minute grid");
+            }
+            openByWeekday[day.getKey().ordinal()] = range(slotAtMinute(range[0]), slotAtMinute(range[1]) + 1);
+        }
+        this.holidays = Set.copyOf(holidays);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    //Half-hour seatings from 11:30 AM to 8:30 PM every day, bookable up to the last minute
+    public static ServiceSchedule defaultSchedule() {
+        return DEFAULT;
+    }
+
+    //The schedule in the file named by the booking.schedule system property, or the default one
+    public static ServiceSchedule configured() throws IOException {
+        String file = System.getProperty("booking.schedule");
+        if (file == null) {
+            return defaultSchedule();
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return fromProperties(properties);
+    }
+
+    /*
+     * Reads a schedule such as
+     *   slot.minutes=30
+     *   lead.minutes=60
+     *   hours=11:30-20:30
+     *   hours.monday=closed
+     *   holidays=2026-12-25,2027-01-01
+     * where hours.<day> overrides hours for one weekday.
+     */
+    public static ServiceSchedule fromProperties(Properties properties) {
+        Builder builder = builder()
+                .slotMinutes(Integer.parseInt(properties.getProperty("slot.minutes", "30").trim()))
+                .leadTime(Duration.ofMinutes(Long.parseLong(properties.getProperty("lead.minutes", "0").trim())));
+        String everyDay = properties.getProperty("hours", "11:30-20:30");
+        for (DayOfWeek day : DayOfWeek.values()) {
+            String hours = properties.getProperty("hours." + day.name().toLowerCase(Locale.ROOT), everyDay).trim();
+            if (hours.equalsIgnoreCase("closed")) {
+                builder.closed(day);
+            } else {
+                String[] range = hours.split("-");
+                if (range.length != 2) {
+                    throw new IllegalArgumentException("Hours must look like 11:30-20:30 or closed: " + hours);
+                }
+                builder.hours(day, LocalTime.parse(range[0].trim()), LocalTime.parse(range[1].trim()));
+            }
+        }
+        for (String holiday : properties.getProperty("holidays", "").split(",")) {
+            if (!holiday.isBlank()) {
+                builder.holiday(LocalDate.parse(holiday.trim()));
+            }
+        }
+        return builder.build();
+    }
+
+    //Number of slots in the grid; every slot index is below this
+    public int count() {
+        return labels.length;
+    }
+
+    public int slotMinutes() {
+        return slotMinutes;
+    }
+
+    public String label(int slot) {
+        return labels[slot];
+    }
+
+    //Returns the slot for a time label, or -1 if it is off the grid
+    public int indexOf(String label) {
+        Integer slot = label == null ? null : index.get(label);
+        return slot == null ? -1 : slot;
+    }
+
+    public int minuteOfDay(int slot) {
+        return firstMinute + slot * slotMinutes;
+    }
+
+    //Minute of day of an "hh:mm a" time, on the grid or not, read the way the reservation_minute column reads it
+    public int minuteOf(String time) {
+        int slot = indexOf(time);
+        if (slot >= 0) {
+            return minuteOfDay(slot);
+        }
+        if (time == null || time.length() < 8) {
+            return 0;
+        }
+        try {
+            int hour = Integer.parseInt(time.substring(0, 2)) % 12 + (time.startsWith("PM", 6) ? 12 : 0);
+            return hour * 60 + Integer.parseInt(time.substring(3, 5));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    //The "hh:mm a" text of a minute of the day, the inverse of minuteOf
+    public String timeAt(int minuteOfDay) {
+        int slot = slotAtMinute(minuteOfDay);
+        if (slot >= 0) {
+            return labels[slot];
+        }
+        return LocalTime.of(minuteOfDay / 60 % 24, minuteOfDay % 60).format(LABEL);
+    }
+
+    //Returns the slot starting at a minute of the day, or -1 if no slot starts then
+    public int slotAtMinute(int minuteOfDay) {
+        int offset = minuteOfDay - firstMinute;
+        if (offset < 0 || offset % slotMinutes != 0 || offset / slotMinutes >= labels.length) {
+            return -1;
+        }
+        return offset / slotMinutes;
+    }
+
+    //Slots needed to cover a stay of the given length
+    public int turnSlots(int minutes) {
+        return Math.max(1, (minutes + slotMinutes - 1) / slotMinutes);
+    }
+
+    //Bitmask of the slots the restaurant seats guests in on a date
+    public long openSlots(LocalDate date) {
+        if (holidays.contains(date)) {
+            return 0;
+        }
+        return openByWeekday[date.getDayOfWeek().ordinal()];
+    }
+
+    //Open slots on a date that can still be booked at the given moment, allowing for the lead time
+    public long bookableSlots(LocalDate date, LocalDateTime now) {
+        LocalDateTime cutoff = now.plusMinutes(leadMinutes);
+        if (date.isBefore(cutoff.toLocalDate())) {
+            return 0;
+        }
+        long open = openSlots(date);
+        if (date.isAfter(cutoff.toLocalDate())) {
+            return open;
+        }
+        int cutoffMinute = cutoff.getHour() * 60 + cutoff.getMinute() + (cutoff.getSecond() > 0 || cutoff.getNano() > 0 ? 1 : 0);
+        int firstBookable = Math.max(0, (cutoffMinute - firstMinute + slotMinutes - 1) / slotMinutes);
+        return open & range(firstBookable, labels.length);
+    }
+
+    public boolean isBookable(LocalDate date, int slot, LocalDateTime now) {
+        return slot >= 0 && slot < labels.length && (bookableSlots(date, now) & (1L << slot)) != 0;
+    }
+
+    //Mask of slots first (inclusive) to end (exclusive)
+    private static long range(int first, int end) {
+        if (first >= end) {
+            return 0;
+        }
+        long upTo = end >= Long.SIZE ? -1L : (1L << end) - 1;
+        long below = first >= Long.SIZE ? -1L : (1L << first) - 1;
+        return upTo & ~below;
+    }
+
+    /**
+     * Collects opening hours and closures for a {@link ServiceSchedule}. Every
+     * weekday starts out open 11:30 AM to 8:30 PM.
+     */
+    public static final class Builder {
+        private int slotMinutes = 30;
+        private Duration leadTime = Duration.ZERO;
+        private final EnumMap<DayOfWeek, int[]> hours = new EnumMap<>(DayOfWeek.class);
+        private final Set<LocalDate> holidays = new HashSet<>();
+
+        private Builder() {
+            for (DayOfWeek day : DayOfWeek.values()) {
+                hours.put(day, new int[] {11 * 60 + 30, 20 * 60 + 30});
+            }
+        }
+
+        public Builder slotMinutes(int minutes) {
+            if (minutes < 1 || MINUTES_PER_DAY % minutes != 0) {
+                throw new IllegalArgumentException("Slot length must divide a day evenly: " + minutes);
+            }
+            this.slotMinutes = minutes;
+            return this;
+        }
+
+        //How long before a slot starts it stops being bookable
+        public Builder leadTime(Duration leadTime) {
+            if (leadTime.isNegative()) {
+                throw new IllegalArgumentException("Lead time cannot be negative");
+            }
+            this.leadTime = leadTime;
+            return this;
+        }
+
+        //Seats guests on a weekday from the first seating to the last one, both inclusive
+        public Builder hours(DayOfWeek day, LocalTime firstSeating, LocalTime lastSeating) {
+            if (lastSeating.isBefore(firstSeating)) {
+                throw new IllegalArgumentException("Last seating on " + day + " is before the first");
+            }
+            hours.put(day, new int[] {firstSeating.getHour() * 60 + firstSeating.getMinute(),
+                    lastSeating.getHour() * 60 + lastSeating.getMinute()});
+            return this;
+        }
+
+        public Builder closed(DayOfWeek day) {
+            hours.remove(day);
+            return this;
+        }
+
+        public Builder holiday(LocalDate date) {
+            holidays.add(date);
+            return this;
+        }
+
+        public ServiceSchedule build() {
+            return new ServiceSchedule(slotMinutes, leadTime.toMinutes(), new EnumMap<>(hours), holidays);
+        }
+    }
+}
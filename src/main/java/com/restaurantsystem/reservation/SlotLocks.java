@@ -0,0 +1,71 @@
+package com.restaurantsystem.reservation;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks over (date, slot). A booking locks every slot its turn
+ * occupies, so two bookings contend only when they could want the same table
+ * at the same time; stripes are always taken in ascending order, which rules
+ * out deadlock between overlapping windows.
+ */
+public class SlotLocks {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public SlotLocks(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    //Locks slots first..last (inclusive) of a date; close the result to unlock
+    public Held lock(LocalDate date, int first, int last) {
+        int[] indexes = new int[last - first + 1];
+        for (int slot = first; slot <= last; slot++) {
+            indexes[slot - first] = stripe(date, slot);
+        }
+        Arrays.sort(indexes);
+        int count = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            if (i == 0 || indexes[i] != indexes[i - 1]) {
+                indexes[count++] = indexes[i];
+            }
+        }
+        int[] held = Arrays.copyOf(indexes, count);
+        for (int index : held) {
+            stripes[index].lock();
+        }
+        return new Held(held);
+    }
+
+    private int stripe(LocalDate date, int slot) {
+        int h = (int) date.toEpochDay() * 31 + slot;
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        h ^= h >>> 16;
+        return h & mask;
+    }
+
+    /**
+     * The stripes taken by one call to {@link #lock}.
+     */
+    public final class Held implements AutoCloseable {
+        private final int[] indexes;
+
+        private Held(int[] indexes) {
+            this.indexes = indexes;
+        }
+
+        @Override
+        public void close() {
+            for (int i = indexes.length - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.restaurantsystem.reservation;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A search for the best open slots over a range of dates, for when the time a
+ * guest asked for is taken. Slots are ranked by a cost: a minute for every
+ * minute away from the wanted time and an hour for every day after the first
+ * date. Slots on the weekdays the guest asked for rank before all others; no
+ * weekdays means any day will do. Times are minutes of the day; the window is
+ * inclusive.
+ */
+public record SlotSearch(int guests, LocalDate first, LocalDate last, int earliestMinute, int latestMinute,
+                         int wantedMinute, Set<DayOfWeek> weekdays, int limit) {
+    // Longest range one search covers; every date in it fits the availability cache at once
+    public static final int MAX_DAYS = 56;
+    private static final int DAY_COST = 60;
+    // More than any preferred slot can cost
+    private static final int OTHER_WEEKDAY_COST = MAX_DAYS * DAY_COST + 24 * 60;
+
+    public SlotSearch {
+        if (guests < 1) {
+            throw new IllegalArgumentException("Guest count must be positive");
+        }
+        if (first == null || last == null || last.isBefore(first)) {
+            throw new IllegalArgumentException("The search needs a first date on or before its last date");
+        }
+        if (ChronoUnit.DAYS.between(first, last) >= MAX_DAYS) {
+            throw new IllegalArgumentException("A search covers at most " + MAX_DAYS + " days");
+        }
+        if (earliestMinute > latestMinute) {
+            throw new IllegalArgumentException("The earliest time must not be after the latest");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Ask for at least one slot");
+        }
+        weekdays = weekdays == null ? Set.of() : Set.copyOf(weekdays);
+    }
+
+    public int days() {
+        return (int) ChronoUnit.DAYS.between(first, last) + 1;
+    }
+
+    //Bitmask of the schedule's slots that start inside the time window
+    public long window(ServiceSchedule schedule) {
+        long mask = 0;
+        for (int slot = 0; slot < schedule.count(); slot++) {
+            int minute = schedule.minuteOfDay(slot);
+            if (minute >= earliestMinute && minute <= latestMinute) {
+                mask |= 1L << slot;
+            }
+        }
+        return mask;
+    }
+
+    /*
+     * The cheapest slots out of the open ones, one bitmask per date from first
+     * to last. Each candidate is packed into a long as (cost, day, slot) so a
+     * plain sort ranks them, ties going to the earlier date and time.
+     */
+    public List<Suggestion> rank(ServiceSchedule schedule, long[] open) {
+        long window = window(schedule);
+        long[] candidates = new long[Long.bitCount(window) * open.length];
+        int count = 0;
+        for (int day = 0; day < open.length; day++) {
+            long slots = open[day] & window;
+            boolean preferred = weekdays.isEmpty() || weekdays.contains(first.plusDays(day).getDayOfWeek());
+            int dayCost = day * DAY_COST + (preferred ? 0 : OTHER_WEEKDAY_COST);
+            while (slots != 0) {
+                int slot = Long.numberOfTrailingZeros(slots);
+                slots &= slots - 1;
+                long cost = dayCost + Math.abs(schedule.minuteOfDay(slot) - wantedMinute);
+                candidates[count++] = cost << 16 | (long) day << 6 | slot;
+            }
+        }
+        Arrays.sort(candidates, 0, count);
+        List<Suggestion> best = new ArrayList<>(Math.min(limit, count));
+        for (int i = 0; i < count && best.size() < limit; i++) {
+            int day = (int) (candidates[i] >>> 6 & 0x3FF);
+            int slot = (int) (candidates[i] & 0x3F);
+            best.add(new Suggestion(first.plusDays(day), schedule.label(slot), (int) (candidates[i] >>> 16)));
+        }
+        return best;
+    }
+
+    /**
+     * An open slot, with the cost it was ranked by.
+     */
+    public record Suggestion(LocalDate date, String time, int cost) {
+    }
+}
@@ -0,0 +1,271 @@
+package com.restaurantsystem.reservation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.restaurantsystem.reservation.ReservationEvent.Booking;
+import com.restaurantsystem.reservation.ReservationEvent.WaitlistJoined;
+
+/**
+ * Keeps the SQLite tables fed from an {@link EventStore}, so listings, searches
+ * and history pages go on reading SQL while bookings are stored in the event
+ * log. Events are queued as the store applies them and copied in batches
+ * through the {@link WriteQueue}, each batch together with the sequence number
+ * it reaches, so a restart resumes exactly where the tables left off. The
+ * tables trail the log by about one batch.
+ */
+public class SqlProjector implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(SqlProjector.class);
+    private static final int BATCH = 500;
+
+    private final EventStore store;
+    private final ConnectionPool pool;
+    private final WriteQueue writer;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread thread = new Thread(this::follow, "event-projector");
+    private volatile boolean closed;
+    private long projectedSeq;
+
+    public SqlProjector(EventStore store, ConnectionPool pool, WriteQueue writer) {
+        this.store = store;
+        this.pool = pool;
+        this.writer = writer;
+        thread.setDaemon(true);
+    }
+
+    //Catches the tables up with the log, then follows new events on a background thread
+    public void start() throws SQLException, IOException {
+        store.subscribe((seq, event) -> queue.add(new Entry(seq, event)));
+        long position = readPosition();
+        long last = store.lastSeq();
+        if (position > last) {
+            // The log was started afresh from these tables
+            LOG.warn("Tables are at event {} but the log ends at {}; taking the log's position", position, last);
+            writer.execute(conn -> savePosition(conn, last));
+            position = last;
+        } else if (position < last && position + 1 < store.firstLoggedSeq()) {
+            LOG.warn("Events after {} are no longer logged; rebuilding the tables from the event store", position);
+            position = rebuild(store.state());
+        } else if (position < last) {
+            List<Entry> missed = new ArrayList<>();
+            store.readLog(position, (seq, event) -> missed.add(new Entry(seq, event)));
+            for (int from = 0; from < missed.size(); from += BATCH) {
+                project(missed.subList(from, Math.min(from + BATCH, missed.size())));
+            }
+            position = Math.max(position, projectedSeq());
+        }
+        setProjected(position);
+        thread.start();
+    }
+
+    public synchronized long projectedSeq() {
+        return projectedSeq;
+    }
+
+    //Waits until the tables hold every event up to seq; false on timeout
+    public synchronized boolean awaitProjected(long seq, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (projectedSeq < seq) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) {
+                return false;
+            }
+            wait(left);
+        }
+        return true;
+    }
+
+    private void follow() {
+        List<Entry> batch = new ArrayList<>(BATCH);
+        while (!closed || !queue.isEmpty()) {
+            Entry first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, BATCH - 1);
+            long done = projectedSeq();
+            batch.removeIf(entry -> entry.seq() <= done);
+            // Never drop events: a batch that fails is retried until it goes in
+            for (int attempt = 0; !batch.isEmpty(); attempt++) {
+                try {
+                    project(batch);
+                    batch.clear();
+                } catch (SQLException | RuntimeException e) {
+                    if (closed && attempt > 0) {
+                        LOG.error("Giving up on {} events; they will be copied on the next start", batch.size(), e);
+                        return;
+                    }
+                    LOG.error("Could not copy {} events into the tables, retrying", batch.size(), e);
+                    pause(Math.min(5_000, 100L << Math.min(attempt, 6)));
+                }
+            }
+        }
+    }
+
+    //Copies a run of events in one write, ending with the sequence number reached
+    private void project(List<Entry> batch) throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long last = batch.get(batch.size() - 1).seq();
+        writer.execute(conn -> {
+            for (Entry entry : batch) {
+                write(conn, entry.event());
+            }
+            return savePosition(conn, last);
+        });
+        setProjected(last);
+    }
+
+    private static void write(PooledConnection conn, ReservationEvent event) throws SQLException {
+        if (event instanceof ReservationEvent.Reserved reserved) {
+            insertReservation(conn, reserved.booking(), true);
+        } else if (event instanceof ReservationEvent.Updated updated) {
+            Booking booking = updated.booking();
+            saveCustomer(conn, booking.customer(), booking.name(), false);
+            PreparedStatement pstmt = conn.prepare(ReservationSql.UPDATE_RESERVATION);
+            pstmt.setString(1, booking.name());
+            setCustomer(pstmt, 2, booking.customer());
+            pstmt.setString(3, booking.date().toString());
+            pstmt.setString(4, booking.time());
+            pstmt.setInt(5, booking.guests());
+            pstmt.setString(6, booking.specialRequests());
+            pstmt.setInt(7, booking.id());
+            pstmt.executeUpdate();
+        } else if (event instanceof ReservationEvent.Cancelled cancelled) {
+            deleteById(conn, ReservationSql.DELETE_RESERVATION, cancelled.id());
+        } else if (event instanceof WaitlistJoined joined) {
+            insertWaitlistEntry(conn, joined);
+        } else if (event instanceof ReservationEvent.WaitlistLeft left) {
+            deleteById(conn, ReservationSql.DELETE_WAITLIST_ENTRY, left.id());
+        }
+    }
+
+    //Replaces the contents of the tables with the store's state
+    private long rebuild(EventStore.State state) throws SQLException {
+        writer.execute(conn -> {
+            conn.prepare("DELETE FROM waitlist").executeUpdate();
+            conn.prepare("DELETE FROM reservations").executeUpdate();
+            for (Booking booking : state.reservations()) {
+                insertReservation(conn, booking, false);
+            }
+            for (WaitlistJoined entry : state.waitlist()) {
+                insertWaitlistEntry(conn, entry);
+            }
+            return savePosition(conn, state.seq());
+        });
+        return state.seq();
+    }
+
+    private static void insertReservation(PooledConnection conn, Booking booking, boolean countBooking) throws SQLException {
+        saveCustomer(conn, booking.customer(), booking.name(), countBooking);
+        PreparedStatement pstmt = conn.prepare(ReservationSql.INSERT_RESERVATION_WITH_ID);
+        pstmt.setInt(1, booking.id());
+        pstmt.setString(2, booking.name());
+        setCustomer(pstmt, 3, booking.customer());
+        pstmt.setString(4, booking.date().toString());
+        pstmt.setString(5, booking.time());
+        pstmt.setInt(6, booking.guests());
+        pstmt.setString(7, booking.specialRequests());
+        pstmt.executeUpdate();
+    }
+
+    private static void insertWaitlistEntry(PooledConnection conn, WaitlistJoined entry) throws SQLException {
+        saveCustomer(conn, entry.customer(), entry.name(), false);
+        PreparedStatement pstmt = conn.prepare(ReservationSql.INSERT_WAITLIST_WITH_ID);
+        pstmt.setInt(1, entry.id());
+        pstmt.setString(2, entry.name());
+        setCustomer(pstmt, 3, entry.customer());
+        pstmt.setInt(4, entry.guests());
+        pstmt.executeUpdate();
+    }
+
+    private static void saveCustomer(PooledConnection conn, long customer, String name, boolean countBooking) throws SQLException {
+        if (customer == PhoneKey.NONE) {
+            return;
+        }
+        PreparedStatement pstmt = conn.prepare(ReservationSql.UPSERT_CUSTOMER);
+        pstmt.setLong(1, customer);
+        pstmt.setString(2, name);
+        pstmt.executeUpdate();
+        if (countBooking) {
+            PreparedStatement count = conn.prepare(ReservationSql.COUNT_BOOKING);
+            count.setLong(1, customer);
+            count.executeUpdate();
+        }
+    }
+
+    //Rows migrated from phone numbers that were not numbers have no customer
+    private static void setCustomer(PreparedStatement pstmt, int index, long customer) throws SQLException {
+        if (customer == PhoneKey.NONE) {
+            pstmt.setNull(index, Types.INTEGER);
+        } else {
+            pstmt.setLong(index, customer);
+        }
+    }
+
+    private static void deleteById(PooledConnection conn, String sql, int id) throws SQLException {
+        PreparedStatement pstmt = conn.prepare(sql);
+        pstmt.setInt(1, id);
+        pstmt.executeUpdate();
+    }
+
+    private static Long savePosition(PooledConnection conn, long seq) throws SQLException {
+        PreparedStatement pstmt = conn.prepare(ReservationSql.SAVE_PROJECTED_SEQ);
+        pstmt.setLong(1, seq);
+        pstmt.executeUpdate();
+        return seq;
+    }
+
+    private long readPosition() throws SQLException {
+        try (PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare(ReservationSql.PROJECTED_SEQ).executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private synchronized void setProjected(long seq) {
+        projectedSeq = seq;
+        store.projected(seq);
+        notifyAll();
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //Copies what is still queued, then stops
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Entry(long seq, ReservationEvent event) {
+    }
+}
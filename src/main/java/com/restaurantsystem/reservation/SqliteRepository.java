@@ -0,0 +1,649 @@
+package com.restaurantsystem.reservation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reservations stored in SQLite through a {@link ConnectionPool}. Reads run on
+ * the caller's thread; changes are handed to a {@link WriteQueue} and the
+ * caller waits until they are committed. Inserts and moves carry a capacity
+ * check of their own, so a booking made by another process against a stale
+ * seating plan cannot overfill a turn. With booking.archive.days set, a
+ * {@link ReservationArchiver} keeps older visits out of the live table and
+ * history pages read both tiers.
+ */
+public class SqliteRepository implements ReservationRepository {
+    private static final Logger LOG = LoggerFactory.getLogger(SqliteRepository.class);
+
+    // Writes waiting for the single writer, how many it commits at once, and how long a caller waits for room
+    private static final int WRITE_QUEUE = 1024;
+    private static final int WRITE_BATCH = 64;
+    private static final long WRITE_WAIT_MILLIS = 5_000;
+    // Days a finished visit stays in the live table, 0 to keep everything there, and minutes between archive runs
+    private static final int ARCHIVE_AFTER_DAYS = Integer.getInteger("booking.archive.days", 0);
+    private static final long ARCHIVE_PERIOD_MINUTES = Long.getLong("booking.archive.periodMinutes", 60);
+
+    private final ConnectionPool pool;
+    private final TableInventory inventory;
+    private final ServiceSchedule schedule;
+    private final int turnSlots;
+    private final String insertIfRoom;
+    private final String updateIfRoom;
+    private final OperationMetrics metrics;
+    private final WriteQueue writer;
+    private ReservationArchiver archiver;
+
+    public SqliteRepository(ConnectionPool pool, TableInventory inventory, ServiceSchedule schedule) {
+        this.pool = pool;
+        this.inventory = inventory;
+        this.schedule = schedule;
+        this.turnSlots = schedule.turnSlots(ReservationService.TURN_MINUTES);
+        this.insertIfRoom = ReservationSql.insertReservationIfRoom(turnSlots);
+        this.updateIfRoom = ReservationSql.updateReservationIfRoom(turnSlots);
+        this.metrics = new OperationMetrics(pool.acquireLatency());
+        this.writer = new WriteQueue(pool, metrics, WRITE_QUEUE, WRITE_BATCH, WRITE_WAIT_MILLIS);
+    }
+
+    //Creates the database or moves it to the current schema, then starts archiving if it is configured
+    @Override
+    public synchronized int migrate() throws SQLException {
+        int version = new SchemaMigrator(pool).migrate();
+        if (ARCHIVE_AFTER_DAYS > 0 && archiver == null) {
+            archiver = new ReservationArchiver(this, ARCHIVE_AFTER_DAYS);
+            archiver.start(ARCHIVE_PERIOD_MINUTES);
+        }
+        return version;
+    }
+
+    @Override
+    public OperationMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public ConnectionPool.PoolStats poolStats() {
+        return pool.stats();
+    }
+
+    ConnectionPool pool() {
+        return pool;
+    }
+
+    WriteQueue writer() {
+        return writer;
+    }
+
+    @Override
+    public int insertReservation(String name, long customer, LocalDate date, int slot, int guests, String specialRequests)
+            throws SQLException {
+        return writer.execute(conn -> {
+            addCustomer(conn, customer, name);
+            PreparedStatement pstmt = conn.prepare(insertIfRoom);
+            pstmt.setString(1, name);
+            pstmt.setLong(2, customer);
+            pstmt.setString(3, date.toString());
+            pstmt.setString(4, schedule.label(slot));
+            pstmt.setInt(5, guests);
+            pstmt.setString(6, specialRequests);
+            bindRoomCheck(pstmt, 7, date, slot, guests, null);
+            if (pstmt.executeUpdate() == 0) {
+                return ReservationService.NO_TABLE;
+            }
+            saveCustomer(conn, customer, name);
+            PreparedStatement count = conn.prepare(ReservationSql.COUNT_BOOKING);
+            count.setLong(1, customer);
+            count.executeUpdate();
+            return lastInsertId(conn);
+        });
+    }
+
+    @Override
+    public Moved updateReservation(int id, String name, long customer, LocalDate date, int slot, int guests,
+                                   String specialRequests) throws SQLException {
+        return writer.execute(conn -> {
+            Reservation previous = findPrevious(conn, id);
+            if (previous == null) {
+                return null;
+            }
+            addCustomer(conn, customer, name);
+            PreparedStatement pstmt = conn.prepare(updateIfRoom);
+            pstmt.setString(1, name);
+            pstmt.setLong(2, customer);
+            pstmt.setString(3, date.toString());
+            pstmt.setString(4, schedule.label(slot));
+            pstmt.setInt(5, guests);
+            pstmt.setString(6, specialRequests);
+            pstmt.setInt(7, id);
+            bindRoomCheck(pstmt, 8, date, slot, guests, id);
+            int rows = pstmt.executeUpdate();
+            if (rows > 0) {
+                saveCustomer(conn, customer, name);
+            }
+            return new Moved(LocalDate.parse(previous.date()), previous.time(), previous.guests(), rows);
+        });
+    }
+
+    @Override
+    public List<Reservation> deleteReservations(long customer, String name) throws SQLException {
+        String selectSql = name == null ? ReservationSql.RESERVATIONS_BY_PHONE : ReservationSql.RESERVATIONS_BY_NAME_PHONE;
+        String deleteSql = name == null ? ReservationSql.DELETE_BY_PHONE : ReservationSql.DELETE_BY_NAME_PHONE;
+        return writer.execute(conn -> {
+            List<Reservation> rows = new ArrayList<>();
+            PreparedStatement select = conn.prepare(selectSql);
+            bindCustomer(select, customer, name);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Reservation(rs.getInt(1), null, null, rs.getString(2), rs.getString(3), rs.getInt(4), null));
+                }
+            }
+            PreparedStatement delete = conn.prepare(deleteSql);
+            bindCustomer(delete, customer, name);
+            delete.executeUpdate();
+            Map<String, Integer> byDate = new TreeMap<>();
+            for (Reservation row : rows) {
+                byDate.merge(row.date(), 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> day : byDate.entrySet()) {
+                countCancellations(conn, day.getKey(), day.getValue());
+            }
+            return rows;
+        });
+    }
+
+    private static void bindCustomer(PreparedStatement pstmt, long customer, String name) throws SQLException {
+        pstmt.setLong(1, customer);
+        if (name != null) {
+            pstmt.setString(2, name);
+        }
+    }
+
+    //Binds the capacity backstop: for each slot of the turn, the parties already sitting during it
+    private int bindRoomCheck(PreparedStatement pstmt, int index, LocalDate date, int slot, int guests, Integer excludeId)
+            throws SQLException {
+        for (int during = slot; during < slot + turnSlots; during++) {
+            pstmt.setInt(index++, inventory.tableCount());
+            pstmt.setInt(index++, guests);
+            pstmt.setInt(index++, inventory.totalSeats());
+            pstmt.setString(index++, date.toString());
+            for (int seated = during - turnSlots + 1; seated <= during; seated++) {
+                if (seated >= 0 && seated < schedule.count()) {
+                    pstmt.setInt(index++, schedule.minuteOfDay(seated));
+                } else {
+                    pstmt.setNull(index++, Types.INTEGER);
+                }
+            }
+            if (excludeId != null) {
+                pstmt.setInt(index++, excludeId);
+            }
+        }
+        return index;
+    }
+
+    //Creates a customer the row about to be written refers to, leaving an existing one as it is
+    private static void addCustomer(PooledConnection conn, long customer, String name) throws SQLException {
+        PreparedStatement pstmt = conn.prepare(ReservationSql.ADD_CUSTOMER);
+        pstmt.setLong(1, customer);
+        pstmt.setString(2, name);
+        pstmt.executeUpdate();
+    }
+
+    //Creates the customer on their first booking; later ones refresh the name they go by
+    private static void saveCustomer(PooledConnection conn, long customer, String name) throws SQLException {
+        PreparedStatement pstmt = conn.prepare(ReservationSql.UPSERT_CUSTOMER);
+        pstmt.setLong(1, customer);
+        pstmt.setString(2, name);
+        pstmt.executeUpdate();
+    }
+
+    @Override
+    public List<AvailabilityIndex.Booking> bookingsOn(LocalDate date) throws SQLException {
+        List<AvailabilityIndex.Booking> bookings = new ArrayList<>();
+        try (PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(ReservationSql.BOOKINGS_FOR_DATE);
+            pstmt.setString(1, date.toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    bookings.add(new AvailabilityIndex.Booking(rs.getInt(1), schedule.slotAtMinute(rs.getInt(2)), rs.getInt(3)));
+                }
+            }
+        }
+        return bookings;
+    }
+
+    @Override
+    public Map<LocalDate, List<AvailabilityIndex.Booking>> bookingsBetween(LocalDate first, LocalDate last) throws SQLException {
+        Map<LocalDate, List<AvailabilityIndex.Booking>> bookings = new TreeMap<>();
+        try (PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(ReservationSql.BOOKINGS_BETWEEN);
+            pstmt.setString(1, first.toString());
+            pstmt.setString(2, last.toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                String day = null;
+                List<AvailabilityIndex.Booking> dayBookings = null;
+                while (rs.next()) {
+                    if (!rs.getString(1).equals(day)) {
+                        day = rs.getString(1);
+                        dayBookings = bookings.computeIfAbsent(LocalDate.parse(day), date -> new ArrayList<>());
+                    }
+                    dayBookings.add(new AvailabilityIndex.Booking(rs.getInt(2), schedule.slotAtMinute(rs.getInt(3)), rs.getInt(4)));
+                }
+            }
+        }
+        for (List<AvailabilityIndex.Booking> dayBookings : bookings.values()) {
+            dayBookings.sort(Comparator.comparingInt(AvailabilityIndex.Booking::reservationId));
+        }
+        return bookings;
+    }
+
+    @Override
+    public Reservation reservation(int id) throws SQLException {
+        try (PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(ReservationSql.RESERVATION_BY_ID);
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? readReservation(rs) : null;
+            }
+        }
+    }
+
+    //Two index walks, one forward from today and one back from it
+    @Override
+    public Reservation findReservation(long customer, String name, LocalDate today) throws SQLException {
+        try (PooledConnection conn = pool.acquire()) {
+            for (String sql : List.of(ReservationSql.NEXT_RESERVATION, ReservationSql.LAST_RESERVATION)) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setLong(1, customer);
+                pstmt.setString(2, name);
+                pstmt.setString(3, today.toString());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return readReservation(rs);
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    //Reads the live table and the archive in one snapshot and merges them, newest first
+    @Override
+    public ReservationPage historyPage(long customer, String name, ReservationPage.Key before, int limit) throws SQLException {
+        if (customer == PhoneKey.NONE) {
+            // Archived rows without a readable phone number are filed under NONE; they belong to nobody's history
+            return new ReservationPage(List.of(), before, false);
+        }
+        List<Keyed> live;
+        List<Keyed> archived;
+        try (PooledConnection conn = pool.acquire()) {
+            // One read transaction, so a row the archiver moves in between is seen in exactly one tier
+            conn.begin();
+            live = readHistory(conn, ReservationSql.RESERVATION_HISTORY, customer, name, before, limit + 1);
+            archived = readHistory(conn, ReservationSql.ARCHIVE_HISTORY, customer, name, before, limit + 1);
+            conn.commit();
+        }
+        List<Reservation> rows = new ArrayList<>(limit);
+        ReservationPage.Key last = before;
+        int fromLive = 0;
+        int fromArchive = 0;
+        while (rows.size() < limit && (fromLive < live.size() || fromArchive < archived.size())) {
+            boolean takeLive = fromArchive == archived.size() || (fromLive < live.size()
+                    && ReservationPage.Key.ORDER.compare(live.get(fromLive).key(), archived.get(fromArchive).key()) > 0);
+            Keyed next = takeLive ? live.get(fromLive++) : archived.get(fromArchive++);
+            rows.add(next.reservation());
+            last = next.key();
+        }
+        return new ReservationPage(rows, last, fromLive < live.size() || fromArchive < archived.size());
+    }
+
+    private List<Keyed> readHistory(PooledConnection conn, String sql, long customer, String name,
+                                    ReservationPage.Key before, int limit) throws SQLException {
+        PreparedStatement pstmt = conn.prepare(sql);
+        pstmt.setLong(1, customer);
+        pstmt.setString(2, name);
+        pstmt.setString(3, before.date());
+        pstmt.setInt(4, before.minute());
+        pstmt.setInt(5, before.id());
+        pstmt.setInt(6, limit);
+        List<Keyed> rows = new ArrayList<>(limit);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                int minute = rs.getInt("reservation_minute");
+                Reservation reservation = new Reservation(rs.getInt("id"), rs.getString("name"), customerPhone(rs),
+                        rs.getString("reservation_date"), schedule.timeAt(minute),
+                        rs.getInt("guests"), rs.getString("specialRequests"));
+                rows.add(new Keyed(reservation, new ReservationPage.Key(reservation.date(), minute, reservation.id())));
+            }
+        }
+        return rows;
+    }
+
+    private record Keyed(Reservation reservation, ReservationPage.Key key) {
+    }
+
+    //Moves up to limit of the oldest reservations dated before the cutoff into the archive; returns how many moved
+    int archiveBefore(LocalDate cutoff, int limit) throws SQLException {
+        return writer.execute(conn -> {
+            PreparedStatement archive = conn.prepare(ReservationSql.ARCHIVE_OLDEST);
+            archive.setString(1, cutoff.toString());
+            archive.setInt(2, limit);
+            int moved = archive.executeUpdate();
+            PreparedStatement delete = conn.prepare(ReservationSql.DELETE_OLDEST);
+            delete.setString(1, cutoff.toString());
+            delete.setInt(2, limit);
+            delete.executeUpdate();
+            return moved;
+        });
+    }
+
+    @Override
+    public List<Reservation> listReservations() throws SQLException {
+        List<Reservation> reservations = new ArrayList<>();
+        try (PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare(ReservationSql.LIST_RESERVATIONS).executeQuery()) {
+            while (rs.next()) {
+                reservations.add(readReservation(rs));
+            }
+        }
+        return reservations;
+    }
+
+    @Override
+    public ReservationPage pageReservations(ReservationPage.Key after, String beforeDate, int limit) throws SQLException {
+        try (PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(ReservationSql.PAGE_RESERVATIONS);
+            pstmt.setString(1, after.date());
+            pstmt.setInt(2, after.minute());
+            pstmt.setInt(3, after.id());
+            pstmt.setString(4, beforeDate);
+            // One extra row tells whether another page follows
+            pstmt.setInt(5, limit + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return readPage(rs, after, limit);
+            }
+        }
+    }
+
+    private static ReservationPage readPage(ResultSet rs, ReservationPage.Key from, int limit) throws SQLException {
+        List<Reservation> rows = new ArrayList<>(limit);
+        ReservationPage.Key last = from;
+        boolean more = false;
+        while (rs.next()) {
+            if (rows.size() == limit) {
+                more = true;
+                break;
+            }
+            Reservation reservation = readReservation(rs);
+            rows.add(reservation);
+            last = new ReservationPage.Key(reservation.date(), rs.getInt("reservation_minute"), reservation.id());
+        }
+        return new ReservationPage(rows, last, more);
+    }
+
+    @Override
+    public Customer customer(long customer) throws SQLException {
+        try (PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(ReservationSql.FIND_CUSTOMER);
+            pstmt.setLong(1, customer);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new Customer(rs.getLong(1), rs.getString(2), rs.getInt(3)) : null;
+            }
+        }
+    }
+
+    @Override
+    public int joinWaitlist(String name, long customer, int guests) throws SQLException {
+        return writer.execute(conn -> {
+            saveCustomer(conn, customer, name);
+            PreparedStatement pstmt = conn.prepare(ReservationSql.JOIN_WAITLIST);
+            pstmt.setString(1, name);
+            pstmt.setLong(2, customer);
+            pstmt.setInt(3, guests);
+            pstmt.executeUpdate();
+            int id = lastInsertId(conn);
+            try (ResultSet rs = conn.prepare(ReservationSql.WAITLIST_LENGTH).executeQuery()) {
+                raiseWaitlistPeak(conn, LocalDate.now(), rs.next() ? rs.getInt(1) : 0);
+            }
+            return id;
+        });
+    }
+
+    @Override
+    public List<Integer> leaveWaitlist(long customer) throws SQLException {
+        return writer.execute(conn -> {
+            List<Integer> removed = new ArrayList<>();
+            PreparedStatement select = conn.prepare(ReservationSql.WAITLIST_IDS_BY_PHONE);
+            select.setLong(1, customer);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    removed.add(rs.getInt(1));
+                }
+            }
+            PreparedStatement pstmt = conn.prepare(ReservationSql.DELETE_FROM_WAITLIST);
+            pstmt.setLong(1, customer);
+            pstmt.executeUpdate();
+            return removed;
+        });
+    }
+
+    @Override
+    public Integer findWaitlistEntry(long customer, String name) throws SQLException {
+        try (PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(ReservationSql.WAITLIST_ENTRY);
+            pstmt.setLong(1, customer);
+            pstmt.setString(2, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt("id") : null;
+            }
+        }
+    }
+
+    @Override
+    public List<Integer> waitlistIds() throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare(ReservationSql.WAITLIST_IDS).executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public List<WaitlistEntry> listWaitlist() throws SQLException {
+        List<WaitlistEntry> entries = new ArrayList<>();
+        try (PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare(ReservationSql.LIST_WAITLIST).executeQuery()) {
+            int position = 0;
+            while (rs.next()) {
+                position++;
+                entries.add(new WaitlistEntry(rs.getInt("id"), rs.getString("name"),
+                        customerPhone(rs), rs.getInt("guests"), position));
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public void addManager(String login, String password) throws SQLException {
+        writer.execute(conn -> {
+            PreparedStatement pstmt = conn.prepare(ReservationSql.ADD_MANAGER);
+            pstmt.setString(1, login);
+            pstmt.setString(2, password);
+            return pstmt.executeUpdate();
+        });
+    }
+
+    @Override
+    public boolean authenticateManager(String login, String password) throws SQLException {
+        try (PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(ReservationSql.AUTHENTICATE_MANAGER);
+            pstmt.setString(1, login);
+            pstmt.setString(2, password);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                // A matching row means successful authentication
+                return rs.next();
+            }
+        }
+    }
+
+    @Override
+    public void forEachVisit(VisitSink sink) throws SQLException {
+        try (PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare(ReservationSql.ALL_VISITS).executeQuery()) {
+            while (rs.next()) {
+                long day = rs.getLong(1);
+                // Rows whose date text is not a date have no day to count under
+                if (!rs.wasNull()) {
+                    sink.accept(day, rs.getInt(2), rs.getInt(3));
+                }
+            }
+        }
+    }
+
+    //Adds cancellations to the tally of a visit date; also used for the changes an event log makes
+    void recordCancellations(LocalDate visitDate, int count) throws SQLException {
+        writer.execute(conn -> countCancellations(conn, visitDate.toString(), count));
+    }
+
+    //Raises a day's waitlist peak; also used for the changes an event log makes
+    void recordWaitlistLength(LocalDate day, int length) throws SQLException {
+        writer.execute(conn -> raiseWaitlistPeak(conn, day, length));
+    }
+
+    private static int countCancellations(PooledConnection conn, String visitDate, int count) throws SQLException {
+        PreparedStatement pstmt = conn.prepare(ReservationSql.COUNT_CANCELLATIONS);
+        pstmt.setString(1, visitDate);
+        pstmt.setInt(2, count);
+        return pstmt.executeUpdate();
+    }
+
+    private static int raiseWaitlistPeak(PooledConnection conn, LocalDate day, int length) throws SQLException {
+        PreparedStatement pstmt = conn.prepare(ReservationSql.RAISE_WAITLIST_PEAK);
+        pstmt.setString(1, day.toString());
+        pstmt.setInt(2, length);
+        return pstmt.executeUpdate();
+    }
+
+    @Override
+    public List<DailyActivity> activity() throws SQLException {
+        List<DailyActivity> days = new ArrayList<>();
+        try (PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare(ReservationSql.LIST_ACTIVITY).executeQuery()) {
+            while (rs.next()) {
+                try {
+                    days.add(new DailyActivity(LocalDate.parse(rs.getString(1)), rs.getInt(2), rs.getInt(3)));
+                } catch (DateTimeParseException e) {
+                    LOG.warn("Skipping activity of unreadable day {}", rs.getString(1));
+                }
+            }
+        }
+        return days;
+    }
+
+    //Everything in the tables, to start an event log for a database that had none
+    EventStore.State readTables() throws SQLException {
+        List<ReservationEvent.Booking> reservations = new ArrayList<>();
+        List<ReservationEvent.WaitlistJoined> waitlist = new ArrayList<>();
+        List<Customer> customers = new ArrayList<>();
+        int nextReservationId = 1;
+        int nextWaitlistId = 1;
+        try (PooledConnection conn = pool.acquire()) {
+            try (ResultSet rs = conn.prepare(ReservationSql.LIST_RESERVATIONS).executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt("id");
+                    nextReservationId = Math.max(nextReservationId, id + 1);
+                    try {
+                        reservations.add(new ReservationEvent.Booking(id, rs.getString("name"), customerId(rs),
+                                LocalDate.parse(rs.getString("reservation_date")), rs.getString("reservation_time"),
+                                rs.getInt("guests"), rs.getString("specialRequests")));
+                    } catch (DateTimeParseException e) {
+                        LOG.warn("Leaving reservation {} out of the event log: no valid date", id);
+                    }
+                }
+            }
+            try (ResultSet rs = conn.prepare(ReservationSql.LIST_WAITLIST).executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt("id");
+                    nextWaitlistId = Math.max(nextWaitlistId, id + 1);
+                    waitlist.add(new ReservationEvent.WaitlistJoined(id, rs.getString("name"), customerId(rs), rs.getInt("guests")));
+                }
+            }
+            try (ResultSet rs = conn.prepare(ReservationSql.LIST_CUSTOMERS).executeQuery()) {
+                while (rs.next()) {
+                    customers.add(new Customer(rs.getLong(1), rs.getString(2), rs.getInt(3)));
+                }
+            }
+            // AUTOINCREMENT never reuses ids of deleted rows, and neither does the log
+            try (ResultSet rs = conn.prepare(ReservationSql.ID_SEQUENCES).executeQuery()) {
+                while (rs.next()) {
+                    int next = rs.getInt("seq") + 1;
+                    if ("reservations".equals(rs.getString("name"))) {
+                        nextReservationId = Math.max(nextReservationId, next);
+                    } else if ("waitlist".equals(rs.getString("name"))) {
+                        nextWaitlistId = Math.max(nextWaitlistId, next);
+                    }
+                }
+            }
+        }
+        return new EventStore.State(0, nextReservationId, nextWaitlistId, reservations, waitlist, customers);
+    }
+
+    private static Reservation readReservation(ResultSet rs) throws SQLException {
+        return new Reservation(rs.getInt("id"), rs.getString("name"), customerPhone(rs),
+                rs.getString("reservation_date"), rs.getString("reservation_time"),
+                rs.getInt("guests"), rs.getString("specialRequests"));
+    }
+
+    //Phone number of a row's customer; rows whose legacy phone could not be read have none
+    private static String customerPhone(ResultSet rs) throws SQLException {
+        long customer = rs.getLong("customer_id");
+        return rs.wasNull() ? "" : PhoneKey.format(customer);
+    }
+
+    private static long customerId(ResultSet rs) throws SQLException {
+        long customer = rs.getLong("customer_id");
+        return rs.wasNull() ? PhoneKey.NONE : customer;
+    }
+
+    private static int lastInsertId(PooledConnection conn) throws SQLException {
+        try (ResultSet rs = conn.prepare(ReservationSql.LAST_INSERT_ID).executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    //Returns the date, time and party size currently stored for a reservation
+    private static Reservation findPrevious(PooledConnection conn, int reservationId) throws SQLException {
+        PreparedStatement pstmt = conn.prepare(ReservationSql.RESERVATION_DATE);
+        pstmt.setInt(1, reservationId);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? new Reservation(reservationId, null, null, rs.getString(1), rs.getString(2), rs.getInt(3), null) : null;
+        }
+    }
+
+    //Saves what is queued, then closes the connections
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (archiver != null) {
+                archiver.close();
+            }
+        }
+        writer.close();
+        metrics.close();
+        pool.close();
+    }
+}
@@ -0,0 +1,43 @@
+package com.restaurantsystem.reservation;
+
+import com.toedter.calendar.JDateChooser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import java.time.LocalDate;
+
+/**
+ * Training run for the class-data-sharing archive the appcds profile builds
+ * (mvn -Pappcds package). It walks the window's startup path without opening
+ * a window, so it also runs on a build machine with no display: the database
+ * is migrated, today's availability loaded and the form's components built.
+ * Every class it loads is read from the archive on the next start. Pass
+ * -Dcds.training=gui to the build to train on the real window instead.
+ */
+public class StartupTraining {
+    private static final Logger LOG = LoggerFactory.getLogger(StartupTraining.class);
+    private static final String DB_URL = "jdbc:sqlite:reservations.db";
+
+    public static void main(String[] args) throws Exception {
+        ServiceSchedule schedule = ServiceSchedule.configured();
+        try (ReservationService service = ReservationService.configured(DB_URL, 1, schedule)) {
+            service.migrate();
+            service.availability(LocalDate.now(), 2);
+            SwingUtilities.invokeAndWait(() -> {
+                JPanel form = new JPanel();
+                form.add(new JDateChooser());
+                form.add(new TimeGridPanel(schedule, new TimeGridPanel.Listener() {
+                    public void slotChosen(int slot) { }
+                    public void waitlistRequested(int slot) { }
+                }));
+                form.add(new JScrollPane(new JTextArea(3, 20)));
+                form.add(new JList<>(new DefaultListModel<SlotSearch.Suggestion>()));
+                form.add(new JTable(new Object[1][1], new Object[] {""}));
+                form.add(new JToggleButton());
+                form.doLayout();
+            });
+        }
+        LOG.info("Startup path trained {} ms after JVM start", RestaurantReservationSystem.millisSinceJvmStart());
+    }
+}
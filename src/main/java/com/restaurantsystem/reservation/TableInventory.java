@@ -0,0 +1,153 @@
+package com.restaurantsystem.reservation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The restaurant's tables and the ways they can be seated: every table on its
+ * own plus any declared combinations of tables. Seating options are sorted by
+ * capacity so the smallest option that fits a party can be found by binary search.
+ */
+public final class TableInventory {
+    private final List<DiningTable> tables;
+    private final int[][] optionTables;
+    private final int[] optionCapacity;
+
+    private TableInventory(List<DiningTable> tables, List<int[]> options) {
+        this.tables = List.copyOf(tables);
+        int[] capacities = new int[options.size()];
+        Integer[] order = new Integer[options.size()];
+        for (int i = 0; i < options.size(); i++) {
+            order[i] = i;
+            for (int table : options.get(i)) {
+                capacities[i] += tables.get(table).seats();
+            }
+        }
+        // Smallest capacity first, then fewest tables so single tables win ties
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> capacities[i])
+                .thenComparingInt(i -> options.get(i).length));
+        this.optionTables = new int[order.length][];
+        this.optionCapacity = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            optionTables[i] = options.get(order[i]);
+            optionCapacity[i] = capacities[order[i]];
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    //Dining room used when no other layout is configured
+    public static TableInventory defaultLayout() {
+        return builder()
+                .table("A1", 2).table("A2", 2).table("A3", 2).table("A4", 2)
+                .table("B1", 4).table("B2", 4).table("B3", 4).table("B4", 4)
+                .table("C1", 6).table("C2", 6)
+                .combine("A1", "A2").combine("A3", "A4")
+                .combine("B1", "B2").combine("B3", "B4")
+                .combine("C1", "C2")
+                .build();
+    }
+
+    public List<DiningTable> tables() {
+        return tables;
+    }
+
+    public int tableCount() {
+        return tables.size();
+    }
+
+    //Seats across every table; no set of parties sitting at once can exceed it
+    public int totalSeats() {
+        int seats = 0;
+        for (DiningTable table : tables) {
+            seats += table.seats();
+        }
+        return seats;
+    }
+
+    public int optionCount() {
+        return optionTables.length;
+    }
+
+    public int capacity(int option) {
+        return optionCapacity[option];
+    }
+
+    int[] optionTables(int option) {
+        return optionTables[option];
+    }
+
+    public int maxPartySize() {
+        return optionCapacity.length == 0 ? 0 : optionCapacity[optionCapacity.length - 1];
+    }
+
+    //Index of the first seating option large enough for the party
+    public int firstOptionFor(int guests) {
+        int low = 0;
+        int high = optionCapacity.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (optionCapacity[mid] < guests) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A single physical table.
+     */
+    public record DiningTable(String name, int seats) {
+    }
+
+    /**
+     * Collects tables and combinations for a {@link TableInventory}.
+     */
+    public static final class Builder {
+        private final List<DiningTable> tables = new ArrayList<>();
+        private final Map<String, Integer> byName = new HashMap<>();
+        private final List<int[]> combinations = new ArrayList<>();
+
+        public Builder table(String name, int seats) {
+            if (seats < 1) {
+                throw new IllegalArgumentException("Table " + name + " must seat at least one guest");
+            }
+            if (byName.putIfAbsent(name, tables.size()) != null) {
+                throw new IllegalArgumentException("Duplicate table " + name);
+            }
+            tables.add(new DiningTable(name, seats));
+            return this;
+        }
+
+        //Declares that the named tables can be pushed together for one party
+        public Builder combine(String... names) {
+            int[] members = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                Integer index = byName.get(names[i]);
+                if (index == null) {
+                    throw new IllegalArgumentException("Unknown table " + names[i]);
+                }
+                members[i] = index;
+            }
+            combinations.add(members);
+            return this;
+        }
+
+        public TableInventory build() {
+            List<int[]> options = new ArrayList<>();
+            for (int i = 0; i < tables.size(); i++) {
+                options.add(new int[] {i});
+            }
+            options.addAll(combinations);
+            return new TableInventory(tables, options);
+        }
+    }
+}
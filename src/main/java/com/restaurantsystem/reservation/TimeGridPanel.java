@@ -0,0 +1,151 @@
+package com.restaurantsystem.reservation;
+
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.time.LocalDate;
+
+/**
+ * The grid of time slot buttons. One button per slot of the schedule is made
+ * up front and reused for every date; {@link #show} compares the new state of
+ * each slot with what is on screen and only touches the buttons that changed,
+ * so paging through dates neither allocates nor repaints the whole panel. The
+ * panel is only laid out again when the opening hours differ from the last date.
+ */
+public class TimeGridPanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+    private static final String SLOT = "slot";
+
+    enum Cell { CLOSED, PAST, FREE, WAITLIST, SELECTED }
+
+    /**
+     * What the grid reports back when a button is pressed.
+     */
+    public interface Listener {
+        void slotChosen(int slot);
+
+        void waitlistRequested(int slot);
+    }
+
+    private final ServiceSchedule schedule;
+    private final JButton[] buttons;
+    private final Cell[] cells;
+    private final JLabel closedLabel = new JLabel();
+    private long laidOut = -1;
+    private long free;
+    private int selected = -1;
+    private int changes;
+
+    public TimeGridPanel(ServiceSchedule schedule, Listener listener) {
+        super(new GridLayout(0, 7, 10, 10));
+        this.schedule = schedule;
+        this.buttons = new JButton[schedule.count()];
+        this.cells = new Cell[schedule.count()];
+        // One listener for every button; the slot travels with the button
+        ActionListener pressed = (ActionEvent e) -> {
+            int slot = (Integer) ((JComponent) e.getSource()).getClientProperty(SLOT);
+            if (cells[slot] == Cell.WAITLIST) {
+                listener.waitlistRequested(slot);
+            } else {
+                listener.slotChosen(slot);
+            }
+        };
+        for (int slot = 0; slot < buttons.length; slot++) {
+            JButton button = new JButton(schedule.label(slot));
+            button.setPreferredSize(new Dimension(100, 30));
+            button.putClientProperty(SLOT, slot);
+            button.addActionListener(pressed);
+            buttons[slot] = button;
+            cells[slot] = Cell.CLOSED;
+        }
+    }
+
+    //Shows a date: open and bookable slots from the schedule, available ones from the seating plan
+    public void show(LocalDate date, long open, long bookable, long available) {
+        if (open != laidOut) {
+            layOut(date, open);
+        } else if (open == 0) {
+            closedLabel.setText("Closed on " + date);
+        }
+        this.free = bookable & available;
+        for (int slot = 0; slot < buttons.length; slot++) {
+            long bit = 1L << slot;
+            Cell cell;
+            if ((open & bit) == 0) {
+                cell = Cell.CLOSED;
+            } else if ((bookable & bit) == 0) {
+                cell = Cell.PAST;
+            } else if ((available & bit) == 0) {
+                cell = Cell.WAITLIST;
+            } else {
+                cell = slot == selected ? Cell.SELECTED : Cell.FREE;
+            }
+            apply(slot, cell);
+        }
+    }
+
+    //Highlights the chosen slot, or none for -1
+    public void select(int slot) {
+        int previous = selected;
+        selected = slot;
+        if (previous >= 0 && cells[previous] == Cell.SELECTED) {
+            apply(previous, Cell.FREE);
+        }
+        if (slot >= 0 && (free & (1L << slot)) != 0) {
+            apply(slot, Cell.SELECTED);
+        }
+    }
+
+    //Only the buttons of open slots are in the panel; rebuilding it is needed when the hours change
+    private void layOut(LocalDate date, long open) {
+        laidOut = open;
+        removeAll();
+        if (open == 0) {
+            closedLabel.setText("Closed on " + date);
+            add(closedLabel);
+        }
+        for (int slot = 0; slot < buttons.length; slot++) {
+            if ((open & (1L << slot)) != 0) {
+                add(buttons[slot]);
+            }
+        }
+        revalidate();
+        repaint();
+    }
+
+    private void apply(int slot, Cell cell) {
+        if (cells[slot] == cell) {
+            return;
+        }
+        cells[slot] = cell;
+        changes++;
+        JButton button = buttons[slot];
+        switch (cell) {
+            case PAST -> style(button, schedule.label(slot), false, Color.GRAY); // Gray out past times
+            case WAITLIST -> style(button, "Waitlist", true, Color.RED); // Highlight reserved slots in red
+            case SELECTED -> style(button, schedule.label(slot), true, Color.ORANGE);
+            default -> style(button, schedule.label(slot), true, null);
+        }
+    }
+
+    private static void style(JButton button, String text, boolean enabled, Color background) {
+        button.setText(text);
+        button.setEnabled(enabled);
+        button.setBackground(background);
+    }
+
+    Cell cell(int slot) {
+        return cells[slot];
+    }
+
+    //Buttons restyled so far; lets tests check that unchanged slots are left alone
+    int changes() {
+        return changes;
+    }
+}
@@ -0,0 +1,120 @@
+package com.restaurantsystem.reservation;
+
+import java.sql.SQLException;
+import java.util.BitSet;
+
+/**
+ * In-memory mirror of the waitlist ordered by each entry's immutable sequence
+ * number (the waitlist row id). A Fenwick tree over the sequence numbers gives
+ * O(log n) join, remove and "what is my position" without renumbering rows.
+ */
+public class WaitlistEngine {
+    private final Loader loader;
+    private boolean loaded;
+    // Sequence number stored at tree index 1
+    private int base = 1;
+    private int[] tree = new int[17];
+    private BitSet live = new BitSet();
+    private int size;
+
+    public WaitlistEngine(Loader loader) {
+        this.loader = loader;
+    }
+
+    //Loads the current entries on first use; later calls are free
+    public synchronized void ensureLoaded() throws SQLException {
+        if (loaded) {
+            return;
+        }
+        for (int id : loader.load()) {
+            add(id);
+        }
+        loaded = true;
+    }
+
+    //Records a new entry; a no-op if the entry is already known
+    public synchronized void recordJoin(int id) {
+        if (loaded) {
+            add(id);
+        }
+    }
+
+    public synchronized void recordRemoval(int id) {
+        if (loaded && id >= base && live.get(id - base)) {
+            live.clear(id - base);
+            update(id - base + 1, -1);
+            size--;
+        }
+    }
+
+    //1-based place in line, or -1 if the entry is not waiting
+    public synchronized int position(int id) throws SQLException {
+        ensureLoaded();
+        if (id < base || !live.get(id - base)) {
+            return -1;
+        }
+        return prefixSum(id - base + 1);
+    }
+
+    public synchronized int size() throws SQLException {
+        ensureLoaded();
+        return size;
+    }
+
+    private void add(int id) {
+        if (id >= base && live.get(id - base)) {
+            return;
+        }
+        if (id < base || id - base + 1 >= tree.length) {
+            int low = live.isEmpty() ? id : Math.min(id, base + live.nextSetBit(0));
+            int high = live.isEmpty() ? id : Math.max(id, base + live.length() - 1);
+            rebuild(low, 2 * (high - low + 1));
+        }
+        live.set(id - base);
+        update(id - base + 1, 1);
+        size++;
+    }
+
+    //Re-bases the tree on the oldest live entry, dropping space held by removed entries
+    private void rebuild(int newBase, int minCapacity) {
+        BitSet oldLive = live;
+        int oldBase = base;
+        base = newBase;
+        tree = new int[Math.max(minCapacity, 16) + 1];
+        live = new BitSet();
+        for (int i = oldLive.nextSetBit(0); i >= 0; i = oldLive.nextSetBit(i + 1)) {
+            int index = oldBase + i - base;
+            live.set(index);
+            tree[index + 1]++;
+        }
+        // Linear-time Fenwick construction from the raw counts
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    private void update(int index, int delta) {
+        for (int i = index; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private int prefixSum(int index) {
+        int sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Reads the ids of every waiting entry from the backing store.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Iterable<Integer> load() throws SQLException;
+    }
+}
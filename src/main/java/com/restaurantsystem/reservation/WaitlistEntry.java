@@ -0,0 +1,7 @@
+package com.restaurantsystem.reservation;
+
+/**
+ * A party waiting for a table, with its computed place in line.
+ */
+public record WaitlistEntry(int id, String name, String phone, int guests, int position) {
+}
@@ -0,0 +1,246 @@
+package com.restaurantsystem.reservation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.restaurantsystem.reservation.OperationMetrics.Operation;
+
+/**
+ * The one thread that writes to the database. Every mutation is queued here and
+ * the writer commits whatever has piled up as a single transaction, so parallel
+ * bookings never race for SQLite's write lock and a burst of them shares one
+ * commit. Each write runs in its own savepoint: one that fails is rolled back
+ * without taking the rest of its batch with it. Futures complete only after the
+ * batch is committed. When the queue is full, submitting waits for room and
+ * gives up with {@link SQLTransientException} rather than queueing without bound.
+ * Readers do not go through the queue; under WAL they keep reading in parallel.
+ */
+public class WriteQueue implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(WriteQueue.class);
+    private static final int SQLITE_BUSY = 5;
+    private static final int BUSY_RETRIES = 5;
+
+    private final ConnectionPool pool;
+    private final OperationMetrics metrics;
+    private final BlockingQueue<Job<?>> queue;
+    private final int maxBatch;
+    private final long offerMillis;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public WriteQueue(ConnectionPool pool, OperationMetrics metrics, int capacity, int maxBatch, long offerMillis) {
+        this.pool = pool;
+        this.metrics = metrics;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.offerMillis = offerMillis;
+        this.writer = new Thread(this::drain, "reservation-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    //Queues a write; the future completes with its result once the batch it ran in is committed
+    public <T> CompletableFuture<T> submit(Write<T> write) {
+        Job<T> job = new Job<>(write);
+        if (closed) {
+            job.future.completeExceptionally(new SQLException("The database is closed"));
+            return job.future;
+        }
+        try {
+            // Backpressure: callers wait for room instead of piling up work
+            if (!queue.offer(job, offerMillis, TimeUnit.MILLISECONDS)) {
+                metrics.recordError(Operation.COMMIT);
+                job.future.completeExceptionally(new SQLTransientException("Too many changes waiting to be saved; please try again"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.future.completeExceptionally(new SQLException("Interrupted while waiting to save", e));
+        }
+        return job.future;
+    }
+
+    //Queues a write and waits for it to be committed
+    public <T> T execute(Write<T> write) throws SQLException {
+        try {
+            return submit(write).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting to save", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sql) {
+                throw sql;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    //Writes waiting for the writer right now
+    public int queued() {
+        return queue.size();
+    }
+
+    private void drain() {
+        List<Job<?>> batch = new ArrayList<>(maxBatch);
+        while (!closed || !queue.isEmpty()) {
+            Job<?> first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, maxBatch - 1);
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    //Runs a batch in one transaction, retrying it whole if another process holds the write lock
+    private void commit(List<Job<?>> batch) {
+        long start = System.nanoTime();
+        for (int attempt = 0; ; attempt++) {
+            try (PooledConnection conn = pool.acquire()) {
+                runBatch(conn, batch);
+                break;
+            } catch (SQLException e) {
+                if (isBusy(e) && attempt < BUSY_RETRIES) {
+                    LOG.debug("Database busy, retrying batch of {}", batch.size());
+                    pause(10L << attempt);
+                    continue;
+                }
+                LOG.error("Could not commit {} changes to {}", batch.size(), pool.getUrl(), e);
+                metrics.recordError(Operation.COMMIT);
+                for (Job<?> job : batch) {
+                    job.error = e;
+                }
+                break;
+            } catch (RuntimeException e) {
+                LOG.error("Could not commit {} changes to {}", batch.size(), pool.getUrl(), e);
+                metrics.recordError(Operation.COMMIT);
+                for (Job<?> job : batch) {
+                    job.error = e;
+                }
+                break;
+            }
+        }
+        metrics.record(Operation.COMMIT, start);
+        metrics.addRows(Operation.COMMIT, batch.size());
+        for (Job<?> job : batch) {
+            job.complete();
+        }
+    }
+
+    private void runBatch(PooledConnection conn, List<Job<?>> batch) throws SQLException {
+        try (Statement stmt = conn.connection().createStatement()) {
+            // Take the write lock up front so nothing in the batch can hit SQLITE_BUSY halfway
+            stmt.execute("BEGIN IMMEDIATE");
+            try {
+                for (Job<?> job : batch) {
+                    stmt.execute("SAVEPOINT write");
+                    try {
+                        job.run(conn);
+                    } catch (SQLException e) {
+                        if (isBusy(e)) {
+                            throw e;
+                        }
+                        stmt.execute("ROLLBACK TO write");
+                        job.error = e;
+                    } catch (RuntimeException e) {
+                        stmt.execute("ROLLBACK TO write");
+                        job.error = e;
+                    }
+                    stmt.execute("RELEASE write");
+                }
+                stmt.execute("COMMIT");
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    stmt.execute("ROLLBACK");
+                } catch (SQLException rollback) {
+                    e.addSuppressed(rollback);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static boolean isBusy(SQLException e) {
+        return (e.getErrorCode() & 0xff) == SQLITE_BUSY;
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //Stops taking writes, saves everything already queued and waits for the writer to finish
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Job<?> left;
+        while ((left = queue.poll()) != null) {
+            left.future.completeExceptionally(new SQLException("The database is closed"));
+        }
+    }
+
+    /**
+     * A change made on the writer's connection. It runs inside the writer's
+     * transaction and must not begin or commit one of its own.
+     */
+    @FunctionalInterface
+    public interface Write<T> {
+        T apply(PooledConnection conn) throws SQLException;
+    }
+
+    private static final class Job<T> {
+        private final Write<T> write;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private Exception error;
+
+        Job(Write<T> write) {
+            this.write = write;
+        }
+
+        void run(PooledConnection conn) throws SQLException {
+            error = null;
+            result = write.apply(conn);
+        }
+
+        void complete() {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+}
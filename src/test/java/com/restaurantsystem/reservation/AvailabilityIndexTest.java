@@ -0,0 +1,99 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the per-date availability index.
+ */
+public class AvailabilityIndexTest {
+    private static final TableInventory ONE_TABLE = TableInventory.builder().table("T1", 4).build();
+    private static final int SLOTS = ServiceSchedule.defaultSchedule().count();
+
+    @Test
+    public void loadsOnceAndUpdatesInPlace() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        AvailabilityIndex index = new AvailabilityIndex(2, ONE_TABLE, SLOTS, 1, date -> {
+            loads.incrementAndGet();
+            return List.of(new AvailabilityIndex.Booking(1, 3, 2));
+        });
+        LocalDate day = LocalDate.of(2030, 5, 4);
+
+        assertNull(index.cachedAvailability(day, 2));
+        assertFalse(index.fits(day, 3, 2));
+        index.recordBooking(day, 2, 5, 4);
+        index.recordCancellation(day, 1);
+
+        assertTrue(index.fits(day, 3, 2));
+        assertFalse(index.fits(day, 5, 1));
+        assertTrue(index.fitsReplacing(day, 2, 5, 4));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void readsTheMissingDatesOfARangeTogether() throws Exception {
+        LocalDate first = LocalDate.of(2030, 5, 1);
+        AtomicInteger dayLoads = new AtomicInteger();
+        AtomicInteger rangeLoads = new AtomicInteger();
+        AvailabilityIndex index = new AvailabilityIndex(10, ONE_TABLE, SLOTS, 1, date -> {
+            dayLoads.incrementAndGet();
+            return List.of();
+        }, (from, to) -> {
+            rangeLoads.incrementAndGet();
+            assertEquals(first.plusDays(2), from);
+            assertEquals(first.plusDays(6), to);
+            return Map.of(first.plusDays(4), List.of(new AvailabilityIndex.Booking(7, 3, 4)));
+        });
+        index.availability(first, 2);
+        index.availability(first.plusDays(1), 2);
+
+        long[] week = index.availability(first, first.plusDays(6), 2);
+        assertEquals(7, week.length);
+        assertEquals(0, week[4] & (1L << 3));
+        assertEquals(1L << 3, week[5] & (1L << 3));
+        assertEquals(1, rangeLoads.get());
+        assertEquals(2, dayLoads.get());
+        // Every date of the range is cached now
+        index.availability(first, first.plusDays(6), 2);
+        assertEquals(1, rangeLoads.get());
+        assertEquals(week[4], (long) index.cachedAvailability(first.plusDays(4), 2));
+    }
+
+    @Test
+    public void onlyAWriteToTheDateBeingLoadedKeepsItOutOfTheCache() throws Exception {
+        LocalDate busy = LocalDate.of(2030, 5, 4);
+        LocalDate quiet = busy.plusDays(1);
+        AvailabilityIndex[] index = new AvailabilityIndex[1];
+        // Each load sees a booking land on the busy date while it reads
+        AtomicInteger ids = new AtomicInteger();
+        index[0] = new AvailabilityIndex(10, ONE_TABLE, SLOTS, 1, date -> {
+            index[0].recordBooking(busy, ids.incrementAndGet(), 3, 2);
+            return List.of();
+        });
+
+        index[0].availability(quiet, 2);
+        assertTrue(index[0].cachedAvailability(quiet, 2) != null);
+        index[0].availability(busy, 2);
+        assertNull(index[0].cachedAvailability(busy, 2));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedDate() throws Exception {
+        AvailabilityIndex index = new AvailabilityIndex(2, ONE_TABLE, SLOTS, 1, date -> List.of());
+        LocalDate first = LocalDate.of(2030, 1, 1);
+        index.availability(first, 2);
+        index.availability(first.plusDays(1), 2);
+        index.availability(first.plusDays(2), 2);
+
+        assertNull(index.cachedAvailability(first, 2));
+    }
+}
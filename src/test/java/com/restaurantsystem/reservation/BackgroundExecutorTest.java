@@ -0,0 +1,54 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for running database work after another future, e.g. the warm-up.
+ */
+public class BackgroundExecutorTest {
+
+    @Test
+    public void workCancelledWhileWaitingNeverRuns() throws Exception {
+        try (BackgroundExecutor background = new BackgroundExecutor("test", 1)) {
+            CompletableFuture<Void> ready = new CompletableFuture<>();
+            AtomicBoolean ran = new AtomicBoolean();
+            CompletableFuture<Integer> superseded = background.submitAfter(ready, () -> {
+                ran.set(true);
+                return 1;
+            });
+            CompletableFuture<Integer> latest = background.submitAfter(ready, () -> 2);
+
+            superseded.cancel(false);
+            ready.complete(null);
+
+            assertEquals(2, latest.get(5, TimeUnit.SECONDS));
+            assertFalse(ran.get());
+        }
+    }
+
+    @Test
+    public void workAfterAFailedWarmUpFailsWithIt() throws Exception {
+        try (BackgroundExecutor background = new BackgroundExecutor("test", 1)) {
+            AtomicBoolean ran = new AtomicBoolean();
+            CompletableFuture<Integer> work = background.submitAfter(
+                    CompletableFuture.failedFuture(new SQLException("no database")), () -> {
+                        ran.set(true);
+                        return 1;
+                    });
+
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> work.get(5, TimeUnit.SECONDS));
+            assertEquals("no database", failure.getCause().getMessage());
+            assertFalse(ran.get());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the JSON booking API over a real socket.
+ */
+public class BookingHttpServerTest {
+
+    @TempDir
+    Path dir;
+
+    private ReservationService service;
+    private BookingHttpServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final String date = LocalDate.now().plusDays(7).toString();
+
+    @BeforeEach
+    public void start() throws Exception {
+        service = new ReservationService("jdbc:sqlite:" + dir.resolve("api.db"), 2);
+        service.migrate();
+        server = new BookingHttpServer(service, 0);
+        server.start();
+    }
+
+    @AfterEach
+    public void stop() {
+        server.close();
+        service.close();
+    }
+
+    @Test
+    public void booksAndFindsReservation() throws Exception {
+        HttpResponse<String> created = send("POST", "/reservations", "{\"name\":\"Ann\",\"phone\":\"123-456-7890\","
+                + "\"date\":\"" + date + "\",\"time\":\"07:00 PM\",\"guests\":4}");
+        assertEquals(201, created.statusCode());
+
+        HttpResponse<String> found = send("GET", "/reservations?name=Ann&phone=123-456-7890", null);
+        assertEquals(200, found.statusCode());
+        Map<String, Object> reservation = Json.parseObject(found.body());
+        assertEquals("07:00 PM", reservation.get("time"));
+        assertEquals(4L, reservation.get("guests"));
+
+        HttpResponse<String> cancelled = send("DELETE", "/reservations?name=Ann&phone=123-456-7890", null);
+        assertEquals(1L, Json.parseObject(cancelled.body()).get("cancelled"));
+    }
+
+    @Test
+    public void onlyTheGuestABookingIsUnderCanChangeIt() throws Exception {
+        HttpResponse<String> created = send("POST", "/reservations", "{\"name\":\"Ann\",\"phone\":\"123-456-7890\","
+                + "\"date\":\"" + date + "\",\"time\":\"07:00 PM\",\"guests\":4}");
+        long id = (Long) Json.parseObject(created.body()).get("id");
+        String change = "{\"name\":\"Mallory\",\"phone\":\"999-999-9999\",\"date\":\"" + date
+                + "\",\"time\":\"06:00 PM\",\"guests\":2}";
+
+        assertEquals(400, send("PUT", "/reservations/" + id, change).statusCode());
+        assertEquals(404, send("PUT", "/reservations/" + id + "?name=Mallory&phone=999-999-9999", change).statusCode());
+        assertEquals(404, send("PUT", "/reservations/" + id + "?name=Ann&phone=999-999-9999", change).statusCode());
+        assertEquals("07:00 PM", service.search("Ann", "123-456-7890").reservation().time());
+
+        String moved = "{\"name\":\"Ann\",\"phone\":\"123-456-7890\",\"date\":\"" + date
+                + "\",\"time\":\"06:00 PM\",\"guests\":2}";
+        assertEquals(200, send("PUT", "/reservations/" + id + "?name=Ann&phone=(123)%20456-7890", moved).statusCode());
+        assertEquals("06:00 PM", service.search("Ann", "123-456-7890").reservation().time());
+    }
+
+    @Test
+    public void rejectsPartiesThatDoNotFit() throws Exception {
+        HttpResponse<String> response = send("POST", "/reservations", "{\"name\":\"Big\",\"phone\":\"123-456-7890\","
+                + "\"date\":\"" + date + "\",\"time\":\"07:00 PM\",\"guests\":40}");
+        assertEquals(409, response.statusCode());
+
+        assertEquals(400, send("POST", "/reservations", "{\"name\":\"Bad\",\"phone\":\"12\"}").statusCode());
+        assertEquals(400, send("POST", "/reservations", "{\"name\":\"Late\",\"phone\":\"123-456-7890\","
+                + "\"date\":\"" + LocalDate.now().minusDays(1) + "\",\"time\":\"07:00 PM\",\"guests\":2}").statusCode());
+    }
+
+    @Test
+    public void reportsWaitlistPositionsAndAvailability() throws Exception {
+        send("POST", "/waitlist", "{\"name\":\"A\",\"phone\":\"111-111-1111\",\"guests\":2}");
+        HttpResponse<String> second = send("POST", "/waitlist", "{\"name\":\"B\",\"phone\":\"222-222-2222\",\"guests\":2}");
+        assertEquals(2L, Json.parseObject(second.body()).get("position"));
+
+        HttpResponse<String> availability = send("GET", "/availability?date=" + date + "&guests=2", null);
+        assertEquals(ServiceSchedule.defaultSchedule().count(), ((List<?>) Json.parseObject(availability.body()).get("available")).size());
+    }
+
+    @Test
+    public void managerListingsRequireCredentials() throws Exception {
+        assertEquals(401, send("GET", "/manager/reservations", null).statusCode());
+    }
+
+    @Test
+    public void unexpectedFailuresStillGetAResponse() throws Exception {
+        server.close();
+        service.close();
+        ServiceSchedule schedule = ServiceSchedule.defaultSchedule();
+        service = new ReservationService(new InMemoryRepository(schedule) {
+            @Override
+            public Reservation findReservation(long customer, String name, LocalDate today) {
+                throw new IllegalStateException("Broken");
+            }
+        }, TableInventory.builder().table("T1", 4).build(), schedule);
+        server = new BookingHttpServer(service, 0);
+        server.start();
+
+        HttpResponse<String> response = send("GET", "/reservations?name=Ann&phone=123-456-7890", null);
+        assertEquals(500, response.statusCode());
+        assertEquals("Internal error", Json.parseObject(response.body()).get("error"));
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (path.startsWith("/manager")) {
+            request.header("Authorization", "Basic " + Base64.getEncoder().encodeToString("nobody:wrong".getBytes()));
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
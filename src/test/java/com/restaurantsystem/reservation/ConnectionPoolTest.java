@@ -0,0 +1,53 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for ConnectionPool reuse and statement caching.
+ */
+public class ConnectionPoolTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void reusesConnectionsAndStatements() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("pool.db"), 2)) {
+            PreparedStatement first;
+            try (PooledConnection conn = pool.acquire()) {
+                first = conn.prepare("SELECT 1");
+                try (ResultSet rs = first.executeQuery()) {
+                    rs.next();
+                    assertEquals(1, rs.getInt(1));
+                }
+            }
+            try (PooledConnection conn = pool.acquire()) {
+                assertSame(first, conn.prepare("SELECT 1"));
+            }
+
+            ConnectionPool.PoolStats stats = pool.stats();
+            assertEquals(1, stats.open());
+            assertEquals(0, stats.inUse());
+            assertEquals(1, stats.statementHits());
+            assertEquals(1, stats.statementMisses());
+        }
+    }
+
+    @Test
+    public void appliesWalJournalMode() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("wal.db"), 1);
+             PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare("PRAGMA journal_mode").executeQuery()) {
+            rs.next();
+            assertEquals("wal", rs.getString(1));
+        }
+    }
+}
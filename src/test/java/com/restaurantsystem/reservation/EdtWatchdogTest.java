@@ -0,0 +1,82 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the event dispatch thread stall watchdog.
+ */
+public class EdtWatchdogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void capturesWhereTheEventDispatchThreadWasBlocked() throws Exception {
+        // Start the toolkit first so its own startup is not mistaken for a stall
+        SwingUtilities.invokeAndWait(() -> { });
+        try (EdtWatchdog watchdog = new EdtWatchdog(100, 16)) {
+            watchdog.start();
+            Thread.sleep(200);
+            SwingUtilities.invokeAndWait(this::holdEventDispatchThread);
+            Thread.sleep(200);
+            SwingUtilities.invokeAndWait(() -> { });
+
+            // A GC pause or class loading may add stalls of its own; only the held one matters
+            List<EdtWatchdog.Stall> stalls = watchdog.stalls();
+            EdtWatchdog.Stall stall = stalls.stream()
+                    .filter(s -> s.stack().stream().anyMatch(frame -> frame.getMethodName().equals("holdEventDispatchThread")))
+                    .findFirst().orElseThrow(() -> new AssertionError("No stall in holdEventDispatchThread: " + stalls));
+            assertFalse(stall.ongoing());
+            assertTrue(stall.blockedMillis() >= 500, stall.describe(false));
+            assertTrue(stall.blockedIn().startsWith("EdtWatchdogTest.holdEventDispatchThread"), stall.blockedIn());
+            assertTrue(stall.listener().startsWith("EdtWatchdogTest."), stall.listener());
+
+            Path export = dir.resolve("stalls.txt");
+            watchdog.export(export);
+            assertTrue(Files.readString(export).contains("holdEventDispatchThread"));
+        }
+    }
+
+    @Test
+    public void keepsOnlyTheMostRecentStalls() throws Exception {
+        SwingUtilities.invokeAndWait(() -> { });
+        try (EdtWatchdog watchdog = new EdtWatchdog(50, 2)) {
+            watchdog.start();
+            Thread.sleep(100);
+            for (int i = 0; i < 3; i++) {
+                SwingUtilities.invokeAndWait(() -> sleep(400));
+                Thread.sleep(100);
+            }
+            SwingUtilities.invokeAndWait(() -> { });
+
+            assertEquals(2, watchdog.stalls().size());
+        }
+    }
+
+    private void holdEventDispatchThread() {
+        try {
+            Thread.sleep(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for recovering the event store from its snapshot and log.
+ */
+public class EventStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final LocalDate date = LocalDate.of(2026, 11, 20);
+
+    private EventStore open(int snapshotEvery) throws Exception {
+        return EventStore.open(dir, 64 * 1024, snapshotEvery, ServiceSchedule.defaultSchedule(),
+                () -> new EventStore.State(0, 1, 1, List.of(), List.of(), List.of()));
+    }
+
+    @Test
+    public void reopeningReplaysTheSnapshotAndTheLogAfterIt() throws Exception {
+        try (EventStore store = open(4)) {
+            for (int i = 0; i < 10; i++) {
+                store.reserve("Guest " + i, 5550100000L + i, date, "07:00 PM", 2, "");
+            }
+            store.cancel(5550100003L, null);
+            store.joinWaitlist("Walk In", 5550109999L, 4);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.anyMatch(file -> file.getFileName().toString().startsWith("snapshot-")));
+        }
+
+        try (EventStore store = open(4)) {
+            assertEquals(12, store.lastSeq());
+            assertEquals(9, store.view().bookingsOn(date).size());
+            assertEquals(List.of(1), store.view().waitlistIds());
+            // Customers come back from the snapshot with their booking counts
+            assertEquals(1, store.view().customer(5550100003L).bookings());
+            assertEquals(11, store.reserve("Late", 5550100011L, date, "08:00 PM", 2, ""));
+        }
+    }
+
+    @Test
+    public void tornWriteAtTheTailIsCutOff() throws Exception {
+        try (EventStore store = open(1_000)) {
+            store.reserve("Kept", 5550100001L, date, "07:00 PM", 2, "");
+            store.reserve("Torn", 5550100002L, date, "07:00 PM", 2, "window seat");
+        }
+        // Damage the last byte written, inside the second record
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(file -> file.getFileName().toString().startsWith("events-")).findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        int last = bytes.length - 1;
+        while (bytes[last] == 0) {
+            last--;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(last);
+            file.write(bytes[last] ^ 0x5a);
+        }
+
+        try (EventStore store = open(1_000)) {
+            assertEquals(1, store.lastSeq());
+            assertEquals(List.of("Kept"), store.view().listReservations().stream().map(Reservation::name).toList());
+            // Appends carry on right after the last good record
+            store.joinWaitlist("Next", 5550100003L, 2);
+            assertEquals(2, store.lastSeq());
+        }
+        try (EventStore store = open(1_000)) {
+            assertEquals(2, store.lastSeq());
+        }
+    }
+
+    @Test
+    public void cancelledIdsAreNotReusedAndTheLogHasOneOwner() throws Exception {
+        try (EventStore store = open(1_000)) {
+            store.reserve("First", 5550100001L, date, "07:00 PM", 2, "");
+            store.reserve("Second", 5550100002L, date, "07:00 PM", 2, "");
+            store.cancel(5550100002L, "Second");
+            assertThrows(IOException.class, () -> open(1_000));
+        }
+        try (EventStore store = open(1_000)) {
+            assertEquals(3, store.reserve("Third", 5550100003L, date, "07:00 PM", 2, ""));
+        }
+    }
+
+    @Test
+    public void aWriteTheLogCannotTakeIsNeverSeenAndStopsTheStore() throws Exception {
+        try (EventStore store = open(1_000)) {
+            store.reserve("Kept", 5550100001L, date, "07:00 PM", 2, "");
+            assertThrows(IOException.class, () -> store.reserve("Huge", 5550100002L, date, "07:00 PM", 2, "x".repeat(70_000)));
+            assertEquals(List.of("Kept"), store.view().listReservations().stream().map(Reservation::name).toList());
+            assertEquals(1, store.lastSeq());
+            assertThrows(IOException.class, () -> store.joinWaitlist("After", 5550100003L, 2));
+        }
+        try (EventStore store = open(1_000)) {
+            assertEquals(1, store.lastSeq());
+            store.joinWaitlist("After", 5550100003L, 2);
+        }
+    }
+}
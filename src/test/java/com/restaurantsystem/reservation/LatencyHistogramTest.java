@@ -0,0 +1,61 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the latency histogram and the per-operation metrics built on it.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverEveryValueInOrder() {
+        for (long value : new long[] {0, 1, 3, 4, 5, 7, 8, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(LatencyHistogram.lowerBound(bucket) <= value);
+            if (value < Long.MAX_VALUE) {
+                assertTrue(LatencyHistogram.bucket(value + 1) >= bucket);
+            }
+        }
+        assertEquals(LatencyHistogram.bucket(1_000) + 1, LatencyHistogram.bucket(LatencyHistogram.lowerBound(LatencyHistogram.bucket(1_000) + 1)));
+    }
+
+    @Test
+    public void percentilesStayWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        assertEquals(1_000, histogram.count());
+        assertEquals(1_000_000, histogram.maxNanos());
+        assertEquals(500_500, histogram.meanNanos(), 0.5);
+        assertWithin(500_000, histogram.percentileNanos(0.50));
+        assertWithin(990_000, histogram.percentileNanos(0.99));
+        assertEquals(1_000_000, histogram.percentileNanos(1.0));
+    }
+
+    @Test
+    public void operationsCountLatencyErrorsAndRows() {
+        OperationMetrics metrics = new OperationMetrics(new LatencyHistogram());
+        long start = System.nanoTime();
+        metrics.record(OperationMetrics.Operation.SEARCH, start);
+        metrics.record(OperationMetrics.Operation.SEARCH, start);
+        metrics.recordError(OperationMetrics.Operation.SEARCH);
+        metrics.addRows(OperationMetrics.Operation.SEARCH, 3);
+
+        OperationMetrics.Stats stats = metrics.stats(OperationMetrics.Operation.SEARCH);
+        assertEquals(2, stats.getCount());
+        assertEquals(1, stats.getErrors());
+        assertEquals(0.5, stats.getErrorRate());
+        assertEquals(3, stats.getRows());
+        assertEquals(0, metrics.stats(OperationMetrics.Operation.RESERVE).getCount());
+    }
+
+    //Four sub-buckets per power of two keep a reported percentile within 25% above the true value
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 5 / 4, actual + " is not within 25% of " + expected);
+    }
+}
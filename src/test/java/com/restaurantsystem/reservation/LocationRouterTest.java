@@ -0,0 +1,146 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for routing calls to per-location shards and merging listings across them.
+ */
+public class LocationRouterTest {
+
+    @TempDir
+    Path dir;
+
+    private LocationRouter router;
+    private final LocalDate date = LocalDate.now().plusDays(7);
+
+    private ReservationService shard(String location) {
+        return new ReservationService("jdbc:sqlite:" + dir.resolve(location + ".db"), 2);
+    }
+
+    @BeforeEach
+    public void open() throws Exception {
+        router = new LocationRouter();
+        router.add("downtown", shard("downtown"));
+        router.add("harbour", shard("harbour"));
+        router.migrate();
+    }
+
+    @AfterEach
+    public void close() {
+        router.close();
+    }
+
+    @Test
+    public void eachLocationKeepsItsOwnBookingsAndListingsMergeThem() throws Exception {
+        ReservationService downtown = router.service("downtown");
+        ReservationService harbour = router.service("harbour");
+        downtown.reserve("Ann", "123-456-7890", date, "08:00 PM", 2, "");
+        harbour.reserve("Bob", "222-333-4444", date, "06:00 PM", 4, "");
+        downtown.reserve("Cy", "333-444-5555", date.plusDays(1), "05:00 PM", 2, "");
+        harbour.joinWaitlist("Dee", "444-555-6666", 2);
+        downtown.joinWaitlist("Eve", "555-666-7777", 2);
+
+        assertNull(harbour.search("Ann", "123-456-7890").reservation());
+        assertEquals(downtown, router.service(null));
+        assertEquals(List.of("harbour:Bob", "downtown:Ann", "downtown:Cy"), router.listReservations().stream()
+                .map(row -> row.location() + ":" + row.item().name()).toList());
+        // Each location's line starts at one
+        assertEquals(List.of("downtown:Eve:1", "harbour:Dee:1"), router.listWaitlist().stream()
+                .map(row -> row.location() + ":" + row.item().name() + ":" + row.item().position()).toList());
+    }
+
+    @Test
+    public void addingALocationLeavesTheOthersServing() throws Exception {
+        router.service("downtown").reserve("Ann", "123-456-7890", date, "07:00 PM", 2, "");
+
+        ReservationService airport = shard("airport");
+        airport.migrate();
+        router.add("airport", airport);
+        airport.reserve("Fay", "666-777-8888", date, "07:00 PM", 2, "");
+
+        assertEquals(List.of("downtown", "harbour", "airport"), router.locations());
+        assertEquals("Ann", router.service("downtown").search("Ann", "123-456-7890").reservation().name());
+        assertEquals(2, router.listReservations().size());
+        assertThrows(IllegalArgumentException.class, () -> router.add("harbour", shard("other")));
+        assertThrows(IllegalArgumentException.class, () -> router.service("mall"));
+        assertThrows(IllegalArgumentException.class, () -> router.add("Bad Name", shard("bad")));
+    }
+
+    @Test
+    public void httpCallsGoToTheNamedLocation() throws Exception {
+        try (BookingHttpServer server = new BookingHttpServer(router, 0)) {
+            server.start();
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://localhost:" + server.port();
+            HttpRequest book = HttpRequest.newBuilder(URI.create(base + "/reservations?location=harbour"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"Ann\",\"phone\":\"123-456-7890\","
+                            + "\"date\":\"" + date + "\",\"time\":\"07:00 PM\",\"guests\":2}")).build();
+            assertEquals(201, client.send(book, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+            assertEquals(200, get(client, base + "/reservations?name=Ann&phone=123-456-7890&location=harbour"));
+            assertEquals(404, get(client, base + "/reservations?name=Ann&phone=123-456-7890"));
+            assertEquals(400, get(client, base + "/reservations?name=Ann&phone=123-456-7890&location=mall"));
+        }
+    }
+
+    @Test
+    public void managersReadOnlyTheLocationsTheyManage() throws Exception {
+        router.service("downtown").repository().addManager("ann", "secret");
+        router.service("downtown").repository().addManager("owner", "keys");
+        router.service("harbour").repository().addManager("owner", "keys");
+        try (BookingHttpServer server = new BookingHttpServer(router, 0)) {
+            server.start();
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://localhost:" + server.port() + "/manager/reservations";
+            assertEquals(200, get(client, base + "?location=downtown", "ann:secret"));
+            assertEquals(401, get(client, base + "?location=harbour", "ann:secret"));
+            assertEquals(401, get(client, base, "ann:secret"));
+            assertEquals(200, get(client, base, "owner:keys"));
+            assertEquals(400, get(client, base + "?location=mall", "owner:keys"));
+        }
+    }
+
+    @Test
+    public void theWindowOpensOnAConfiguredLocation() {
+        try {
+            System.setProperty("booking.locations", "downtown, harbour");
+            assertEquals("downtown", LocationRouter.configuredLocation());
+            System.setProperty("booking.location", "harbour");
+            assertEquals("harbour", LocationRouter.configuredLocation());
+            System.setProperty("booking.location", "mall");
+            assertThrows(IllegalArgumentException.class, LocationRouter::configuredLocation);
+            System.clearProperty("booking.locations");
+            System.setProperty("booking.location", "../etc");
+            assertThrows(IllegalArgumentException.class, LocationRouter::configuredLocation);
+        } finally {
+            System.clearProperty("booking.locations");
+            System.clearProperty("booking.location");
+        }
+    }
+
+    private static int get(HttpClient client, String url) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString()).statusCode();
+    }
+
+    private static int get(HttpClient client, String url, String login) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Basic " + Base64.getEncoder().encodeToString(login.getBytes())).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+    }
+}
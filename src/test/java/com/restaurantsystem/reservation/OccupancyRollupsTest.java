@@ -0,0 +1,97 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for keeping occupancy rollups current and rebuilding them from stored visits.
+ */
+public class OccupancyRollupsTest {
+
+    @TempDir
+    Path dir;
+
+    private final ServiceSchedule schedule = ServiceSchedule.defaultSchedule();
+
+    private static void assertSameReport(OccupancyRollups.Report expected, OccupancyRollups.Report actual) {
+        assertArrayEquals(expected.heatmap(), actual.heatmap());
+        assertArrayEquals(expected.coversByWeekday(), actual.coversByWeekday());
+        assertEquals(expected.coversByMonth(), actual.coversByMonth());
+        assertEquals(expected.bookings(), actual.bookings());
+        assertEquals(expected.cancellations(), actual.cancellations());
+        assertEquals(expected.waitlistPeaks(), actual.waitlistPeaks());
+    }
+
+    @Test
+    public void bookingChangesKeepTheRollupsCurrentAndARebuildAgrees() throws Exception {
+        LocalDate date = LocalDate.now().plusDays(10);
+        YearMonth first = YearMonth.from(date);
+        YearMonth last = YearMonth.from(date.plusDays(7));
+        String url = "jdbc:sqlite:" + dir.resolve("rollups.db");
+        OccupancyRollups.Report live;
+        try (ReservationService service = new ReservationService(url, 2)) {
+            service.migrate();
+            service.reserve("Ann", "123-456-7890", date, "06:00 PM", 2, "");
+            int moved = service.reserve("Bob", "222-333-4444", date, "07:00 PM", 4, "");
+            service.reserve("Cy", "333-444-5555", date.plusDays(7), "07:00 PM", 3, "");
+            service.update(moved, "Bob", "222-333-4444", date.plusDays(1), "07:30 PM", 5, "");
+            service.cancel("Cy", "333-444-5555");
+            service.joinWaitlist("Dee", "444-555-6666", 2);
+            service.joinWaitlist("Eve", "555-666-7777", 2);
+
+            live = service.rollups().report(first, last);
+            int weekday = date.getDayOfWeek().ordinal();
+            assertEquals(2, live.heatmap()[weekday][schedule.indexOf("06:00 PM")]);
+            assertEquals(0, live.heatmap()[weekday][schedule.indexOf("07:00 PM")]);
+            assertEquals(5, live.heatmap()[date.plusDays(1).getDayOfWeek().ordinal()][schedule.indexOf("07:30 PM")]);
+            assertEquals(7, live.covers());
+            assertEquals(2, live.bookings());
+            assertEquals(1, live.cancellations());
+            assertEquals(1.0 / 3, live.cancellationRate(), 1e-9);
+            assertEquals(2, (int) service.rollups().report(YearMonth.now(), YearMonth.now()).waitlistPeaks()
+                    .get(LocalDate.now()));
+
+            service.rebuildRollups();
+            assertSameReport(live, service.rollups().report(first, last));
+        }
+        // Reopening counts everything again from the database, cancellations included
+        try (ReservationService reopened = new ReservationService(url, 2)) {
+            reopened.migrate();
+            assertSameReport(live, reopened.rollups().report(first, last));
+        }
+    }
+
+    @Test
+    public void rebuildSplitsLargeHistoriesAcrossThePool() throws Exception {
+        InMemoryRepository repository = new InMemoryRepository(schedule);
+        LocalDate monday = LocalDate.of(2025, 1, 6);
+        for (int i = 0; i < 50_000; i++) {
+            repository.insertReservation("Guest", 5550100000L + i, monday.plusDays(i % 360), i % schedule.count(), 1 + i % 4, "");
+        }
+        OccupancyRollups rollups = new OccupancyRollups(schedule);
+        rollups.rebuild(repository);
+
+        OccupancyRollups.Report year = rollups.report(YearMonth.of(2025, 1), YearMonth.of(2025, 12));
+        assertEquals(50_000, year.bookings());
+        long covers = 0;
+        for (int i = 0; i < 50_000; i++) {
+            covers += 1 + i % 4;
+        }
+        assertEquals(covers, year.covers());
+        long heatmapCovers = 0;
+        for (long[] weekday : year.heatmap()) {
+            for (long cell : weekday) {
+                heatmapCovers += cell;
+            }
+        }
+        assertEquals(covers, heatmapCovers);
+        assertEquals(0, rollups.report(YearMonth.of(2026, 1), YearMonth.of(2026, 3)).covers());
+    }
+}
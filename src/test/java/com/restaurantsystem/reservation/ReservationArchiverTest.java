@@ -0,0 +1,90 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for moving old visits into the archive tier and reading history across both tiers.
+ */
+public class ReservationArchiverTest {
+
+    @TempDir
+    Path dir;
+
+    private final ServiceSchedule schedule = ServiceSchedule.defaultSchedule();
+    private final LocalDate today = LocalDate.of(2026, 11, 20);
+    private final long customer = 5550100001L;
+    private SqliteRepository repository;
+
+    @BeforeEach
+    public void open() throws Exception {
+        repository = new SqliteRepository(new ConnectionPool("jdbc:sqlite:" + dir.resolve("archive.db"), 2),
+                TableInventory.defaultLayout(), schedule);
+        repository.migrate();
+    }
+
+    @AfterEach
+    public void close() {
+        repository.close();
+    }
+
+    private int book(LocalDate date, String time, String specialRequests) throws Exception {
+        return repository.insertReservation("Ann", customer, date, schedule.indexOf(time), 2, specialRequests);
+    }
+
+    @Test
+    public void oldVisitsLeaveTheLiveTableAndStayInHistory() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int month = 12; month >= 1; month--) {
+            ids.add(book(today.minusMonths(month), month % 2 == 0 ? "06:00 PM" : "07:30 PM", "visit " + month));
+        }
+        int recent = book(today.minusDays(3), "08:00 PM", "");
+        int upcoming = book(today.plusDays(5), "06:30 PM", "");
+
+        ReservationArchiver archiver = new ReservationArchiver(repository, 30);
+        assertEquals(12, archiver.archive(today));
+        assertEquals(0, archiver.archive(today));
+        assertEquals(List.of(recent, upcoming), repository.listReservations().stream().map(Reservation::id).toList());
+
+        // Pages of three walk from the live table into the archive without a seam
+        List<Reservation> history = new ArrayList<>();
+        ReservationPage.Key key = new ReservationPage.Key(today.plusDays(1).toString(), -1, -1);
+        ReservationPage page;
+        do {
+            page = repository.historyPage(customer, "Ann", key, 3);
+            history.addAll(page.rows());
+            key = page.last();
+        } while (page.more());
+        List<Integer> expected = new ArrayList<>(List.of(recent));
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            expected.add(ids.get(i));
+        }
+        assertEquals(expected, history.stream().map(Reservation::id).toList());
+        Reservation oldest = history.get(history.size() - 1);
+        assertEquals(new Reservation(ids.get(0), "Ann", "555-010-0001", today.minusMonths(12).toString(), "06:00 PM", 2,
+                "visit 12"), oldest);
+        assertFalse(repository.historyPage(customer, "Ann", key, 3).more());
+    }
+
+    @Test
+    public void archivingGoesInBatchesAndNeverReusesIds() throws Exception {
+        int last = 0;
+        for (int day = 0; day < 1_200; day++) {
+            last = book(today.minusDays(400 + day % 300), "06:00 PM", "");
+        }
+        assertEquals(1_200, new ReservationArchiver(repository, 30).archive(today));
+        assertTrue(repository.listReservations().isEmpty());
+        assertTrue(book(today, "06:00 PM", "") > last);
+    }
+}
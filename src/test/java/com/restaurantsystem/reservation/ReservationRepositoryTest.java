@@ -0,0 +1,217 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * The contract every ReservationRepository keeps, run against each backend.
+ */
+public class ReservationRepositoryTest {
+
+    @TempDir
+    Path dir;
+
+    private final ServiceSchedule schedule = ServiceSchedule.defaultSchedule();
+    private final LocalDate date = LocalDate.of(2026, 11, 20);
+
+    private ReservationRepository open(String backend) throws SQLException {
+        ReservationRepository repository = switch (backend) {
+            case "sqlite" -> new SqliteRepository(new ConnectionPool("jdbc:sqlite:" + dir.resolve("contract.db"), 2),
+                    TableInventory.defaultLayout(), schedule);
+            case "memory" -> new InMemoryRepository(schedule);
+            case "mapped" -> new MappedRepository(dir.resolve("events"), schedule);
+            default -> throw new IllegalArgumentException(backend);
+        };
+        repository.migrate();
+        return repository;
+    }
+
+    private int slot(String time) {
+        return schedule.indexOf(time);
+    }
+
+    private List<Integer> ids(List<Reservation> rows) {
+        return rows.stream().map(Reservation::id).toList();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "memory", "mapped"})
+    public void storesReservationsInDateAndTimeOrder(String backend) throws Exception {
+        try (ReservationRepository repository = open(backend)) {
+            int late = repository.insertReservation("Ann", 5550100001L, date, slot("08:00 PM"), 2, "window");
+            int early = repository.insertReservation("Bob", 5550100002L, date, slot("06:00 PM"), 4, "");
+            int tomorrow = repository.insertReservation("Ann", 5550100001L, date.plusDays(1), slot("06:00 PM"), 2, "");
+            int before = repository.insertReservation("Cy", 5550100003L, date.minusDays(1), slot("08:30 PM"), 3, "");
+
+            assertEquals(List.of(before, early, late, tomorrow), ids(repository.listReservations()));
+            assertEquals(List.of(new AvailabilityIndex.Booking(late, slot("08:00 PM"), 2),
+                    new AvailabilityIndex.Booking(early, slot("06:00 PM"), 4)), repository.bookingsOn(date));
+            assertEquals(Map.of(date, repository.bookingsOn(date), date.plusDays(1), repository.bookingsOn(date.plusDays(1))),
+                    repository.bookingsBetween(date, date.plusDays(5)));
+            assertEquals(new Reservation(late, "Ann", "555-010-0001", date.toString(), "08:00 PM", 2, "window"),
+                    repository.findReservation(5550100001L, "Ann", date));
+            assertNull(repository.findReservation(5550100001L, "Bob", date));
+            assertEquals(new Customer(5550100001L, "Ann", 2), repository.customer(5550100001L));
+            assertNull(repository.customer(5550109999L));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "memory", "mapped"})
+    public void findsTheEarliestOfSeveralReservationsUnderOneName(String backend) throws Exception {
+        try (ReservationRepository repository = open(backend)) {
+            repository.insertReservation("Ann", 5550100001L, date.plusDays(2), slot("06:00 PM"), 2, "");
+            int evening = repository.insertReservation("Ann", 5550100001L, date, slot("08:00 PM"), 2, "");
+            int lunch = repository.insertReservation("Ann", 5550100001L, date, slot("11:30 AM"), 2, "");
+            assertEquals(lunch, repository.findReservation(5550100001L, "Ann", date).id());
+
+            repository.updateReservation(lunch, "Ann", 5550100001L, date.plusDays(3), slot("11:30 AM"), 2, "");
+            assertEquals(evening, repository.findReservation(5550100001L, "Ann", date).id());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "memory", "mapped"})
+    public void findsTheUpcomingReservationBeforeAPastVisit(String backend) throws Exception {
+        try (ReservationRepository repository = open(backend)) {
+            repository.insertReservation("Ann", 5550100001L, date.minusDays(30), slot("07:00 PM"), 2, "");
+            int upcoming = repository.insertReservation("Ann", 5550100001L, date.plusDays(5), slot("07:00 PM"), 2, "");
+            repository.insertReservation("Ann", 5550100001L, date.plusDays(9), slot("06:00 PM"), 2, "");
+            assertEquals(upcoming, repository.findReservation(5550100001L, "Ann", date).id());
+
+            // With nothing ahead, the latest past visit is the one found
+            int visited = repository.insertReservation("Bo", 5550100002L, date.minusDays(30), slot("07:00 PM"), 2, "");
+            repository.insertReservation("Bo", 5550100002L, date.minusDays(60), slot("08:00 PM"), 2, "");
+            assertEquals(visited, repository.findReservation(5550100002L, "Bo", date).id());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "memory", "mapped"})
+    public void updatesAndDeletesByCustomerAndName(String backend) throws Exception {
+        try (ReservationRepository repository = open(backend)) {
+            int first = repository.insertReservation("Dee", 5550100004L, date, slot("06:00 PM"), 2, "");
+            int second = repository.insertReservation("Dee R", 5550100004L, date, slot("07:00 PM"), 2, "");
+
+            assertEquals(new ReservationRepository.Moved(date, "06:00 PM", 2, 1),
+                    repository.updateReservation(first, "Dee", 5550100004L, date.plusDays(2), slot("07:30 PM"), 5, "cake"));
+            assertNull(repository.updateReservation(999, "Nobody", 5550100005L, date, slot("06:00 PM"), 2, ""));
+            assertEquals("07:30 PM", repository.reservation(first).time());
+            assertEquals("Dee R", repository.reservation(second).name());
+            assertNull(repository.reservation(999));
+            assertEquals(List.of(second, first), ids(repository.listReservations()));
+            assertEquals(new Customer(5550100004L, "Dee", 2), repository.customer(5550100004L));
+
+            List<Reservation> deleted = repository.deleteReservations(5550100004L, "Dee");
+            assertEquals(List.of(first), ids(deleted));
+            assertEquals(date.plusDays(2).toString(), deleted.get(0).date());
+            assertEquals(List.of(second), ids(repository.deleteReservations(5550100004L, null)));
+            assertEquals(List.of(), repository.listReservations());
+            // Ids of deleted reservations are not handed out again
+            assertTrue(repository.insertReservation("Dee", 5550100004L, date, slot("06:00 PM"), 2, "") > second);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "memory", "mapped"})
+    public void pagesWalkForwardAndHistoryWalksBack(String backend) throws Exception {
+        try (ReservationRepository repository = open(backend)) {
+            for (int day = 0; day < 5; day++) {
+                repository.insertReservation("Eve", 5550100006L, date.plusDays(day), slot("07:00 PM"), 2, "");
+                repository.insertReservation("Eve", 5550100006L, date.plusDays(day), slot("06:00 PM"), 2, "");
+            }
+            List<Reservation> all = repository.listReservations();
+
+            ReservationPage first = repository.pageReservations(ReservationPage.Key.START, date.plusDays(3).toString(), 4);
+            assertEquals(ids(all.subList(0, 4)), ids(first.rows()));
+            assertTrue(first.more());
+            ReservationPage second = repository.pageReservations(first.last(), date.plusDays(3).toString(), 4);
+            assertEquals(ids(all.subList(4, 6)), ids(second.rows()));
+            assertFalse(second.more());
+
+            ReservationPage.Key end = new ReservationPage.Key(date.plusDays(4).toString(), -1, -1);
+            ReservationPage newest = repository.historyPage(5550100006L, "Eve", end, 3);
+            assertEquals(List.of(all.get(7).id(), all.get(6).id(), all.get(5).id()), ids(newest.rows()));
+            assertTrue(newest.more());
+            ReservationPage older = repository.historyPage(5550100006L, "Eve", newest.last(), 10);
+            assertEquals(5, older.rows().size());
+            assertFalse(older.more());
+            assertEquals(0, repository.historyPage(5550100006L, "Someone Else", end, 3).rows().size());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "memory", "mapped"})
+    public void waitlistKeepsItsOrder(String backend) throws Exception {
+        try (ReservationRepository repository = open(backend)) {
+            int first = repository.joinWaitlist("Fay", 5550100007L, 2);
+            int second = repository.joinWaitlist("Gus", 5550100008L, 4);
+            int third = repository.joinWaitlist("Fay", 5550100007L, 3);
+
+            assertEquals(List.of(first, second, third), repository.waitlistIds().stream().sorted().toList());
+            assertEquals(new WaitlistEntry(second, "Gus", "555-010-0008", 4, 2), repository.listWaitlist().get(1));
+            assertEquals(first, repository.findWaitlistEntry(5550100007L, "Fay"));
+            assertNull(repository.findWaitlistEntry(5550100008L, "Fay"));
+            assertEquals(new Customer(5550100008L, "Gus", 0), repository.customer(5550100008L));
+
+            assertEquals(List.of(first, third), repository.leaveWaitlist(5550100007L));
+            assertEquals(List.of(), repository.leaveWaitlist(5550100007L));
+            assertEquals(1, repository.listWaitlist().get(0).position());
+            assertTrue(repository.joinWaitlist("Fay", 5550100007L, 2) > third);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "memory", "mapped"})
+    public void visitsAndDailyActivityFeedTheRollups(String backend) throws Exception {
+        try (ReservationRepository repository = open(backend)) {
+            repository.insertReservation("Hal", 5550100009L, date, slot("06:00 PM"), 2, "");
+            repository.insertReservation("Ivy", 5550100010L, date.plusDays(1), slot("07:30 PM"), 6, "");
+            repository.insertReservation("Ivy", 5550100010L, date.plusDays(3), slot("05:00 PM"), 4, "");
+            repository.deleteReservations(5550100010L, null);
+            repository.joinWaitlist("Jo", 5550100011L, 2);
+            repository.joinWaitlist("Kim", 5550100012L, 2);
+            repository.leaveWaitlist(5550100011L);
+            repository.joinWaitlist("Lee", 5550100013L, 2);
+
+            List<String> visits = new ArrayList<>();
+            repository.forEachVisit((epochDay, minute, guests) -> visits.add(epochDay + "@" + minute + "x" + guests));
+            assertEquals(List.of(date.toEpochDay() + "@" + schedule.minuteOf("06:00 PM") + "x2"), visits);
+            // Cancellations count against the visit's own date; the waitlist peaked at two today
+            List<ReservationRepository.DailyActivity> expected = new ArrayList<>(List.of(
+                    new ReservationRepository.DailyActivity(date.plusDays(1), 1, 0),
+                    new ReservationRepository.DailyActivity(date.plusDays(3), 1, 0),
+                    new ReservationRepository.DailyActivity(LocalDate.now(), 0, 2)));
+            expected.sort(Comparator.comparing(ReservationRepository.DailyActivity::day));
+            assertEquals(expected, repository.activity());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sqlite", "memory", "mapped"})
+    public void managersLogInWithTheirOwnPassword(String backend) throws Exception {
+        try (ReservationRepository repository = open(backend)) {
+            repository.addManager("host", "s3cret");
+
+            assertTrue(repository.authenticateManager("host", "s3cret"));
+            assertFalse(repository.authenticateManager("host", "guess"));
+            assertFalse(repository.authenticateManager("nobody", "s3cret"));
+            assertThrows(SQLException.class, () -> repository.addManager("host", "other"));
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for atomic booking in ReservationService.
+ */
+public class ReservationServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private ReservationService service;
+    private final LocalDate date = LocalDate.now().plusDays(3);
+
+    @BeforeEach
+    public void open() throws Exception {
+        service = new ReservationService(url(), 4);
+        service.migrate();
+    }
+
+    @AfterEach
+    public void close() {
+        service.close();
+    }
+
+    private String url() {
+        return "jdbc:sqlite:" + dir.resolve("booking.db");
+    }
+
+    @Test
+    public void concurrentBookingsOfOneSlotHaveExactlyTheAllowedWinners() throws Exception {
+        // Parties of six fit at C1, C2, B1+B2 and B3+B4: four at once
+        int threads = 32;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String phone = String.format("555-000-%04d", i);
+            results.add(pool.submit(() -> {
+                start.await();
+                return service.reserve("Party", phone, date, "07:00 PM", 6, "");
+            }));
+        }
+        start.countDown();
+        int winners = 0;
+        for (Future<Integer> result : results) {
+            if (result.get() != ReservationService.NO_TABLE) {
+                winners++;
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(4, winners);
+        assertEquals(4, service.listReservations().size());
+        assertEquals(0, service.availability(date, 6) & (1L << service.schedule().indexOf("07:00 PM")));
+    }
+
+    @Test
+    public void overlappingTurnsNeverShareATable() throws Exception {
+        // Twelve guests need C1+C2; the turn blocks the next two slots as well
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (String time : List.of("07:00 PM", "07:30 PM", "08:00 PM")) {
+            results.add(pool.submit(() -> service.reserve("Big", "555-111-2222", date, time, 12, "")));
+        }
+        int winners = 0;
+        for (Future<Integer> result : results) {
+            if (result.get() != ReservationService.NO_TABLE) {
+                winners++;
+            }
+        }
+        pool.shutdown();
+        assertEquals(1, winners);
+    }
+
+    @Test
+    public void databaseBackstopRejectsBookingsFromAStaleProcess() throws Exception {
+        String time = "06:00 PM";
+        assertTrue(service.reserve("Late", "555-333-4444", date.plusDays(1), time, 2, "") > 0);
+        // This service caches the date before another process fills every table
+        assertTrue(service.availability(date, 2) != 0);
+        try (ReservationService other = new ReservationService(url(), 1)) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(other.reserve("Other", String.format("555-222-%04d", i), date, time, 2, "") > 0);
+            }
+        }
+
+        assertEquals(ReservationService.NO_TABLE, service.reserve("Late Again", "555-333-4444", date, time, 2, ""));
+        assertEquals(0, service.availability(date, 2) & (1L << service.schedule().indexOf(time)));
+        // The refused booking neither renames the customer nor counts against them
+        assertEquals("Late", service.customer("555-333-4444").name());
+        assertEquals(1, service.customer("555-333-4444").bookings());
+    }
+
+    @Test
+    public void databaseBackstopCoversTheWholeTurn() throws Exception {
+        // Every table is taken from 08:00, so a 07:00 booking would still be sitting there
+        assertTrue(service.availability(date, 2) != 0);
+        try (ReservationService other = new ReservationService(url(), 1)) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(other.reserve("Other", String.format("555-444-%04d", i), date, "08:00 PM", 2, "") > 0);
+            }
+        }
+
+        assertEquals(ReservationService.NO_TABLE, service.reserve("Early", "555-555-5555", date, "07:00 PM", 2, ""));
+        assertTrue(service.reserve("Earlier", "555-666-6666", date, "06:30 PM", 2, "") > 0);
+    }
+
+    @Test
+    public void databaseBackstopRefusesMovesIntoATurnThatOverlapsFullSlots() throws Exception {
+        int id = service.reserve("Mover", "555-555-0000", date, "05:00 PM", 2, "");
+        try (ReservationService other = new ReservationService(url(), 1)) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(other.reserve("Other", String.format("555-444-%04d", i), date, "08:00 PM", 2, "") > 0);
+            }
+        }
+
+        // Nobody is seated at 07:30, but a party there would still be at the table at 08:00
+        assertEquals(ReservationService.NO_TABLE, service.update(id, "Mover", "555-555-0000", date, "07:30 PM", 2, ""));
+        assertEquals("05:00 PM", service.search("Mover", "555-555-0000").reservation().time());
+        assertEquals(1, service.update(id, "Mover", "555-555-0000", date, "06:00 PM", 2, ""));
+    }
+
+    @Test
+    public void keysetPagesWalkReservationsInTimeOrder() throws Exception {
+        // Past visits cannot be booked through the service, so the rows go straight to the repository
+        LocalDate past = LocalDate.now().minusDays(10);
+        for (int day = 0; day < 20; day++) {
+            for (int slot = service.schedule().count() - 1; slot >= 0; slot -= 2) {
+                service.repository().insertReservation("Guest", 5557770000L, past.plusDays(day), slot, 2, "");
+            }
+        }
+
+        List<Reservation> all = new ArrayList<>();
+        ReservationPage.Key key = ReservationPage.Key.START;
+        ReservationPage page;
+        do {
+            page = service.pageReservations(ReservationFilter.ALL, key, 7);
+            assertTrue(page.rows().size() <= 7);
+            all.addAll(page.rows());
+            key = page.last();
+        } while (page.more());
+
+        assertEquals(20 * 10, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            Reservation a = all.get(i - 1);
+            Reservation b = all.get(i);
+            int byDate = a.date().compareTo(b.date());
+            // 11:30 AM sorts before 12:00 PM even though the text does not
+            assertTrue(byDate < 0 || byDate == 0 && service.schedule().indexOf(a.time()) < service.schedule().indexOf(b.time()));
+        }
+
+        ReservationFilter upcoming = new ReservationFilter(null, null, ReservationFilter.Scope.UPCOMING);
+        ReservationFilter past5 = new ReservationFilter(past, past.plusDays(4), ReservationFilter.Scope.PAST);
+        assertEquals(10 * 10, service.pageReservations(upcoming, ReservationPage.Key.START, 1000).rows().size());
+        assertEquals(5 * 10, service.pageReservations(past5, ReservationPage.Key.START, 1000).rows().size());
+    }
+
+    @Test
+    public void historyPagesNewestFirstAndSkipsUpcomingVisits() throws Exception {
+        LocalDate today = LocalDate.now();
+        int seven = service.schedule().indexOf("07:00 PM");
+        for (int day = 1; day <= 60; day++) {
+            service.repository().insertReservation("Regular", 5558880000L, today.minusDays(day), seven, 2, "");
+        }
+        service.reserve("Regular", "555-888-0000", today.plusDays(2), "07:00 PM", 2, "");
+        service.repository().insertReservation("Other", 5558881111L, today.minusDays(1), seven, 2, "");
+
+        List<Reservation> visits = new ArrayList<>();
+        ReservationPage.Key key = ReservationPage.Key.START;
+        ReservationPage page;
+        do {
+            page = service.historyPage("Regular", "555-888-0000", key, 25);
+            visits.addAll(page.rows());
+            key = page.last();
+        } while (page.more());
+
+        assertEquals(60, visits.size());
+        assertEquals(today.minusDays(1).toString(), visits.get(0).date());
+        assertEquals(today.minusDays(60).toString(), visits.get(59).date());
+    }
+
+    @Test
+    public void pastSlotsCannotBeBookedOrMovedInto() throws Exception {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        assertEquals(0, service.availability(yesterday, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.reserve("Late", "555-030-0001", yesterday, "07:00 PM", 2, ""));
+        int id = service.reserve("Late", "555-030-0001", date, "07:00 PM", 2, "");
+        assertThrows(IllegalArgumentException.class,
+                () -> service.update(id, "Late", "555-030-0001", yesterday, "07:00 PM", 2, ""));
+        assertEquals(date.toString(), service.listReservations().get(0).date());
+    }
+
+    @Test
+    public void repeatBookingsCountAgainstOneCustomer() throws Exception {
+        service.reserve("Dana", "555-010-0002", date, "06:00 PM", 2, "");
+        service.reserve("Dana R", "555-010-0002", date.plusDays(1), "06:00 PM", 2, "");
+        service.joinWaitlist("Dana R", "555-010-0002", 2);
+
+        Customer customer = service.customer("555-010-0002");
+        assertEquals(5550100002L, customer.id());
+        assertEquals("Dana R", customer.name());
+        assertEquals(2, customer.bookings());
+        // The key is the digits, however the number is written
+        assertEquals("555-010-0002", service.search("Dana", "(555) 010-0002").reservation().phone());
+        assertNull(service.customer("555-010-0003"));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.reserve("Eve", "no phone", date, "06:00 PM", 2, ""));
+        // Dialled with a leading zero, the number would otherwise be taken for the one without it
+        assertEquals(PhoneKey.NONE, PhoneKey.of("0044 20 7946 0000"));
+        assertEquals(442079460000L, PhoneKey.of("+44 20 7946 0000"));
+        assertEquals(123456789L, PhoneKey.of("012-345-6789"));
+    }
+
+    @Test
+    public void eventLogModeProjectsIntoTheTablesAndRecovers() throws Exception {
+        service.reserve("Before", "555-020-0001", date, "06:00 PM", 2, "");
+        service.close();
+
+        Path log = dir.resolve("events");
+        service = mapped(log);
+        service.migrate();
+        int id = service.reserve("Logged", "555-020-0002", date, "07:00 PM", 4, "booth");
+        service.joinWaitlist("Walk In", "555-020-0003", 2);
+        assertEquals(1, service.cancel("Before", "555-020-0001"));
+        assertEquals(List.of(id), service.listReservations().stream().map(Reservation::id).toList());
+        MappedRepository repository = (MappedRepository) service.repository();
+        assertTrue(repository.projector().awaitProjected(3, 5_000));
+        service.close();
+
+        // The tables were kept in step while the log was the record
+        service = new ReservationService(url(), 4);
+        assertEquals(List.of(id), service.listReservations().stream().map(Reservation::id).toList());
+        assertEquals(1, service.listWaitlist().size());
+        service.close();
+
+        service = mapped(log);
+        service.migrate();
+        assertEquals(1, service.customer("555-020-0002").bookings());
+        assertEquals(1, service.leaveWaitlist("555-020-0003"));
+        assertTrue(service.reserve("Next", "555-020-0004", date, "07:00 PM", 2, "") > id);
+        assertEquals(2, service.listReservations().size());
+        assertEquals(0, service.listWaitlist().size());
+    }
+
+    private ReservationService mapped(Path log) {
+        ServiceSchedule schedule = ServiceSchedule.defaultSchedule();
+        TableInventory inventory = TableInventory.defaultLayout();
+        return new ReservationService(new MappedRepository(log, schedule,
+                new SqliteRepository(new ConnectionPool(url(), 4), inventory, schedule)), inventory, schedule);
+    }
+}
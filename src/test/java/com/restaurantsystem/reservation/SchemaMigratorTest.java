@@ -0,0 +1,140 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for SchemaMigrator and the query plans of the hot queries.
+ */
+public class SchemaMigratorTest {
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    public void openPool() {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("schema.db"), 1);
+    }
+
+    @AfterEach
+    public void closePool() {
+        pool.close();
+    }
+
+    @Test
+    public void migratesEmptyDatabaseToLatestVersion() throws Exception {
+        SchemaMigrator migrator = new SchemaMigrator(pool);
+        assertEquals(SchemaMigrator.latestVersion(), migrator.migrate());
+        // Running again is a no-op
+        assertEquals(SchemaMigrator.latestVersion(), migrator.migrate());
+        try (PooledConnection conn = pool.acquire()) {
+            assertEquals(SchemaMigrator.latestVersion(), SchemaMigrator.currentVersion(conn.connection()));
+        }
+    }
+
+    @Test
+    public void repairsLegacyColumnNames() throws Exception {
+        try (PooledConnection conn = pool.acquire();
+             Statement stmt = conn.connection().createStatement()) {
+            stmt.execute("CREATE TABLE reservations (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, " +
+                    "phoneNumber TEXT, partySize INTEGER, date TEXT, time TEXT, specialRequests TEXT)");
+            stmt.execute("INSERT INTO reservations (name, phoneNumber, partySize, date, time) " +
+                    "VALUES ('Ana', '123-456-7890', 3, '2030-01-02', '07:00 PM')");
+        }
+
+        new SchemaMigrator(pool).migrate();
+
+        try (PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare("SELECT customer_id, guests, reservation_date, reservation_time FROM reservations").executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals(1234567890L, rs.getLong(1));
+            assertEquals(3, rs.getInt(2));
+            assertEquals("2030-01-02", rs.getString(3));
+            assertEquals("07:00 PM", rs.getString(4));
+        }
+    }
+
+    @Test
+    public void backfillsCustomersFromPhoneNumbers() throws Exception {
+        try (PooledConnection conn = pool.acquire();
+             Statement stmt = conn.connection().createStatement()) {
+            stmt.execute("CREATE TABLE reservations (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, " +
+                    "phone TEXT NOT NULL, reservation_date TEXT NOT NULL, reservation_time TEXT NOT NULL, " +
+                    "guests INTEGER NOT NULL, specialRequests TEXT)");
+            stmt.execute("INSERT INTO reservations (name, phone, reservation_date, reservation_time, guests) VALUES " +
+                    "('Ana', '555-010-0001', '2030-01-02', '07:00 PM', 2), " +
+                    "('Ana B', '555-010-0001', '2030-02-02', '07:00 PM', 2), " +
+                    "('Bo', 'ask at the bar', '2030-01-02', '07:30 PM', 4)");
+        }
+
+        new SchemaMigrator(pool).migrate();
+
+        try (PooledConnection conn = pool.acquire()) {
+            try (ResultSet rs = conn.prepare("SELECT id, name, bookings FROM customers").executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals(5550100001L, rs.getLong(1));
+                // The latest booking's name wins
+                assertEquals("Ana B", rs.getString(2));
+                assertEquals(2, rs.getInt(3));
+                assertFalse(rs.next());
+            }
+            try (ResultSet rs = conn.prepare("SELECT count(*) FROM reservations WHERE customer_id IS NULL").executeQuery()) {
+                assertEquals(1, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    public void lookupQueriesUseAnIndex() throws Exception {
+        new SchemaMigrator(pool).migrate();
+        for (String sql : ReservationSql.LOOKUP_QUERIES) {
+            for (String step : queryPlan(sql)) {
+                // The single row feeding a conditional INSERT ... SELECT is not a table scan
+                assertFalse(step.startsWith("SCAN") && !step.equals("SCAN CONSTANT ROW"), () -> sql + " -> " + step);
+            }
+        }
+    }
+
+    @Test
+    public void listingsWalkAnIndexInsteadOfSorting() throws Exception {
+        new SchemaMigrator(pool).migrate();
+        for (String sql : ReservationSql.ORDERED_LISTINGS) {
+            for (String step : queryPlan(sql)) {
+                assertFalse(step.contains("TEMP B-TREE"), () -> sql + " -> " + step);
+            }
+        }
+    }
+
+    private List<String> queryPlan(String sql) throws Exception {
+        List<String> steps = new ArrayList<>();
+        try (PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.connection().prepareStatement("EXPLAIN QUERY PLAN " + sql);
+            int params = pstmt.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= params; i++) {
+                pstmt.setString(i, "1");
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    steps.add(rs.getString("detail"));
+                }
+            }
+            pstmt.close();
+        }
+        return steps;
+    }
+}
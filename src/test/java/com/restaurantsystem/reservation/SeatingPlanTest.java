@@ -0,0 +1,95 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for table allocation in SeatingPlan.
+ */
+public class SeatingPlanTest {
+    private static final int SLOTS = ServiceSchedule.defaultSchedule().count();
+
+    @Test
+    public void smallPartyDoesNotBlockTheSlot() {
+        SeatingPlan plan = new SeatingPlan(TableInventory.defaultLayout(), SLOTS, 3);
+        assertTrue(plan.seat(1, 4, 2));
+        assertTrue(plan.fits(4, 2));
+        assertTrue(plan.fits(4, 6));
+    }
+
+    @Test
+    public void combinesTablesForLargeParties() {
+        TableInventory inventory = TableInventory.builder()
+                .table("A", 2).table("B", 2)
+                .combine("A", "B")
+                .build();
+        SeatingPlan plan = new SeatingPlan(inventory, SLOTS, 2);
+
+        assertTrue(plan.seat(1, 0, 4));
+        assertFalse(plan.fits(1, 2));
+        assertTrue(plan.fits(2, 2));
+        plan.release(1);
+        assertTrue(plan.fits(1, 4));
+    }
+
+    @Test
+    public void turnTimeHoldsTablesForLaterSlots() {
+        TableInventory inventory = TableInventory.builder().table("A", 4).build();
+        SeatingPlan plan = new SeatingPlan(inventory, SLOTS, 3);
+        plan.seat(1, 5, 4);
+
+        assertFalse(plan.fits(3, 2));
+        assertFalse(plan.fits(7, 2));
+        assertTrue(plan.fits(8, 2));
+        assertEquals(0b1_0000_0111L, plan.availableSlots(2) & 0b1_1111_1111L);
+    }
+
+    @Test
+    public void overflowBookingsCanStillBeReleased() {
+        TableInventory inventory = TableInventory.builder().table("A", 2).build();
+        SeatingPlan plan = new SeatingPlan(inventory, SLOTS, 1);
+        assertTrue(plan.seat(1, 0, 2));
+        assertFalse(plan.seat(2, 0, 2));
+        assertEquals(1, plan.overflow());
+        plan.release(2);
+        assertEquals(0, plan.overflow());
+        assertEquals(1, plan.bookingsAt(0));
+    }
+
+    @Test
+    public void replayFindsTablesThatIdOrderWouldStrand() {
+        TableInventory inventory = TableInventory.builder().table("A", 2).table("B", 4).build();
+        List<AvailabilityIndex.Booking> stored = List.of(new AvailabilityIndex.Booking(1, 0, 2),
+                new AvailabilityIndex.Booking(2, 1, 2), new AvailabilityIndex.Booking(3, 2, 4));
+
+        SeatingPlan oneByOne = new SeatingPlan(inventory, SLOTS, 2);
+        for (AvailabilityIndex.Booking booking : stored) {
+            oneByOne.seat(booking.reservationId(), booking.slot(), booking.guests());
+        }
+        assertEquals(1, oneByOne.overflow());
+
+        SeatingPlan replayed = new SeatingPlan(inventory, SLOTS, 2);
+        replayed.seatAll(stored);
+        assertEquals(0, replayed.overflow());
+        assertFalse(replayed.fits(2, 2));
+        assertTrue(replayed.fits(4, 2));
+    }
+
+    @Test
+    public void overflowTurnsCountAsFull() {
+        TableInventory inventory = TableInventory.builder().table("A", 2).table("B", 2).build();
+        SeatingPlan plan = new SeatingPlan(inventory, SLOTS, 2);
+        plan.seatAll(List.of(new AvailabilityIndex.Booking(1, 0, 2), new AvailabilityIndex.Booking(2, 0, 4)));
+
+        assertEquals(1, plan.overflow());
+        assertEquals(0b100L, plan.availableSlots(2) & 0b111L);
+        assertTrue(plan.fitsWithout(2, 0, 2));
+        plan.release(2);
+        assertTrue(plan.fits(0, 2));
+    }
+}
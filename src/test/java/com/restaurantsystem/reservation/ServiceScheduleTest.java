@@ -0,0 +1,97 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for opening hours, closures and lead times in ServiceSchedule.
+ */
+public class ServiceScheduleTest {
+    // A Monday
+    private static final LocalDate MONDAY = LocalDate.of(2030, 6, 3);
+
+    @Test
+    public void mapsStoredTimesToSlots() {
+        ServiceSchedule schedule = ServiceSchedule.defaultSchedule();
+        assertEquals(19, schedule.count());
+        assertEquals("11:30 AM", schedule.label(0));
+        assertEquals(0, schedule.indexOf(schedule.label(0)));
+        assertEquals(schedule.count() - 1, schedule.indexOf("08:30 PM"));
+        assertEquals(-1, schedule.indexOf("not a time"));
+        assertEquals(20 * 60 + 30, schedule.minuteOfDay(schedule.count() - 1));
+        assertEquals(schedule.indexOf("12:00 PM"), schedule.slotAtMinute(12 * 60));
+        assertEquals(-1, schedule.slotAtMinute(12 * 60 + 10));
+        assertEquals(3, schedule.turnSlots(ReservationService.TURN_MINUTES));
+    }
+
+    @Test
+    public void weekdaysShareOneGrid() {
+        ServiceSchedule schedule = ServiceSchedule.builder()
+                .slotMinutes(15)
+                .hours(DayOfWeek.MONDAY, LocalTime.of(17, 0), LocalTime.of(21, 0))
+                .hours(DayOfWeek.SUNDAY, LocalTime.of(10, 0), LocalTime.of(14, 0))
+                .closed(DayOfWeek.TUESDAY)
+                .build();
+
+        // 10:00 to 21:00 in quarter hours
+        assertEquals(45, schedule.count());
+        long monday = schedule.openSlots(MONDAY);
+        assertEquals(17, Long.bitCount(monday));
+        assertEquals(schedule.slotAtMinute(17 * 60), Long.numberOfTrailingZeros(monday));
+        assertEquals(0, schedule.openSlots(MONDAY.plusDays(1)));
+        assertEquals(schedule.slotAtMinute(10 * 60), Long.numberOfTrailingZeros(schedule.openSlots(MONDAY.minusDays(1))));
+        assertEquals("05:15 PM", schedule.label(schedule.slotAtMinute(17 * 60 + 15)));
+    }
+
+    @Test
+    public void holidaysAndLeadTimeCloseSlots() {
+        ServiceSchedule schedule = ServiceSchedule.builder()
+                .holiday(MONDAY)
+                .leadTime(Duration.ofHours(2))
+                .build();
+        LocalDate tuesday = MONDAY.plusDays(1);
+
+        assertEquals(0, schedule.openSlots(MONDAY));
+        assertEquals(0, schedule.bookableSlots(MONDAY.plusDays(1), LocalDateTime.of(2030, 6, 4, 23, 0)));
+        // At 5:10 PM with two hours' notice the first bookable seating is 7:30 PM
+        long bookable = schedule.bookableSlots(tuesday, tuesday.atTime(17, 10));
+        assertEquals(schedule.indexOf("07:30 PM"), Long.numberOfTrailingZeros(bookable));
+        assertFalse(schedule.isBookable(tuesday, schedule.indexOf("07:00 PM"), tuesday.atTime(17, 10)));
+        assertTrue(schedule.isBookable(tuesday, schedule.indexOf("07:30 PM"), tuesday.atTime(17, 10)));
+        assertEquals(schedule.openSlots(tuesday), schedule.bookableSlots(tuesday, MONDAY.atTime(12, 0)));
+    }
+
+    @Test
+    public void readsScheduleFromProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("slot.minutes", "60");
+        properties.setProperty("hours", "12:00-20:00");
+        properties.setProperty("hours.monday", "closed");
+        properties.setProperty("holidays", "2030-06-04, 2030-12-25");
+        ServiceSchedule schedule = ServiceSchedule.fromProperties(properties);
+
+        assertEquals(9, schedule.count());
+        assertEquals(0, schedule.openSlots(MONDAY));
+        assertEquals(0, schedule.openSlots(MONDAY.plusDays(1)));
+        assertEquals(9, Long.bitCount(schedule.openSlots(MONDAY.plusDays(2))));
+    }
+
+    @Test
+    public void rejectsHoursOffTheGrid() {
+        ServiceSchedule.Builder builder = ServiceSchedule.builder()
+                .hours(DayOfWeek.FRIDAY, LocalTime.of(11, 45), LocalTime.of(20, 30));
+        assertThrows(IllegalArgumentException.class, builder::build);
+        assertThrows(IllegalArgumentException.class, () -> ServiceSchedule.builder().slotMinutes(7));
+    }
+}
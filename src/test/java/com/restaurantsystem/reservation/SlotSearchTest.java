@@ -0,0 +1,88 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for ranking open slots across a range of dates.
+ */
+public class SlotSearchTest {
+    private static final ServiceSchedule SCHEDULE = ServiceSchedule.defaultSchedule();
+    private static final LocalDate MONDAY = LocalDate.of(2030, 6, 3);
+
+    private static int minute(String time) {
+        return SCHEDULE.minuteOf(time);
+    }
+
+    private static long slots(String... times) {
+        long mask = 0;
+        for (String time : times) {
+            mask |= 1L << SCHEDULE.indexOf(time);
+        }
+        return mask;
+    }
+
+    private static List<String> labels(List<SlotSearch.Suggestion> suggestions) {
+        return suggestions.stream().map(s -> s.date().getDayOfWeek() + " " + s.time()).toList();
+    }
+
+    @Test
+    public void ranksByDistanceFromTheWantedTimeAndDay() {
+        SlotSearch search = new SlotSearch(2, MONDAY, MONDAY.plusDays(2), minute("05:00 PM"), minute("08:00 PM"),
+                minute("07:00 PM"), Set.of(), 4);
+        long[] open = {slots("05:00 PM", "08:30 PM"), slots("07:00 PM", "06:30 PM"), slots("07:00 PM", "11:30 AM")};
+
+        // Two hours early on Monday costs the same as Wednesday at seven; the earlier date wins the tie
+        assertEquals(List.of("TUESDAY 07:00 PM", "TUESDAY 06:30 PM", "MONDAY 05:00 PM", "WEDNESDAY 07:00 PM"),
+                labels(search.rank(SCHEDULE, open)));
+    }
+
+    @Test
+    public void preferredWeekdaysComeFirstAndOthersStillFillTheList() {
+        SlotSearch search = new SlotSearch(4, MONDAY, MONDAY.plusDays(13), minute("11:30 AM"), minute("08:30 PM"),
+                minute("07:00 PM"), Set.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY), 3);
+        long[] open = new long[search.days()];
+        for (int day = 0; day < open.length; day++) {
+            open[day] = slots("07:00 PM");
+        }
+        open[4] = 0;
+
+        assertEquals(List.of(MONDAY.plusDays(5), MONDAY.plusDays(11), MONDAY.plusDays(12)),
+                search.rank(SCHEDULE, open).stream().map(SlotSearch.Suggestion::date).toList());
+    }
+
+    @Test
+    public void rejectsRangesItCannotSearch() {
+        assertThrows(IllegalArgumentException.class, () -> new SlotSearch(2, MONDAY, MONDAY.minusDays(1), 0, 1439, 0, null, 5));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SlotSearch(2, MONDAY, MONDAY.plusDays(SlotSearch.MAX_DAYS), 0, 1439, 0, null, 5));
+        assertThrows(IllegalArgumentException.class, () -> new SlotSearch(0, MONDAY, MONDAY, 0, 1439, 0, null, 5));
+        assertThrows(IllegalArgumentException.class, () -> new SlotSearch(2, MONDAY, MONDAY, 600, 500, 0, null, 5));
+    }
+
+    @Test
+    public void serviceSkipsFullSlotsAndReadsTheRangeOnce() throws Exception {
+        LocalDate first = LocalDate.now().plusDays(7);
+        try (ReservationService service = new ReservationService(new InMemoryRepository(SCHEDULE),
+                TableInventory.builder().table("T1", 4).build(), SCHEDULE)) {
+            service.reserve("Ann", "123-456-7890", first, "07:00 PM", 4, "");
+            SlotSearch search = new SlotSearch(2, first, first.plusDays(27), minute("07:00 PM"), minute("07:00 PM"),
+                    minute("07:00 PM"), Set.of(), 3);
+
+            List<SlotSearch.Suggestion> found = service.suggestSlots(search);
+            assertEquals(List.of(first.plusDays(1), first.plusDays(2), first.plusDays(3)),
+                    found.stream().map(SlotSearch.Suggestion::date).toList());
+            assertFalse(found.stream().anyMatch(s -> s.date().equals(first)));
+            // One load for the booked date, one for the other 27
+            assertEquals(2, service.metrics().stats(OperationMetrics.Operation.LOAD_BOOKINGS).getCount());
+        }
+    }
+}
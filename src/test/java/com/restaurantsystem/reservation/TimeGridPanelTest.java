@@ -0,0 +1,92 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JButton;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for in-place updates of the time slot grid.
+ */
+public class TimeGridPanelTest {
+    private static final ServiceSchedule SCHEDULE = ServiceSchedule.defaultSchedule();
+    private static final LocalDate DAY = LocalDate.of(2030, 6, 3);
+    private static final long ALL = SCHEDULE.openSlots(DAY);
+
+    private final List<String> events = new ArrayList<>();
+    private final TimeGridPanel grid = new TimeGridPanel(SCHEDULE, new TimeGridPanel.Listener() {
+        public void slotChosen(int slot) { events.add("chosen " + slot); }
+        public void waitlistRequested(int slot) { events.add("waitlist " + slot); }
+    });
+
+    @Test
+    public void restylesOnlyTheSlotsThatChanged() {
+        grid.show(DAY, ALL, ALL, ALL);
+        JButton first = (JButton) grid.getComponent(0);
+        assertEquals(SCHEDULE.count(), grid.changes());
+
+        // The next date differs in one slot only
+        grid.show(DAY.plusDays(1), ALL, ALL, ALL & ~(1L << 4));
+        assertEquals(SCHEDULE.count() + 1, grid.changes());
+        assertEquals(TimeGridPanel.Cell.WAITLIST, grid.cell(4));
+        assertSame(first, grid.getComponent(0));
+
+        grid.show(DAY.plusDays(2), ALL, ALL, ALL & ~(1L << 4));
+        assertEquals(SCHEDULE.count() + 1, grid.changes());
+    }
+
+    @Test
+    public void sharedListenerKnowsWhichSlotWasPressed() {
+        grid.show(DAY, ALL, ALL & ~1L, ALL & ~(1L << 2));
+        ((JButton) grid.getComponent(1)).doClick();
+        ((JButton) grid.getComponent(2)).doClick();
+
+        assertEquals(List.of("chosen 1", "waitlist 2"), events);
+        assertEquals(TimeGridPanel.Cell.PAST, grid.cell(0));
+    }
+
+    @Test
+    public void selectionFollowsTheFreeSlots() {
+        grid.select(3);
+        grid.show(DAY, ALL, ALL, ALL);
+        assertEquals(TimeGridPanel.Cell.SELECTED, grid.cell(3));
+
+        grid.select(5);
+        assertEquals(TimeGridPanel.Cell.FREE, grid.cell(3));
+        assertEquals(TimeGridPanel.Cell.SELECTED, grid.cell(5));
+
+        grid.show(DAY.plusDays(1), ALL, ALL, ALL & ~(1L << 5));
+        assertEquals(TimeGridPanel.Cell.WAITLIST, grid.cell(5));
+    }
+
+    @Test
+    public void laysOutAgainOnlyWhenTheHoursChange() {
+        ServiceSchedule schedule = ServiceSchedule.builder()
+                .hours(DayOfWeek.TUESDAY, LocalTime.of(17, 0), LocalTime.of(20, 30))
+                .closed(DayOfWeek.WEDNESDAY)
+                .build();
+        TimeGridPanel hours = new TimeGridPanel(schedule, new TimeGridPanel.Listener() {
+            public void slotChosen(int slot) { }
+            public void waitlistRequested(int slot) { }
+        });
+        LocalDate monday = DAY;
+        hours.show(monday, schedule.openSlots(monday), -1L, -1L);
+        assertEquals(schedule.count(), hours.getComponentCount());
+
+        LocalDate tuesday = monday.plusDays(1);
+        hours.show(tuesday, schedule.openSlots(tuesday), -1L, -1L);
+        assertEquals(Long.bitCount(schedule.openSlots(tuesday)), hours.getComponentCount());
+        assertEquals(TimeGridPanel.Cell.CLOSED, hours.cell(0));
+
+        hours.show(tuesday.plusDays(1), schedule.openSlots(tuesday.plusDays(1)), -1L, -1L);
+        assertEquals(1, hours.getComponentCount());
+    }
+}
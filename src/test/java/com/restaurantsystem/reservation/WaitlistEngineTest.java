@@ -0,0 +1,59 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for computed waitlist positions.
+ */
+public class WaitlistEngineTest {
+
+    @Test
+    public void positionsShiftWhenSomeoneAheadLeaves() throws Exception {
+        WaitlistEngine engine = new WaitlistEngine(() -> List.of(3, 5, 9));
+        assertEquals(2, engine.position(5));
+
+        engine.recordRemoval(3);
+        engine.recordJoin(12);
+
+        assertEquals(1, engine.position(5));
+        assertEquals(3, engine.position(12));
+        assertEquals(-1, engine.position(3));
+        assertEquals(3, engine.size());
+    }
+
+    @Test
+    public void joinsAreIdempotent() throws Exception {
+        WaitlistEngine engine = new WaitlistEngine(() -> List.of(1));
+        engine.ensureLoaded();
+        engine.recordJoin(1);
+        assertEquals(1, engine.size());
+    }
+
+    @Test
+    public void staysCorrectWithThousandsWaiting() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1_000; id < 11_000; id++) {
+            ids.add(id);
+        }
+        WaitlistEngine engine = new WaitlistEngine(() -> ids);
+        engine.ensureLoaded();
+        // Everyone with an even id leaves
+        for (int id = 1_000; id < 11_000; id += 2) {
+            engine.recordRemoval(id);
+        }
+        for (int id = 11_000; id < 61_000; id++) {
+            engine.recordJoin(id);
+        }
+
+        assertEquals(55_000, engine.size());
+        assertEquals(1, engine.position(1_001));
+        assertEquals(5_000, engine.position(10_999));
+        assertEquals(5_001, engine.position(11_000));
+        assertEquals(55_000, engine.position(60_999));
+    }
+}
@@ -0,0 +1,139 @@
+package com.restaurantsystem.reservation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.restaurantsystem.reservation.OperationMetrics.Operation;
+
+/**
+ * Tests for group commit and backpressure in WriteQueue.
+ */
+public class WriteQueueTest {
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private OperationMetrics metrics;
+    private final CountDownLatch holding = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void open() throws Exception {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("writes.db"), 2);
+        metrics = new OperationMetrics(pool.acquireLatency());
+        try (PooledConnection conn = pool.acquire();
+             Statement stmt = conn.connection().createStatement()) {
+            stmt.execute("CREATE TABLE notes (id INTEGER PRIMARY KEY, text TEXT NOT NULL)");
+        }
+    }
+
+    @AfterEach
+    public void close() {
+        release.countDown();
+        pool.close();
+    }
+
+    @Test
+    public void writesQueuedTogetherShareOneCommit() throws Exception {
+        try (WriteQueue writer = new WriteQueue(pool, metrics, 100, 64, 1_000)) {
+            CompletableFuture<Integer> blocker = writer.submit(this::holdWriter);
+            holding.await();
+            List<CompletableFuture<Integer>> writes = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                writes.add(writer.submit(insert("note " + i)));
+            }
+            release.countDown();
+            for (CompletableFuture<Integer> write : writes) {
+                assertEquals(1, write.get());
+            }
+            blocker.get();
+
+            // The blocking write went alone; the fifty behind it were committed together
+            assertEquals(2, metrics.stats(Operation.COMMIT).getCount());
+            assertEquals(51, metrics.stats(Operation.COMMIT).getRows());
+            assertEquals(50, count());
+        }
+    }
+
+    @Test
+    public void failedWriteIsRolledBackAloneInItsBatch() throws Exception {
+        try (WriteQueue writer = new WriteQueue(pool, metrics, 100, 64, 1_000)) {
+            writer.submit(this::holdWriter);
+            CompletableFuture<Integer> first = writer.submit(insert("first"));
+            CompletableFuture<Integer> broken = writer.submit(conn -> {
+                insert("half done").apply(conn);
+                return conn.prepare("INSERT INTO missing VALUES (1)").executeUpdate();
+            });
+            CompletableFuture<Integer> last = writer.submit(insert("last"));
+            release.countDown();
+
+            assertEquals(1, first.get());
+            assertEquals(1, last.get());
+            ExecutionException failure = assertThrows(ExecutionException.class, broken::get);
+            assertInstanceOf(SQLException.class, failure.getCause());
+            assertEquals(2, count());
+        }
+    }
+
+    @Test
+    public void fullQueueTurnsWritersAway() throws Exception {
+        try (WriteQueue writer = new WriteQueue(pool, metrics, 2, 64, 50)) {
+            writer.submit(this::holdWriter);
+            holding.await();
+            writer.submit(insert("a"));
+            writer.submit(insert("b"));
+
+            SQLException rejected = assertThrows(SQLException.class, () -> writer.execute(insert("c")));
+            assertInstanceOf(SQLTransientException.class, rejected);
+            release.countDown();
+            assertEquals(1, (int) writer.execute(insert("d")));
+            assertTrue(metrics.stats(Operation.COMMIT).getErrors() >= 1);
+        }
+    }
+
+    //Keeps the writer busy until released, so later writes pile up behind it
+    private Integer holdWriter(PooledConnection conn) {
+        holding.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    private static WriteQueue.Write<Integer> insert(String text) {
+        return conn -> {
+            PreparedStatement pstmt = conn.prepare("INSERT INTO notes (text) VALUES (?)");
+            pstmt.setString(1, text);
+            return pstmt.executeUpdate();
+        };
+    }
+
+    private int count() throws SQLException {
+        try (PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare("SELECT count(*) FROM notes").executeQuery()) {
+            return rs.getInt(1);
+        }
+    }
+}